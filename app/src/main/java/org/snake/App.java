@@ -1,6 +1,8 @@
 package org.snake;
 
+import java.util.Arrays;
 import org.snake.model.SnakegameModel;
+import org.snake.server.GameServer;
 import org.snake.view.SnakegameView;
 
 /**
@@ -12,10 +14,16 @@ public class App {
     /**
      * The main method serves as the entry point of the application.
      * It initializes the Snake game model and view, and makes the view visible.
+     * If the first argument is "server", it runs the headless GameServer instead.
      * 
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments, either empty or "server" followed by
+     *             the arguments of the GameServer.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("server")) {
+            GameServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
         // Create instances of the model & view
         SnakegameModel model = new SnakegameModel();
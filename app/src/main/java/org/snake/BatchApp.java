@@ -0,0 +1,61 @@
+package org.snake;
+
+import java.util.concurrent.ForkJoinPool;
+import org.snake.engine.BatchSimulator;
+import org.snake.engine.BatchStatistics;
+import org.snake.engine.GreedyPolicy;
+import org.snake.util.ConfigReader;
+
+/**
+ * Command line entry point that plays a batch of headless games across all
+ * cores and prints aggregated statistics. Used to evaluate changes to the
+ * configuration (timerinterval, snakelength, numberofcolumns) without the UI.
+ *
+ * Usage: BatchApp [games] [seed] [threads] [maxticks]
+ */
+public class BatchApp {
+
+    private static final String CONFIG_FILENAME = "snakegame.config";
+    private static final int DEFAULT_GAMES = 10000;
+    private static final long DEFAULT_MAX_TICKS = 1000000;
+
+    /**
+     * Reads the game configuration, plays the batch and prints the results.
+     *
+     * @param args Optional number of games, seed, number of threads and tick
+     *             limit per game, in that order.
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long maxTicks = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_MAX_TICKS;
+
+        ConfigReader.readConfig(CONFIG_FILENAME);
+        int numberOfColumns = Integer.parseInt(ConfigReader.getProperty("numberofcolumns"));
+        int snakeLength = Integer.parseInt(ConfigReader.getProperty("snakelength"));
+        int timerInterval = Integer.parseInt(ConfigReader.getProperty("timerinterval"));
+
+        BatchSimulator simulator = new BatchSimulator(numberOfColumns, snakeLength, maxTicks, seed,
+                GreedyPolicy::new);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long start = System.nanoTime();
+        BatchStatistics statistics = simulator.run(games, pool);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("Games: %d on %d threads, seed %d, board %dx%d, snake length %d%n",
+                statistics.getGames(), threads, seed, numberOfColumns, numberOfColumns, snakeLength);
+        System.out.printf("Score: mean %.2f, min %d, max %d%n",
+                statistics.getMeanScore(), statistics.getMinScore(), statistics.getMaxScore());
+        System.out.printf("Length: mean %.2f, max %d%n", statistics.getMeanLength(), statistics.getMaxLength());
+        System.out.printf("Duration: mean %.1f ticks (%.1f s at %d ms per tick), max %d ticks%n",
+                statistics.getMeanTicks(), statistics.getMeanTicks() * timerInterval / 1000.0, timerInterval,
+                statistics.getMaxTicks());
+        System.out.printf("Endings: %d wall, %d body, %d tick limit%n",
+                statistics.getWallCollisions(), statistics.getBodyCollisions(), statistics.getTimeouts());
+        System.out.printf("Throughput: %.0f games/s, %.0f ticks/s (%.2f s elapsed)%n",
+                statistics.getGames() / seconds, statistics.getTotalTicks() / seconds, seconds);
+    }
+}
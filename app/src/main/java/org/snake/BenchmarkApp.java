@@ -0,0 +1,466 @@
+package org.snake;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.snake.database.DataHandler;
+import org.snake.engine.ArenaEngine;
+import org.snake.engine.GameEngine;
+import org.snake.engine.HamiltonianCycle;
+import org.snake.engine.HamiltonianPolicy;
+import org.snake.engine.PathfindingPolicy;
+import org.snake.engine.StepResult;
+import org.snake.engine.VecEnv;
+import org.snake.model.Snake;
+import org.snake.util.ForkableRandom;
+import org.snake.util.LatencyHistogram;
+
+/**
+ * Command line entry point for micro benchmarks of the headless game code.
+ *
+ * Usage: BenchmarkApp pathfinding [columns] [seconds]
+ *        BenchmarkApp hamiltonian [columns] [seconds]
+ *        BenchmarkApp vecenv [envs] [columns] [seconds]
+ *        BenchmarkApp arena [snakes] [columns] [seconds]
+ *        BenchmarkApp database [operations]
+ */
+public class BenchmarkApp {
+
+    /**
+     * Runs the benchmark named by the first argument.
+     *
+     * @param args The name of the benchmark followed by its arguments.
+     */
+    public static void main(String[] args) {
+        String benchmark = args.length > 0 ? args[0] : "pathfinding";
+
+        switch (benchmark) {
+            case "pathfinding":
+                benchmarkPathfinding(intArg(args, 1, 500), intArg(args, 2, 10));
+                break;
+            case "hamiltonian":
+                benchmarkHamiltonian(intArg(args, 1, 1000), intArg(args, 2, 60));
+                break;
+            case "vecenv":
+                benchmarkVecEnv(intArg(args, 1, 4096), intArg(args, 2, 20), intArg(args, 3, 10));
+                break;
+            case "arena":
+                benchmarkArena(intArg(args, 1, 1000), intArg(args, 2, 1000), intArg(args, 3, 10));
+                break;
+            case "database":
+                benchmarkDatabase(intArg(args, 1, 2000));
+                break;
+            default:
+                System.out.println("Unknown benchmark: " + benchmark);
+                System.out.println("Usage: BenchmarkApp pathfinding|hamiltonian [columns] [seconds]");
+                System.out.println("       BenchmarkApp vecenv [envs] [columns] [seconds]");
+                System.out.println("       BenchmarkApp arena [snakes] [columns] [seconds]");
+                System.out.println("       BenchmarkApp database [operations]");
+        }
+    }
+
+    /**
+     * Plays autopilot games on a board for a number of seconds, restarting when a
+     * game ends, and reports how many searches and decisions are made per second.
+     *
+     * @param columns The number of columns (and rows) on the board.
+     * @param seconds How long to run the benchmark for.
+     */
+    private static void benchmarkPathfinding(int columns, int seconds) {
+        GameEngine engine = new GameEngine(columns, 4, new ForkableRandom(1));
+        PathfindingPolicy policy = new PathfindingPolicy();
+        engine.reset();
+
+        // Warm up the JIT before measuring
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            playTick(engine, policy);
+        }
+
+        int searchesBefore = policy.getSearches();
+        long decisions = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            playTick(engine, policy);
+            decisions++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        int searches = policy.getSearches() - searchesBefore;
+
+        System.out.printf("Pathfinding on %dx%d board, snake length %d at end%n", columns, columns,
+                engine.getSnake().getSnakeLength());
+        System.out.printf("Searches: %.0f/s, decisions: %.0f/s, %.1f us per decision%n",
+                searches / elapsed, decisions / elapsed, elapsed * 1e6 / decisions);
+    }
+
+    /**
+     * Plays a single game with the Hamiltonian cycle policy until the board is
+     * full, the snake dies or the time runs out, and reports the tick rate and
+     * how much of the board was filled.
+     *
+     * @param columns The number of columns (and rows) on the board.
+     * @param seconds The longest time to play for.
+     */
+    private static void benchmarkHamiltonian(int columns, int seconds) {
+        long buildStart = System.nanoTime();
+        HamiltonianCycle cycle = HamiltonianCycle.forBoard(columns, columns);
+        double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+
+        GameEngine engine = new GameEngine(columns, 4, new ForkableRandom(1));
+        HamiltonianPolicy policy = new HamiltonianPolicy();
+        engine.reset();
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        StepResult result = StepResult.MOVED;
+        while (!engine.isBoardFull() && !result.isGameOver()) {
+            result = engine.step(policy.nextDirection(engine));
+            // Checking the clock every tick would cost more than the tick itself
+            if ((engine.getTicks() & 0xFFFF) == 0 && System.nanoTime() > end) {
+                break;
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        int cells = (columns - 2) * (columns - 2);
+        String outcome = engine.isBoardFull() ? "board full" : result.isGameOver() ? result.toString() : "time limit";
+        System.out.printf("Hamiltonian cycle on %dx%d board built in %.1f ms (%d positions)%n", columns, columns,
+                buildMillis, cycle.getLength());
+        System.out.printf("Ended with %s after %d ticks, snake length %d (%.2f%% of the board)%n", outcome,
+                engine.getTicks(), engine.getSnake().getSnakeLength(),
+                100.0 * engine.getSnake().getSnakeLength() / cells);
+        System.out.printf("Ticks: %.0f/s%n", engine.getTicks() / elapsed);
+    }
+
+    /**
+     * Steps many games with random actions, first one GameEngine per game and
+     * then all games together in a VecEnv, and reports the env-steps per second
+     * of both. Games that end are restarted.
+     *
+     * @param envs    The number of games to step together.
+     * @param columns The number of columns (and rows) on each board.
+     * @param seconds How long to run each part of the benchmark for.
+     */
+    private static void benchmarkVecEnv(int envs, int columns, int seconds) {
+        int[] actions = new int[envs];
+        long[] randomState = { 1 };
+
+        GameEngine[] engines = new GameEngine[envs];
+        for (int i = 0; i < envs; i++) {
+            engines[i] = new GameEngine(columns, 4, new ForkableRandom(i));
+            engines[i].reset();
+        }
+        Runnable engineStep = () -> {
+            randomActions(actions, randomState);
+            for (int i = 0; i < envs; i++) {
+                if (engines[i].step(VecEnv.ACTIONS.charAt(actions[i])).isGameOver()) {
+                    engines[i].reset();
+                }
+            }
+        };
+
+        VecEnv vecEnv = new VecEnv(envs, columns, 4, 1);
+        Runnable vecEnvStep = () -> {
+            randomActions(actions, randomState);
+            vecEnv.step(actions);
+        };
+
+        System.out.printf("%d games on %dx%d boards, random actions%n", envs, columns, columns);
+        System.out.printf("GameEngine: %.0f env-steps/s%n", envs * stepsPerSecond(engineStep, seconds));
+        System.out.printf("VecEnv:     %.0f env-steps/s (%d completed games)%n",
+                envs * stepsPerSecond(vecEnvStep, seconds), vecEnv.getCompletedEpisodes());
+    }
+
+    /**
+     * Plays an arena of snakes that wander the board avoiding obstacles, first
+     * with the phases of each tick on one thread and then on all cores, and
+     * reports the ticks per second of both.
+     *
+     * @param snakes  The number of snakes in the arena.
+     * @param columns The number of columns (and rows) on the board.
+     * @param seconds How long to run each part of the benchmark for.
+     */
+    private static void benchmarkArena(int snakes, int columns, int seconds) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Arena of %d snakes on %dx%d board%n", snakes, columns, columns);
+        for (int threads : new int[] { 1, cores }) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            ArenaEngine arena = new ArenaEngine(columns, columns, snakes, 8, snakes, 1, pool);
+            char[] directions = new char[snakes];
+            Arrays.fill(directions, 'U');
+            long[] randomState = { 1 };
+            Runnable tick = () -> {
+                steerArena(arena, directions, randomState);
+                arena.step(directions);
+            };
+            double ticksPerSecond = stepsPerSecond(tick, seconds);
+            System.out.printf("%d threads: %.0f ticks/s, %.0f snake-moves/s, %.1f us per tick (%d deaths)%n", threads,
+                    ticksPerSecond, ticksPerSecond * snakes, 1e6 / ticksPerSecond, arena.getDeaths());
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Stores games and reads the session of the day on a new database, first
+     * opening a connection and preparing the SQL for every call as DataHandler
+     * used to, then through a DataHandler that keeps its connection and
+     * statements. Reports the latency of an insert and a read for both.
+     *
+     * @param operations The number of inserts and reads to time for each.
+     */
+    private static void benchmarkDatabase(int operations) {
+        String today = LocalDate.now().toString();
+        int warmup = Math.max(1, operations / 10);
+        LatencyHistogram inserts = new LatencyHistogram();
+        LatencyHistogram reads = new LatencyHistogram();
+        try {
+            String url = "jdbc:sqlite:" + createTemporaryDatabase().getPath();
+            try (Connection conn = DriverManager.getConnection(url); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE game_history (rowid INTEGER PRIMARY KEY AUTOINCREMENT, "
+                        + "timestamp TEXT NOT NULL, duration INTEGER NOT NULL, score INTEGER NOT NULL)");
+                stmt.executeUpdate("CREATE TABLE game_session (date TEXT PRIMARY KEY, duration INTEGER NOT NULL, "
+                        + "gamesplayed INTEGER NOT NULL)");
+            }
+            for (int i = 0; i < warmup + operations; i++) {
+                long start = System.nanoTime();
+                insertWithNewConnection(url, i);
+                long inserted = System.nanoTime();
+                readWithNewConnection(url, today);
+                if (i >= warmup) {
+                    inserts.record(inserted - start);
+                    reads.record(System.nanoTime() - inserted);
+                }
+            }
+        } catch (IOException | SQLException e) {
+            e.printStackTrace();
+            return;
+        }
+        printDatabaseLatencies("Connection per call", inserts, reads);
+
+        inserts = new LatencyHistogram();
+        reads = new LatencyHistogram();
+        try (DataHandler handler = new DataHandler("jdbc:sqlite:" + createTemporaryDatabase().getPath())) {
+            for (int i = 0; i < warmup + operations; i++) {
+                long start = System.nanoTime();
+                handler.insertGameTable(i, i);
+                long inserted = System.nanoTime();
+                handler.readSessionTableByDate(today);
+                if (i >= warmup) {
+                    inserts.record(inserted - start);
+                    reads.record(System.nanoTime() - inserted);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        printDatabaseLatencies("Kept connection    ", inserts, reads);
+    }
+
+    /**
+     * Creates an empty database file that is deleted, along with its log, when
+     * the benchmark ends.
+     *
+     * @return The database file.
+     * @throws IOException if the file cannot be created.
+     */
+    private static File createTemporaryDatabase() throws IOException {
+        File file = File.createTempFile("snake-benchmark", ".db");
+        file.deleteOnExit();
+        new File(file.getPath() + "-wal").deleteOnExit();
+        new File(file.getPath() + "-shm").deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Stores a game the way DataHandler used to: on a new connection, with the
+     * insert and the row ID query prepared for this call only.
+     *
+     * @param url   The JDBC URL of the database.
+     * @param score The score and duration of the game.
+     * @throws SQLException if the game cannot be stored.
+     */
+    private static void insertWithNewConnection(String url, int score) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+                PreparedStatement insert = conn.prepareStatement(
+                        "INSERT INTO game_history(timestamp, duration, score) VALUES(?, ?, ?)");
+                PreparedStatement rowId = conn.prepareStatement("SELECT last_insert_rowid()")) {
+            insert.setString(1, LocalDate.now().toString());
+            insert.setInt(2, score);
+            insert.setInt(3, score);
+            insert.executeUpdate();
+            try (ResultSet rs = rowId.executeQuery()) {
+                rs.next();
+            }
+        }
+    }
+
+    /**
+     * Reads the session of a day the way DataHandler used to, on a new connection.
+     *
+     * @param url  The JDBC URL of the database.
+     * @param date The date of the session.
+     * @throws SQLException if the session cannot be read.
+     */
+    private static void readWithNewConnection(String url, String date) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url);
+                PreparedStatement read = conn.prepareStatement("SELECT * FROM game_session WHERE date = ?")) {
+            read.setString(1, date);
+            try (ResultSet rs = read.executeQuery()) {
+                rs.next();
+            }
+        }
+    }
+
+    /**
+     * Prints the mean and tail latency of inserts and reads.
+     *
+     * @param name    The name of the approach measured.
+     * @param inserts The latencies of the inserts.
+     * @param reads   The latencies of the reads.
+     */
+    private static void printDatabaseLatencies(String name, LatencyHistogram inserts, LatencyHistogram reads) {
+        System.out.printf("%s: insert mean %.0f us p99 %.0f us, read mean %.0f us p99 %.0f us (%d each)%n", name,
+                inserts.getMeanNanos() / 1e3, inserts.getPercentileNanos(0.99) / 1e3, reads.getMeanNanos() / 1e3,
+                reads.getPercentileNanos(0.99) / 1e3, inserts.getCount());
+    }
+
+    /**
+     * Chooses the directions of the snakes in an arena: mostly straight on, with
+     * random turns, and away from walls and bodies when the cell ahead is taken.
+     *
+     * @param arena       The arena to steer.
+     * @param directions  The directions of the snakes, updated in place.
+     * @param randomState The state of the xorshift generator, updated in place.
+     */
+    private static void steerArena(ArenaEngine arena, char[] directions, long[] randomState) {
+        long state = randomState[0];
+        for (int i = 0; i < directions.length; i++) {
+            if (!arena.isAlive(i)) {
+                continue;
+            }
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            Snake snake = arena.getSnake(i);
+            int x = snake.getHeadX();
+            int y = snake.getHeadY();
+            char direction = directions[i];
+            // Turn one time in eight, or when the cell ahead is taken
+            if ((state & 7) == 0 || isArenaCellTaken(arena, x, y, direction)) {
+                int first = (int) ((state >>> 3) & 3);
+                for (int k = 0; k < 4; k++) {
+                    char candidate = VecEnv.ACTIONS.charAt((first + k) & 3);
+                    if (!isArenaCellTaken(arena, x, y, candidate)) {
+                        direction = candidate;
+                        break;
+                    }
+                }
+            }
+            directions[i] = direction;
+        }
+        randomState[0] = state;
+    }
+
+    /**
+     * Checks whether the cell next to a head in a direction is a wall or a body.
+     *
+     * @param arena     The arena holding the head.
+     * @param x         The x-coordinate of the head.
+     * @param y         The y-coordinate of the head.
+     * @param direction A character indicating the direction ('U', 'D', 'L', 'R').
+     * @return A boolean indicating whether moving that way would hit something.
+     */
+    private static boolean isArenaCellTaken(ArenaEngine arena, int x, int y, char direction) {
+        switch (direction) {
+            case 'U':
+                return arena.isOccupied(x, y - 1);
+            case 'D':
+                return arena.isOccupied(x, y + 1);
+            case 'L':
+                return arena.isOccupied(x - 1, y);
+            default:
+                return arena.isOccupied(x + 1, y);
+        }
+    }
+
+    /**
+     * Fills an array with random actions that mostly keep each snake going
+     * straight, so games last long enough for the steps to outweigh the resets.
+     *
+     * @param actions     The array to fill, holding the previous actions.
+     * @param randomState The state of the xorshift generator, updated in place.
+     */
+    private static void randomActions(int[] actions, long[] randomState) {
+        long state = randomState[0];
+        for (int i = 0; i < actions.length; i++) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            // Keep going straight three times out of four
+            if ((state & 3) == 0) {
+                actions[i] = (int) ((state >>> 2) & 3);
+            }
+        }
+        randomState[0] = state;
+    }
+
+    /**
+     * Runs a step repeatedly for a number of seconds after a warm-up.
+     *
+     * @param step    The step to run.
+     * @param seconds How long to measure for.
+     * @return The number of steps run per second.
+     */
+    private static double stepsPerSecond(Runnable step, int seconds) {
+        // Warm up the JIT before measuring
+        long warmupEnd = System.nanoTime() + 1_000_000_000L;
+        while (System.nanoTime() < warmupEnd) {
+            step.run();
+        }
+
+        long steps = 0;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            step.run();
+            steps++;
+        }
+        return steps / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Lets the policy choose a direction and plays one tick, starting a new game
+     * if the current one ends.
+     *
+     * @param engine The engine to play on.
+     * @param policy The policy steering the snake.
+     */
+    private static void playTick(GameEngine engine, PathfindingPolicy policy) {
+        StepResult result = engine.step(policy.nextDirection(engine));
+        if (result.isGameOver()) {
+            engine.reset();
+        }
+    }
+
+    /**
+     * Reads an optional integer argument.
+     *
+     * @param args         The command line arguments.
+     * @param index        The position of the argument.
+     * @param defaultValue The value to use if the argument is missing.
+     * @return The value of the argument.
+     */
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
@@ -7,17 +7,52 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONObject;
 /**
  * Handles database operations for the Snake game, including managing game history
  * and session data. This class provides methods to create tables, insert records,
  * and read data from the SQLite database.
+ *
+ * The connection is opened on first use and kept open, and every SQL statement is
+ * prepared once and reused, so storing a game costs a single write rather than
+ * opening the database file and compiling the SQL each time. The database is put
+ * in write-ahead logging mode, where a commit appends to the log instead of
+ * rewriting the database and readers do not block the writer. Methods are
+ * synchronized, as the connection must only be used by one thread at a time.
+ *
+ * The leaderboard is read from an index on the score once and then kept in
+ * memory, updated by every game stored through the handler, so showing it does
+ * not query the game history at all. The rank of a score is found the same way,
+ * from every score in the history counted in memory. Games stored by another
+ * process are not seen until the handler is created again.
  */
-public class DataHandler {
+public class DataHandler implements AutoCloseable {
 
     private Connection conn;
-    private String connectionURL = "jdbc:sqlite:snakegame.db"; 
+    private String connectionURL = "jdbc:sqlite:snakegame.db";
+    private boolean keepOpen = true; // Whether the connection stays open between calls
+    private final Map<String, PreparedStatement> statements = new HashMap<>(); // Prepared statements by SQL, for the open connection
+    private TopScores topScores; // The highest scores, read on the first leaderboard request and kept up to date
+    private ScoreRanks scoreRanks; // Every score, read on the first rank request and kept up to date
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    /**
+     * Settings applied to every new connection. Write-ahead logging only needs to
+     * sync the log at checkpoints with synchronous=NORMAL, which is still safe
+     * against application crashes. The busy timeout lets a connection wait for
+     * another one to finish writing instead of failing straight away.
+     */
+    private static final String[] CONNECTION_PRAGMAS = {
+            "PRAGMA journal_mode=WAL",
+            "PRAGMA synchronous=NORMAL",
+            "PRAGMA temp_store=MEMORY",
+            "PRAGMA busy_timeout=5000" };
 
     /**
      * SQL statement to create the game history table.
@@ -33,7 +68,9 @@ public class DataHandler {
     // SQL statements for inserting and reading game data
     private static final String INSERT_GAME_SQL = "INSERT INTO game_history(timestamp, duration, score) VALUES(?, ?, ?)";
     private static final String READ_GAME_SQL = "SELECT * FROM game_history";
-    private static final String READ_LEADERBOARD_SQL = "SELECT * FROM game_history ORDER BY score DESC LIMIT ?";
+    private static final String READ_LEADERBOARD_SQL = "SELECT * FROM game_history ORDER BY score DESC, rowid LIMIT ?";
+    private static final String READ_SCORES_SQL = "SELECT score FROM game_history";
+    private static final String CREATE_SCORE_INDEX_SQL = "CREATE INDEX IF NOT EXISTS game_history_score ON game_history(score DESC)";
     private static final String ROW_ID_SQL = "SELECT last_insert_rowid()";
 
     /**
@@ -51,12 +88,147 @@ public class DataHandler {
     private static final String READ_SESSION_SQL = "SELECT * FROM game_session";
     private static final String READ_SESSION_BY_DATE_SQL = "SELECT * FROM game_session WHERE date = ?";
 
+    /**
+     * SQL statement to create the replay table.
+     * Stores the seed and recorded input of each game, keyed by its game history row.
+     */
+    private static final String CREATE_REPLAY_TABLE_SQL = "CREATE TABLE IF NOT EXISTS game_replay ("
+            + "gameid INTEGER PRIMARY KEY, "
+            + "seed INTEGER NOT NULL, "
+            + "replay BLOB NOT NULL"
+            + ");";
+
+    // SQL statements for inserting and reading replays
+    private static final String INSERT_REPLAY_SQL = "INSERT OR REPLACE INTO game_replay(gameid, seed, replay) VALUES(?, ?, ?)";
+    private static final String READ_REPLAY_SQL = "SELECT replay FROM game_replay WHERE gameid = ?";
+
     /**
      * Initializes the DataHandler by creating necessary tables in the database.
      */
     public DataHandler() {
         createGameTable();
         createSessionTable();
+        createReplayTable();
+    }
+
+    /**
+     * Initializes a DataHandler on a different database, such as the database
+     * of one session of the game server, and creates the necessary tables in it.
+     *
+     * @param connectionURL The JDBC URL of the SQLite database.
+     */
+    public DataHandler(String connectionURL) {
+        this(connectionURL, true);
+    }
+
+    /**
+     * Initializes a DataHandler on a different database and creates the necessary
+     * tables in it, optionally closing the connection after every call. Closing it
+     * suits processes with many handlers that are rarely used, such as the game
+     * server, which would otherwise hold thousands of database files open.
+     *
+     * @param connectionURL The JDBC URL of the SQLite database.
+     * @param keepOpen      Whether to keep the connection and its prepared
+     *                      statements open between calls.
+     */
+    public DataHandler(String connectionURL, boolean keepOpen) {
+        this.connectionURL = connectionURL;
+        this.keepOpen = keepOpen;
+        createGameTable();
+        createSessionTable();
+        createReplayTable();
+    }
+
+    /**
+     * Retrieves the connection, opening it and applying the connection settings
+     * if it is not open.
+     *
+     * @return The open connection.
+     * @throws SQLException if the database cannot be opened.
+     */
+    private Connection connection() throws SQLException {
+        if (conn == null) {
+            conn = DriverManager.getConnection(connectionURL);
+            try (Statement pragma = conn.createStatement()) {
+                for (String sql : CONNECTION_PRAGMAS) {
+                    pragma.execute(sql);
+                }
+            }
+        }
+        return conn;
+    }
+
+    /**
+     * Retrieves the prepared statement for some SQL, preparing it on the first use
+     * with the current connection.
+     *
+     * @param sql The SQL of the statement.
+     * @return The prepared statement, with the parameters of its last use.
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection().prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Ends a call, closing the connection unless it is kept open.
+     */
+    private void release() {
+        if (!keepOpen) {
+            close();
+        }
+    }
+
+    /**
+     * Checks whether the connection is open.
+     *
+     * @return A boolean indicating whether the handler holds an open connection.
+     */
+    synchronized boolean isConnected() {
+        return conn != null;
+    }
+
+    /**
+     * Closes the prepared statements and the connection. The connection is opened
+     * again by the next call that needs it.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            for (PreparedStatement statement : statements.values()) {
+                statement.close();
+            }
+            if (conn != null) {
+                conn.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            statements.clear();
+            conn = null;
+        }
+    }
+
+    /**
+     * Runs a statement that changes the schema. Such statements are only run once,
+     * so they are not kept prepared.
+     *
+     * @param sql The SQL of the statement.
+     */
+    private synchronized void executeSchema(String sql) {
+        try (Statement stmtCreate = connection().createStatement()) {
+            stmtCreate.executeUpdate(sql);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close(); // Start again with a new connection on the next call
+        } finally {
+            release();
+        }
     }
 
     /**
@@ -64,12 +236,9 @@ public class DataHandler {
      *
      * @return A JSON array containing all game records.
      */
-    public String readGameTable() {
+    public synchronized String readGameTable() {
         JSONArray jsonArray = new JSONArray();
-        try {
-            conn = DriverManager.getConnection(connectionURL);
-            Statement stmtRead = conn.createStatement();
-            ResultSet rs = stmtRead.executeQuery(READ_GAME_SQL);
+        try (ResultSet rs = prepare(READ_GAME_SQL).executeQuery()) {
             while (rs.next()) {
                 JSONObject jsonObject = new JSONObject();
                 jsonObject.put("timestamp", rs.getString("timestamp"));
@@ -77,10 +246,11 @@ public class DataHandler {
                 jsonObject.put("score", rs.getInt("score"));
                 jsonArray.put(jsonObject);
             }
-            stmtRead.close();
-            conn.close();
         } catch (SQLException e) {
             e.printStackTrace();
+            close();
+        } finally {
+            release();
         }
         return jsonArray.toString();
     }
@@ -88,46 +258,129 @@ public class DataHandler {
     /**
      * Reads the leaderboard from the game history table, returning the top scores as a JSON array.
      *
+     * The top scores are read from the score index the first time, or when more
+     * of them are asked for than before, and served from memory afterwards.
+     *
      * @param topscorestodisplay The number of top scores to retrieve.
      * @return A JSON array containing the top scores from the leaderboard.
      */
-    public String readLeaderboard(int topscorestodisplay) {
-        JSONArray jsonArray = new JSONArray();
+    public synchronized String readLeaderboard(int topscorestodisplay) {
+        if (topScores == null || topScores.getCapacity() < topscorestodisplay) {
+            topScores = readTopScores(topscorestodisplay);
+            if (topScores == null) {
+                return new JSONArray().toString();
+            }
+        }
+        return topScores.toJSONArray(topscorestodisplay).toString();
+    }
+
+    /**
+     * Reads the highest scores from the game history table.
+     *
+     * @param count The number of scores to read.
+     * @return The highest scores, or null if they could not be read.
+     */
+    private TopScores readTopScores(int count) {
+        TopScores read = new TopScores(count);
         try {
-            conn = DriverManager.getConnection(connectionURL);
-            PreparedStatement pstmtSelect = conn.prepareStatement(READ_LEADERBOARD_SQL);
-            pstmtSelect.setInt(1, topscorestodisplay);
-            ResultSet rs = pstmtSelect.executeQuery();
-            while (rs.next()) {
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("timestamp", rs.getString("timestamp"));
-                jsonObject.put("duration", rs.getInt("duration"));
-                jsonObject.put("score", rs.getInt("score"));
-                jsonArray.put(jsonObject);
+            PreparedStatement pstmtSelect = prepare(READ_LEADERBOARD_SQL);
+            pstmtSelect.setInt(1, count);
+            try (ResultSet rs = pstmtSelect.executeQuery()) {
+                while (rs.next()) {
+                    read.add(rs.getString("timestamp"), rs.getInt("duration"), rs.getInt("score"));
+                }
             }
-            pstmtSelect.close();
-            conn.close();
+            return read;
         } catch (SQLException e) {
             e.printStackTrace();
+            close();
+            return null;
+        } finally {
+            release();
         }
-        return jsonArray.toString();
     }
 
     /**
-     * Creates the game history table in the database if it does not already exist.
+     * Reads the rank of a score among the games in the game history, where the
+     * highest score ranks first and equal scores share a rank.
+     *
+     * The scores are read from the game history table the first time and counted
+     * in memory afterwards, so the rank is found in O(log n).
+     *
+     * @param score The score to rank.
+     * @return One more than the number of games with a higher score, or 0 if the
+     *         scores could not be read.
      */
-    public void createGameTable() {
-        try {
-            conn = DriverManager.getConnection(connectionURL);
-            PreparedStatement pstmtCreate = conn.prepareStatement(CREATE_GAME_TABLE_SQL);
-            pstmtCreate.executeUpdate();
-            pstmtCreate.close();
-            conn.close();
+    public synchronized long readScoreRank(int score) {
+        if (!readScoreRanks()) {
+            return 0;
+        }
+        return scoreRanks.rank(score);
+    }
+
+    /**
+     * Reads the number of games in the game history that have been ranked.
+     *
+     * @return The number of games, or 0 if the scores could not be read.
+     */
+    public synchronized long readScoreCount() {
+        if (!readScoreRanks()) {
+            return 0;
+        }
+        return scoreRanks.size();
+    }
+
+    /**
+     * Reads every score from the game history table, unless they have been read.
+     *
+     * @return A boolean indicating whether the scores are held in memory.
+     */
+    private boolean readScoreRanks() {
+        if (scoreRanks != null) {
+            return true;
+        }
+        ScoreRanks read = new ScoreRanks();
+        try (ResultSet rs = prepare(READ_SCORES_SQL).executeQuery()) {
+            while (rs.next()) {
+                read.add(Math.max(0, rs.getInt(1)));
+            }
+            scoreRanks = read;
+            return true;
         } catch (SQLException e) {
             e.printStackTrace();
+            close();
+            return false;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Adds a stored game to the top scores and score ranks kept in memory, for
+     * each of them that has been read.
+     *
+     * @param finishedAt   The time the game finished.
+     * @param gameDuration The duration of the game played.
+     * @param gameScore    The score achieved in that game.
+     */
+    private void addScore(LocalDateTime finishedAt, int gameDuration, int gameScore) {
+        if (topScores != null) {
+            topScores.add(finishedAt.format(TIMESTAMP_FORMAT), gameDuration, gameScore);
+        }
+        if (scoreRanks != null) {
+            scoreRanks.add(Math.max(0, gameScore));
         }
     }
 
+    /**
+     * Creates the game history table and its score index in the database if they
+     * do not already exist.
+     */
+    public void createGameTable() {
+        executeSchema(CREATE_GAME_TABLE_SQL);
+        executeSchema(CREATE_SCORE_INDEX_SQL);
+    }
+
     /**
      * Inserts a new record into the game history table with the specified duration and score.
      *
@@ -135,48 +388,89 @@ public class DataHandler {
      * @param gameScore The score achieved in that game.
      * @return The ID of the last inserted row.
      */
-    public long insertGameTable(int gameDuration, int gameScore) {
+    public synchronized long insertGameTable(int gameDuration, int gameScore) {
         long lastInsertedRowId = 0;
         try {
-            conn = DriverManager.getConnection(connectionURL);
-            PreparedStatement pstmtInsert = conn.prepareStatement(INSERT_GAME_SQL);
-            PreparedStatement rowIdStmt = conn.prepareStatement(ROW_ID_SQL);
-            
-            LocalDateTime currentTime = LocalDateTime.now(); // Get current time
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"); // Define format
-            String formattedDateTime = currentTime.format(formatter); // Format date
-            
-            pstmtInsert.setString(1, formattedDateTime);
-            pstmtInsert.setInt(2, gameDuration);
-            pstmtInsert.setInt(3, gameScore);
-            
-            pstmtInsert.executeUpdate(); // Execute insert
-            
-            ResultSet rs = rowIdStmt.executeQuery(); // Get last row ID
-            if (rs.next()) {
-                lastInsertedRowId = rs.getLong(1); // Retrieve ID
-            }
-            
-            pstmtInsert.close();
-            conn.close();
+            LocalDateTime finishedAt = LocalDateTime.now();
+            lastInsertedRowId = insertGame(finishedAt, gameDuration, gameScore);
+            addScore(finishedAt, gameDuration, gameScore);
         } catch (SQLException e) {
             e.printStackTrace();
+            close();
+        } finally {
+            release();
         }
         return lastInsertedRowId;
     }
 
+    /**
+     * Inserts a record into the game history table.
+     *
+     * @param finishedAt   The time the game finished.
+     * @param gameDuration The duration of the game played.
+     * @param gameScore    The score achieved in that game.
+     * @return The ID of the inserted row.
+     * @throws SQLException if the record cannot be inserted.
+     */
+    private long insertGame(LocalDateTime finishedAt, int gameDuration, int gameScore) throws SQLException {
+        PreparedStatement pstmtInsert = prepare(INSERT_GAME_SQL);
+        pstmtInsert.setString(1, finishedAt.format(TIMESTAMP_FORMAT));
+        pstmtInsert.setInt(2, gameDuration);
+        pstmtInsert.setInt(3, gameScore);
+        pstmtInsert.executeUpdate(); // Execute insert
+
+        // The connection is not shared, so the last row ID is the row just inserted
+        try (ResultSet rs = prepare(ROW_ID_SQL).executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Stores the results of finished games in a single transaction, in order:
+     * for each game its history row, its replay and the session totals of its
+     * day. Either all of the results are stored or none of them are.
+     *
+     * @param results The results to store, oldest first.
+     * @return A boolean indicating whether the results were stored.
+     */
+    public synchronized boolean storeResults(List<GameResult> results) {
+        try {
+            Connection connection = connection();
+            connection.setAutoCommit(false);
+            try {
+                for (GameResult result : results) {
+                    long gameId = insertGame(result.getFinishedAt(), result.getGameDuration(), result.getScore());
+                    insertReplay(gameId, result.getSeed(), result.getReplay());
+                    insertSession(result.getFinishedAt(), result.getSessionDuration(), result.getGamesPlayed());
+                }
+                connection.commit();
+                for (GameResult result : results) {
+                    addScore(result.getFinishedAt(), result.getGameDuration(), result.getScore());
+                }
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close();
+            return false;
+        } finally {
+            release();
+        }
+    }
+
     /**
      * Reads all entries from the session table and returns them as a JSON array.
      *
      * @return A JSON array containing all session records.
      */
-    public String readSessionTable() {
+    public synchronized String readSessionTable() {
         JSONArray jsonArray = new JSONArray();
-        try {
-            conn = DriverManager.getConnection(connectionURL);
-            Statement stmtRead = conn.createStatement();
-            ResultSet rs = stmtRead.executeQuery(READ_SESSION_SQL);
-            
+        try (ResultSet rs = prepare(READ_SESSION_SQL).executeQuery()) {
             while (rs.next()) {
                 JSONObject jsonObject = new JSONObject();
                 jsonObject.put("date", rs.getString("date"));
@@ -184,11 +478,11 @@ public class DataHandler {
                 jsonObject.put("gamesplayed", rs.getInt("gamesplayed"));
                 jsonArray.put(jsonObject);
             }
-            
-            stmtRead.close();
-            conn.close();
         } catch (SQLException e) {
-           e.printStackTrace();
+            e.printStackTrace();
+            close();
+        } finally {
+            release();
         }
         return jsonArray.toString();
     }
@@ -199,67 +493,130 @@ public class DataHandler {
      * @param date The date for which to retrieve session data.
      * @return A JSON object containing session data for that date.
      */
-    public String readSessionTableByDate(String date) {
+    public synchronized String readSessionTableByDate(String date) {
         JSONObject jsonObject = new JSONObject();
         try {
-           conn = DriverManager.getConnection(connectionURL);
-           PreparedStatement pstmtRead = conn.prepareStatement(READ_SESSION_BY_DATE_SQL);
-           pstmtRead.setString(1, date);
-           ResultSet rs = pstmtRead.executeQuery();
-
-           while (rs.next()) {
-               jsonObject.put("date", rs.getString("date"));
-               jsonObject.put("duration", rs.getInt("duration"));
-               jsonObject.put("gamesplayed", rs.getInt("gamesplayed"));
-           }
-
-           pstmtRead.close();
-           conn.close();
-       } catch (SQLException e) {
-           e.printStackTrace();
-       }
-       return jsonObject.toString(); 
-   }
-
-   /**
-    * Creates the session table in the database if it does not already exist.
-    */
-   public void createSessionTable() {
-       try {
-           conn = DriverManager.getConnection(connectionURL);
-           PreparedStatement pstmtCreate = conn.prepareStatement(CREATE_SESSION_TABLE_SQL);
-           pstmtCreate.executeUpdate(); // Execute creation
-           pstmtCreate.close(); 
-           conn.close(); 
-       } catch (SQLException e) { 
-           e.printStackTrace(); 
-       }
-   }
-
-   /**
-    * Inserts or updates session data with total duration for today into the session table.
-    *
-    * @param gameDuration The total duration of games played during this session.
-    * @param gamesPlayed Number of games played during this session.
-    */
-   public void insertSessionTable(int gameDuration, int gamesPlayed) { 
-       try { 
-           conn = DriverManager.getConnection(connectionURL); 
-           PreparedStatement pstmtInsert = conn.prepareStatement(INSERT_SESSION_SQL); 
-
-           LocalDateTime currentTime = LocalDateTime.now(); 
-           DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd"); 
-           String formattedDateTime = currentTime.format(formatter); 
-
-           pstmtInsert.setString(1, formattedDateTime); 
-           pstmtInsert.setInt(2, gameDuration); 
-           pstmtInsert.setInt(3, gamesPlayed); 
-           pstmtInsert.executeUpdate(); 
-
-           pstmtInsert.close(); 
-           conn.close(); 
-       } catch (SQLException e) { 
-           e.printStackTrace(); 
-       } 
-   }
-}
\ No newline at end of file
+            PreparedStatement pstmtRead = prepare(READ_SESSION_BY_DATE_SQL);
+            pstmtRead.setString(1, date);
+            try (ResultSet rs = pstmtRead.executeQuery()) {
+                while (rs.next()) {
+                    jsonObject.put("date", rs.getString("date"));
+                    jsonObject.put("duration", rs.getInt("duration"));
+                    jsonObject.put("gamesplayed", rs.getInt("gamesplayed"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close();
+        } finally {
+            release();
+        }
+        return jsonObject.toString();
+    }
+
+    /**
+     * Creates the session table in the database if it does not already exist.
+     */
+    public void createSessionTable() {
+        executeSchema(CREATE_SESSION_TABLE_SQL);
+    }
+
+    /**
+     * Inserts or updates session data with total duration for today into the session table.
+     *
+     * @param gameDuration The total duration of games played during this session.
+     * @param gamesPlayed Number of games played during this session.
+     */
+    public synchronized void insertSessionTable(int gameDuration, int gamesPlayed) {
+        try {
+            insertSession(LocalDateTime.now(), gameDuration, gamesPlayed);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Inserts or updates the session data of a day.
+     *
+     * @param time         A time on the day of the session.
+     * @param gameDuration The total duration of games played that day.
+     * @param gamesPlayed  Number of games played that day.
+     * @throws SQLException if the session data cannot be stored.
+     */
+    private void insertSession(LocalDateTime time, int gameDuration, int gamesPlayed) throws SQLException {
+        PreparedStatement pstmtInsert = prepare(INSERT_SESSION_SQL);
+        pstmtInsert.setString(1, time.format(DATE_FORMAT));
+        pstmtInsert.setInt(2, gameDuration);
+        pstmtInsert.setInt(3, gamesPlayed);
+        pstmtInsert.executeUpdate();
+    }
+
+    /**
+     * Creates the replay table in the database if it does not already exist.
+     */
+    public void createReplayTable() {
+        executeSchema(CREATE_REPLAY_TABLE_SQL);
+    }
+
+    /**
+     * Inserts the replay of a game, stored alongside its game history row.
+     *
+     * @param gameId The ID of the game history row, as returned by insertGameTable.
+     * @param seed The seed of the random number generator used by the game.
+     * @param replay The encoded replay of the game.
+     */
+    public synchronized void insertReplayTable(long gameId, long seed, byte[] replay) {
+        try {
+            insertReplay(gameId, seed, replay);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Inserts the replay of a game.
+     *
+     * @param gameId The ID of the game history row.
+     * @param seed   The seed of the random number generator used by the game.
+     * @param replay The encoded replay of the game.
+     * @throws SQLException if the replay cannot be stored.
+     */
+    private void insertReplay(long gameId, long seed, byte[] replay) throws SQLException {
+        PreparedStatement pstmtInsert = prepare(INSERT_REPLAY_SQL);
+        pstmtInsert.setLong(1, gameId);
+        pstmtInsert.setLong(2, seed);
+        pstmtInsert.setBytes(3, replay);
+        pstmtInsert.executeUpdate();
+    }
+
+    /**
+     * Reads the replay of a game.
+     *
+     * @param gameId The ID of the game history row.
+     * @return The encoded replay, or null if the game has no replay.
+     */
+    public synchronized byte[] readReplay(long gameId) {
+        byte[] replay = null;
+        try {
+            PreparedStatement pstmtRead = prepare(READ_REPLAY_SQL);
+            pstmtRead.setLong(1, gameId);
+            try (ResultSet rs = pstmtRead.executeQuery()) {
+                if (rs.next()) {
+                    replay = rs.getBytes("replay");
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            close();
+        } finally {
+            release();
+        }
+        return replay;
+    }
+}
@@ -0,0 +1,111 @@
+package org.snake.database;
+
+import java.time.LocalDateTime;
+
+/**
+ * The result of a finished game, waiting to be stored: the game history row,
+ * its replay and the totals of the session it belongs to.
+ *
+ * Results are created when a game ends and stored later by a ResultWriter, so
+ * they carry the time the game finished rather than taking the time they are
+ * written. A result is immutable and can be handed between threads.
+ */
+public class GameResult {
+
+    private final LocalDateTime finishedAt;
+    private final int gameDuration;
+    private final int score;
+    private final int sessionDuration;
+    private final int gamesPlayed;
+    private final long seed;
+    private final byte[] replay;
+
+    /**
+     * Constructs a GameResult.
+     *
+     * @param finishedAt      The time the game finished.
+     * @param gameDuration    The duration of the game in seconds.
+     * @param score           The score achieved in the game.
+     * @param sessionDuration The total duration of the games played that day,
+     *                        including this one.
+     * @param gamesPlayed     The number of games played that day, including this
+     *                        one.
+     * @param seed            The seed of the random number generator used by the
+     *                        game.
+     * @param replay          The encoded replay of the game, which must not be
+     *                        changed afterwards.
+     */
+    public GameResult(LocalDateTime finishedAt, int gameDuration, int score, int sessionDuration, int gamesPlayed,
+            long seed, byte[] replay) {
+        this.finishedAt = finishedAt;
+        this.gameDuration = gameDuration;
+        this.score = score;
+        this.sessionDuration = sessionDuration;
+        this.gamesPlayed = gamesPlayed;
+        this.seed = seed;
+        this.replay = replay;
+    }
+
+    /**
+     * Retrieves the time the game finished.
+     *
+     * @return The time the game finished.
+     */
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Retrieves the duration of the game.
+     *
+     * @return The duration in seconds.
+     */
+    public int getGameDuration() {
+        return gameDuration;
+    }
+
+    /**
+     * Retrieves the score achieved in the game.
+     *
+     * @return The score.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Retrieves the total duration of the games played that day.
+     *
+     * @return The duration in seconds.
+     */
+    public int getSessionDuration() {
+        return sessionDuration;
+    }
+
+    /**
+     * Retrieves the number of games played that day.
+     *
+     * @return The number of games.
+     */
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    /**
+     * Retrieves the seed of the random number generator used by the game.
+     *
+     * @return The seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Retrieves the encoded replay of the game.
+     *
+     * @return The replay, which must not be changed.
+     */
+    public byte[] getReplay() {
+        return replay;
+    }
+}
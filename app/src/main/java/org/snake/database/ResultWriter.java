@@ -0,0 +1,229 @@
+package org.snake.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores the results of finished games in the background, so ending a game
+ * only costs adding its result to a queue.
+ *
+ * The first result added to an empty queue starts a drain on a small pool of
+ * platform threads shared by every writer. The drain stores everything that is
+ * waiting, up to MAX_BATCH results, in one transaction, and keeps going until
+ * the queue is empty; at most one drain of a writer runs at a time. Results are
+ * stored in the order they were submitted. A batch that fails is tried again,
+ * waiting longer each time, and every later result waits behind it until it is
+ * stored, so once a result is in the database so is every result before it.
+ *
+ * Results are only given up when the writer is closed while the database keeps
+ * failing, so a broken database cannot hold up the exit of the JVM. The failing
+ * batch is tried MAX_ATTEMPTS times, then it and every later result are given
+ * up and reported, so no later result is ever stored without an earlier one.
+ *
+ * The pool is shared and bounded, so a process with thousands of writers, such
+ * as the game server, only has THREADS threads storing results. They are
+ * platform threads because the JDBC driver calls native code inside the
+ * synchronized methods of a DataHandler, which would pin the carrier thread of
+ * a virtual thread and hold up the virtual threads of the game sessions. A
+ * shutdown hook closes every writer that is still open when the JVM exits,
+ * storing the results that are still waiting.
+ */
+public class ResultWriter {
+
+    private static final int THREADS = 4; // Platform threads storing results, shared by every writer
+    private static final int MAX_BATCH = 64; // Most results stored in one transaction
+    private static final int MAX_ATTEMPTS = 3; // Times a batch is tried after closing before it is given up
+    private static final long FIRST_RETRY_DELAY = 50; // Milliseconds before a failed batch is tried again
+    private static final long MAX_RETRY_DELAY = 2000; // Longest wait between attempts, the wait doubles up to it
+    private static final ScheduledExecutorService EXECUTOR = Executors.newScheduledThreadPool(THREADS,
+            Thread.ofPlatform().name("result-writer-", 0).daemon().factory());
+    private static final Set<ResultWriter> OPEN_WRITERS = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ResultWriter::closeAll, "result-writer-shutdown"));
+    }
+
+    private final DataHandler dataHandler;
+    private final LinkedBlockingQueue<GameResult> queue = new LinkedBlockingQueue<>();
+    private final Object lock = new Object();
+    private long submitted; // Guarded by lock
+    private long processed; // Results stored or given up, guarded by lock
+    private boolean closed; // Guarded by lock
+    private boolean draining; // Whether a drain is running or waiting to retry, guarded by lock
+    private ScheduledFuture<?> retry; // The drain waiting to try a failed batch again, guarded by lock
+    private volatile boolean givenUp; // Set once results have been given up, after which none are stored
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong(); // Results given up
+
+    // Only used by the drain, which runs one at a time
+    private List<GameResult> batch = new ArrayList<>();
+    private int attempts;
+    private long retryDelay = FIRST_RETRY_DELAY;
+
+    /**
+     * Constructs a ResultWriter.
+     *
+     * @param dataHandler The DataHandler that stores the results.
+     */
+    public ResultWriter(DataHandler dataHandler) {
+        this.dataHandler = dataHandler;
+    }
+
+    /**
+     * Adds the result of a game to the queue, starting a drain if none is
+     * running. Once the writer is closed, the result is stored before this
+     * returns, after the results queued before it.
+     *
+     * @param result The result to store.
+     */
+    public void submit(GameResult result) {
+        boolean wait;
+        synchronized (lock) {
+            if (submitted == 0 && !closed) {
+                OPEN_WRITERS.add(this);
+            }
+            submitted++;
+            queue.add(result);
+            if (!draining) {
+                draining = true;
+                EXECUTOR.execute(this::drain);
+            }
+            wait = closed;
+        }
+        if (wait) {
+            flush();
+        }
+    }
+
+    /**
+     * Waits until every result submitted so far has been stored or given up.
+     */
+    public void flush() {
+        synchronized (lock) {
+            long target = submitted;
+            while (processed < target) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether any submitted results have not been stored yet.
+     *
+     * @return A boolean indicating whether results are waiting to be stored.
+     */
+    public boolean hasPending() {
+        synchronized (lock) {
+            return processed < submitted;
+        }
+    }
+
+    /**
+     * Stores the results that are waiting. Results submitted afterwards are
+     * stored before submit() returns. If the database keeps failing, the waiting
+     * results are given up.
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (retry != null && retry.cancel(false)) {
+                retry = null;
+                EXECUTOR.execute(this::drain); // Tries the failed batch again now rather than after the wait
+            }
+        }
+        flush();
+        OPEN_WRITERS.remove(this);
+    }
+
+    /**
+     * Closes every writer that is still open. Run by the shutdown hook.
+     */
+    private static void closeAll() {
+        for (ResultWriter writer : OPEN_WRITERS) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Retrieves the number of transactions committed so far.
+     *
+     * @return The number of batches stored.
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Retrieves the number of results given up because the writer was closed
+     * while the database kept failing.
+     *
+     * @return The number of results lost.
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Stores batches of results until the queue is empty. A batch that fails is
+     * kept, and the drain is scheduled to try it again after a wait instead of
+     * holding a thread of the pool.
+     */
+    private void drain() {
+        while (true) {
+            if (batch.isEmpty()) {
+                synchronized (lock) {
+                    retry = null;
+                    if (queue.isEmpty()) {
+                        draining = false; // The next submit starts a new drain
+                        return;
+                    }
+                }
+                queue.drainTo(batch, MAX_BATCH);
+            }
+
+            if (!givenUp && !dataHandler.storeResults(batch)) {
+                synchronized (lock) {
+                    attempts++;
+                    if (!closed || attempts < MAX_ATTEMPTS) {
+                        retry = EXECUTOR.schedule(this::drain, closed ? FIRST_RETRY_DELAY : retryDelay,
+                                TimeUnit.MILLISECONDS);
+                        retryDelay = Math.min(2 * retryDelay, MAX_RETRY_DELAY);
+                        return; // The batch and every later result wait for the next attempt
+                    }
+                }
+                givenUp = true;
+            }
+
+            if (givenUp) {
+                failures.addAndGet(batch.size());
+                new SQLException("Gave up storing the results of " + batch.size() + " games").printStackTrace();
+            } else {
+                batches.incrementAndGet();
+                attempts = 0;
+                retryDelay = FIRST_RETRY_DELAY;
+            }
+            synchronized (lock) {
+                processed += batch.size();
+                lock.notifyAll();
+            }
+            batch = new ArrayList<>(); // Not reused, the DataHandler may keep it
+        }
+    }
+}
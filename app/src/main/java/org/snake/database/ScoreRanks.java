@@ -0,0 +1,118 @@
+package org.snake.database;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Every score in the game history, counted in a Fenwick tree so the rank of a
+ * score can be found without going through the games.
+ *
+ * Scores are usually small whole numbers, so each score below MAX_BUCKETS has
+ * its own bucket and the tree holds the number of games in each. Adding a game
+ * and counting the games with a higher score both touch O(log n) nodes, where n
+ * is the highest such score.
+ *
+ * The number of buckets is a power of two and doubles when a higher score is
+ * added. In a tree of 2^k buckets the last node covers every bucket, and the new
+ * nodes of a doubled tree only cover the new, empty buckets, so growing it only
+ * needs the old nodes copied and the last node set to the number of games.
+ *
+ * A board can hold up to GameEngine.MAX_CELLS cells, and the Hamiltonian
+ * autopilot fills it, so a bucket for every possible score could take hundreds
+ * of megabytes. The tree stops growing at MAX_BUCKETS instead, and higher scores,
+ * which take hours of play each, are counted in a sorted map of their distinct
+ * values. Counting the games above a score walks the high scores above it.
+ *
+ * Not thread safe; a DataHandler only uses it while holding its own lock.
+ */
+public class ScoreRanks {
+
+    private static final int INITIAL_BUCKETS = 64; // Power of two
+    private static final int MAX_BUCKETS = 1 << 16; // Power of two, the tree then takes 512 KB
+
+    private long[] tree = new long[INITIAL_BUCKETS + 1]; // 1-based, bucket of score s is s + 1
+    private final TreeMap<Integer, Long> highScores = new TreeMap<>(); // Games per score of at least MAX_BUCKETS
+    private long highCount; // Games in highScores
+    private long count;
+
+    /**
+     * Adds the score of a game.
+     *
+     * @param score The score, which must not be negative.
+     */
+    public void add(int score) {
+        if (score < 0) {
+            throw new IllegalArgumentException("Score must not be negative: " + score);
+        }
+        if (score >= MAX_BUCKETS) {
+            highScores.merge(score, 1L, Long::sum);
+            highCount++;
+            count++;
+            return;
+        }
+        while (score + 1 > buckets()) {
+            int buckets = buckets();
+            tree = Arrays.copyOf(tree, 2 * buckets + 1);
+            tree[2 * buckets] = count - highCount; // Every game in the buckets
+        }
+        for (int i = score + 1; i < tree.length; i += i & -i) {
+            tree[i]++;
+        }
+        count++;
+    }
+
+    /**
+     * Retrieves the number of games with a higher score.
+     *
+     * @param score The score.
+     * @return The number of games that scored more.
+     */
+    public long countAbove(int score) {
+        if (score < 0) {
+            return count;
+        } else if (score >= MAX_BUCKETS) {
+            long above = 0;
+            for (Map.Entry<Integer, Long> entry : highScores.tailMap(score, false).entrySet()) {
+                above += entry.getValue();
+            }
+            return above;
+        } else if (score >= buckets()) {
+            return highCount; // Higher than every bucket
+        }
+        long atMost = 0; // Games with a score of at most the given score
+        for (int i = score + 1; i > 0; i -= i & -i) {
+            atMost += tree[i];
+        }
+        return count - atMost;
+    }
+
+    /**
+     * Retrieves the rank a score has among the games, where the highest score
+     * ranks first and equal scores share a rank.
+     *
+     * @param score The score.
+     * @return One more than the number of games that scored more.
+     */
+    public long rank(int score) {
+        return countAbove(score) + 1;
+    }
+
+    /**
+     * Retrieves the number of games added.
+     *
+     * @return The number of games.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Retrieves the number of buckets.
+     *
+     * @return The highest score the tree holds without growing, plus one.
+     */
+    private int buckets() {
+        return tree.length - 1;
+    }
+}
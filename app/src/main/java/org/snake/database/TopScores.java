@@ -0,0 +1,130 @@
+package org.snake.database;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The highest scores in the game history, kept in memory in the order the
+ * leaderboard shows them: highest score first, and the earlier game first when
+ * scores are equal.
+ *
+ * The entries are held in parallel arrays of a fixed capacity. Adding a game
+ * finds its place with a binary search and shifts the lower entries down, so it
+ * costs O(log K) comparisons and at most K moves, and a game that does not make
+ * the list costs one comparison. Reading the list copies K entries, however
+ * long the game history is.
+ *
+ * Not thread safe; a DataHandler only uses it while holding its own lock.
+ */
+public class TopScores {
+
+    private final String[] timestamps;
+    private final int[] durations;
+    private final int[] scores;
+    private int size;
+
+    /**
+     * Constructs an empty TopScores.
+     *
+     * @param capacity The most entries kept.
+     */
+    public TopScores(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.timestamps = new String[capacity];
+        this.durations = new int[capacity];
+        this.scores = new int[capacity];
+    }
+
+    /**
+     * Adds a game, if its score is high enough to be kept. Games must be added in
+     * the order they were played, so that a later game with an equal score goes
+     * after the earlier one.
+     *
+     * @param timestamp The time the game finished.
+     * @param duration  The duration of the game in seconds.
+     * @param score     The score of the game.
+     * @return A boolean indicating whether the game was kept.
+     */
+    public boolean add(String timestamp, int duration, int score) {
+        int capacity = scores.length;
+        if (size == capacity && (capacity == 0 || score <= scores[size - 1])) {
+            return false;
+        }
+
+        // First entry with a lower score, so equal scores keep their order
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (scores[middle] >= score) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int moved = Math.min(size, capacity - 1) - low; // The last entry drops off a full list
+        System.arraycopy(timestamps, low, timestamps, low + 1, moved);
+        System.arraycopy(durations, low, durations, low + 1, moved);
+        System.arraycopy(scores, low, scores, low + 1, moved);
+        timestamps[low] = timestamp;
+        durations[low] = duration;
+        scores[low] = score;
+        if (size < capacity) {
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the most entries kept.
+     *
+     * @return The capacity.
+     */
+    public int getCapacity() {
+        return scores.length;
+    }
+
+    /**
+     * Retrieves the number of entries kept.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the score of an entry.
+     *
+     * @param index The position of the entry, 0 for the highest score.
+     * @return The score.
+     */
+    public int getScore(int index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("No entry at " + index);
+        }
+        return scores[index];
+    }
+
+    /**
+     * Retrieves the highest entries as the leaderboard rows read from the game
+     * history table.
+     *
+     * @param count The number of entries to retrieve.
+     * @return A JSON array of at most count entries, highest score first.
+     */
+    public JSONArray toJSONArray(int count) {
+        JSONArray jsonArray = new JSONArray();
+        for (int i = 0; i < Math.min(count, size); i++) {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put("timestamp", timestamps[i]);
+            jsonObject.put("duration", durations[i]);
+            jsonObject.put("score", scores[i]);
+            jsonArray.put(jsonObject);
+        }
+        return jsonArray;
+    }
+}
@@ -0,0 +1,520 @@
+package org.snake.engine;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+import org.snake.util.ForkableRandom;
+
+/**
+ * Runs an arena: many snakes moving at the same time on one large board, with
+ * food scattered over it.
+ *
+ * Every snake moves on every tick, so collisions are resolved as if all snakes
+ * moved at once. A tick runs in phases, each spread over the cores of a
+ * ForkJoinPool, with the snakes split into ranges:
+ *
+ * 1. Propose: every snake works out the cell its head moves into and claims it.
+ *    A cell claimed by more than one snake is marked as contested.
+ * 2. Resolve: a snake dies if its cell is a wall, is contested (head-to-head),
+ *    or is covered by any snake (head-to-body). The tail of a snake that does
+ *    not eat this tick moves away, so following a tail is safe.
+ * 3. Vacate: every snake that does not grow removes its tail, and the bodies of
+ *    the snakes that died are removed from the board.
+ * 4. Commit: every surviving snake moves its head into its cell and eats the
+ *    food there.
+ *
+ * The board is a shared occupancy grid holding the number of the snake covering
+ * each cell. Within a phase every snake only writes the cells it owns, and the
+ * outcome of a phase does not depend on the order the snakes are handled in, so
+ * an arena plays out the same on any number of threads. Food is replaced and
+ * dead snakes are put back on the board after the phases, one at a time, so the
+ * random numbers are drawn in the same order too.
+ */
+public class ArenaEngine {
+
+    private static final int SNAKES_PER_TASK = 64;
+    private static final int CONTESTED = -1; // Claim of a cell that more than one head moves into
+    private static final int SPAWN_ATTEMPTS = 100;
+
+    private final int columns;
+    private final int rows;
+    private final int numberOfSnakes;
+    private final int snakeLength;
+    private final int numberOfFood;
+    private final ForkJoinPool pool;
+    private final ForkableRandom random;
+
+    // One entry per cell
+    private final int[] owner; // Number of the snake covering the cell plus one, or 0 when free
+    private final boolean[] food;
+    private final AtomicIntegerArray claims; // Number of the snake moving into the cell plus one, or CONTESTED
+
+    // One entry per snake
+    private final Snake[] snakes;
+    private final boolean[] alive;
+    private final int[] target; // Cell the head moves into this tick
+    private final boolean[] growing;
+    private final int[] scores;
+    private final StepResult[] results;
+
+    private char[] directions;
+    private int foodCount;
+    private long ticks;
+    private long deaths;
+
+    /**
+     * Constructs an ArenaEngine and places every snake and the food at random.
+     *
+     * @param columns        The number of columns on the board, including the walls.
+     * @param rows           The number of rows on the board, including the walls.
+     * @param numberOfSnakes The number of snakes in the arena.
+     * @param snakeLength    The initial length of each snake.
+     * @param numberOfFood   The number of food cells kept on the board.
+     * @param seed           The seed of the random number generator.
+     * @param pool           The pool the phases of each tick run on.
+     */
+    public ArenaEngine(int columns, int rows, int numberOfSnakes, int snakeLength, int numberOfFood, long seed,
+            ForkJoinPool pool) {
+        if (snakeLength > rows - 2) {
+            throw new IllegalArgumentException("Snake length " + snakeLength + " does not fit " + rows + " rows");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.numberOfSnakes = numberOfSnakes;
+        this.snakeLength = snakeLength;
+        this.numberOfFood = numberOfFood;
+        this.pool = pool;
+        this.random = new ForkableRandom(seed);
+
+        owner = new int[columns * rows];
+        food = new boolean[columns * rows];
+        claims = new AtomicIntegerArray(columns * rows);
+
+        snakes = new Snake[numberOfSnakes];
+        alive = new boolean[numberOfSnakes];
+        target = new int[numberOfSnakes];
+        growing = new boolean[numberOfSnakes];
+        scores = new int[numberOfSnakes];
+        results = new StepResult[numberOfSnakes];
+
+        for (int i = 0; i < numberOfSnakes; i++) {
+            spawn(i);
+        }
+        placeFood();
+    }
+
+    /**
+     * Advances the arena by one tick, moving every live snake in its direction.
+     * Snakes that died are put back on the board at random after the tick, with
+     * their score reset.
+     *
+     * @param directions The direction of every snake ('U', 'D', 'L', 'R'),
+     *                   indexed by the number of the snake. The directions of
+     *                   dead snakes are ignored.
+     */
+    public void step(char[] directions) {
+        if (directions.length < numberOfSnakes) {
+            throw new IllegalArgumentException("Expected " + numberOfSnakes + " directions: " + directions.length);
+        }
+        this.directions = directions;
+        ticks++;
+
+        pool.invoke(new PhaseTask(Phase.PROPOSE, 0, numberOfSnakes));
+        pool.invoke(new PhaseTask(Phase.RESOLVE, 0, numberOfSnakes));
+        pool.invoke(new PhaseTask(Phase.VACATE, 0, numberOfSnakes));
+        pool.invoke(new PhaseTask(Phase.COMMIT, 0, numberOfSnakes));
+
+        // Replace the dead snakes and the eaten food, in order so the random draws do not depend on the threads
+        for (int i = 0; i < numberOfSnakes; i++) {
+            if (results[i] == StepResult.ATE_FOOD) {
+                foodCount--;
+            } else if (results[i] != null && results[i].isGameOver()) {
+                deaths++;
+            }
+            if (!alive[i]) {
+                spawn(i);
+            }
+        }
+        placeFood();
+        this.directions = null;
+    }
+
+    /**
+     * Works out the cell the head of a snake moves into and claims it.
+     *
+     * @param i The number of the snake.
+     */
+    private void propose(int i) {
+        results[i] = null;
+        if (!alive[i]) {
+            return;
+        }
+        Snake snake = snakes[i];
+        int x = snake.getHeadX();
+        int y = snake.getHeadY();
+        switch (directions[i]) {
+            case 'U':
+                y--;
+                break;
+            case 'D':
+                y++;
+                break;
+            case 'L':
+                x--;
+                break;
+            case 'R':
+                x++;
+                break;
+        }
+        int cell = y * columns + x;
+        target[i] = cell;
+        growing[i] = food[cell];
+        if (!claims.compareAndSet(cell, 0, i + 1)) {
+            claims.set(cell, CONTESTED);
+        }
+    }
+
+    /**
+     * Decides whether a snake survives the move into its cell.
+     *
+     * @param i The number of the snake.
+     */
+    private void resolve(int i) {
+        if (!alive[i]) {
+            return;
+        }
+        int cell = target[i];
+        int x = cell % columns;
+        int y = cell / columns;
+        if (x <= 0 || y <= 0 || x >= columns - 1 || y >= rows - 1) {
+            results[i] = StepResult.HIT_WALL;
+        } else if (claims.get(cell) == CONTESTED) {
+            results[i] = StepResult.HIT_BODY; // Head-to-head
+        } else if (owner[cell] != 0 && !isVacated(owner[cell] - 1, cell)) {
+            results[i] = StepResult.HIT_BODY;
+        } else {
+            results[i] = growing[i] ? StepResult.ATE_FOOD : StepResult.MOVED;
+        }
+    }
+
+    /**
+     * Checks whether a cell covered by a snake is freed during this tick, because
+     * it is the tail of the snake and the snake does not grow.
+     *
+     * @param j    The number of the snake covering the cell.
+     * @param cell The cell (y * columns + x).
+     * @return A boolean indicating whether the cell is freed.
+     */
+    private boolean isVacated(int j, int cell) {
+        int tail = snakes[j].getTail();
+        return !growing[j] && cell == Cell.unpackY(tail) * columns + Cell.unpackX(tail);
+    }
+
+    /**
+     * Frees the cells a snake leaves: its tail, or its whole body if it died.
+     * Also clears the claim on its cell for the next tick.
+     *
+     * @param i The number of the snake.
+     */
+    private void vacate(int i) {
+        if (!alive[i]) {
+            return;
+        }
+        claims.set(target[i], 0);
+        if (results[i].isGameOver()) {
+            removeSnake(i);
+        } else if (!growing[i]) {
+            int tail = snakes[i].removeTail();
+            owner[Cell.unpackY(tail) * columns + Cell.unpackX(tail)] = 0;
+        }
+    }
+
+    /**
+     * Moves the head of a surviving snake into its cell and eats the food there.
+     * The snakes that died were already taken off the board when vacating.
+     *
+     * @param i The number of the snake.
+     */
+    private void commit(int i) {
+        if (!alive[i]) {
+            return;
+        }
+        int cell = target[i];
+        snakes[i].pushHead(cell % columns, cell / columns);
+        owner[cell] = i + 1;
+        if (growing[i]) {
+            food[cell] = false;
+            scores[i]++;
+        }
+    }
+
+    /**
+     * Puts a snake on a random free part of the board, with its body extending
+     * downwards from the head like in GameEngine. If no free place is found, the
+     * snake stays dead and is tried again after the next tick.
+     *
+     * @param i The number of the snake.
+     */
+    private void spawn(int i) {
+        alive[i] = false;
+        for (int attempt = 0; attempt < SPAWN_ATTEMPTS; attempt++) {
+            int x = random.nextInt(columns - 2) + 1;
+            int y = random.nextInt(rows - 1 - snakeLength) + 1;
+            if (placeSnake(i, x, y)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Puts a snake on the board with its head at a given cell and its body
+     * extending downwards, if all those cells are free, and resets its score.
+     * A snake that is on the board must be removed with removeSnake() first.
+     *
+     * @param i The number of the snake.
+     * @param x The x-coordinate of the head.
+     * @param y The y-coordinate of the head.
+     * @return A boolean indicating whether the snake was placed.
+     */
+    public boolean placeSnake(int i, int x, int y) {
+        for (int k = 0; k < snakeLength; k++) {
+            if (isOccupied(x, y + k) || food[(y + k) * columns + x]) {
+                return false;
+            }
+        }
+        snakes[i] = new Snake(x, y, snakeLength);
+        for (int k = 0; k < snakeLength; k++) {
+            owner[(y + k) * columns + x] = i + 1;
+        }
+        alive[i] = true;
+        scores[i] = 0;
+        return true;
+    }
+
+    /**
+     * Takes a snake off the board. It is put back at random after the next tick.
+     *
+     * @param i The number of the snake.
+     */
+    public void removeSnake(int i) {
+        if (!alive[i]) {
+            return;
+        }
+        Snake snake = snakes[i];
+        for (int k = 0; k < snake.getSnakeLength(); k++) {
+            int segment = snake.getSegment(k);
+            owner[Cell.unpackY(segment) * columns + Cell.unpackX(segment)] = 0;
+        }
+        alive[i] = false;
+    }
+
+    /**
+     * Places food on random free cells until there are numberOfFood of them. The
+     * board is expected to be mostly free, so cells are picked until a free one
+     * is found rather than keeping an index of the free cells.
+     */
+    private void placeFood() {
+        int attempts = (numberOfFood - foodCount) * SPAWN_ATTEMPTS;
+        while (foodCount < numberOfFood && attempts-- > 0) {
+            placeFood(random.nextInt(columns - 2) + 1, random.nextInt(rows - 2) + 1);
+        }
+    }
+
+    /**
+     * Puts food on a cell inside the walls if the cell is free.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the food was placed.
+     */
+    public boolean placeFood(int x, int y) {
+        if (isOccupied(x, y) || food[y * columns + x]) {
+            return false;
+        }
+        food[y * columns + x] = true;
+        foodCount++;
+        return true;
+    }
+
+    /**
+     * Retrieves the number of columns on the board.
+     *
+     * @return The number of columns, including the walls.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Retrieves the number of rows on the board.
+     *
+     * @return The number of rows, including the walls.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of snakes in the arena.
+     *
+     * @return The number of snakes.
+     */
+    public int getNumberOfSnakes() {
+        return numberOfSnakes;
+    }
+
+    /**
+     * Retrieves a snake.
+     *
+     * @param i The number of the snake.
+     * @return The Snake, or null if it has never been placed.
+     */
+    public Snake getSnake(int i) {
+        return snakes[i];
+    }
+
+    /**
+     * Checks if a snake is on the board.
+     *
+     * @param i The number of the snake.
+     * @return A boolean indicating whether the snake is alive.
+     */
+    public boolean isAlive(int i) {
+        return alive[i];
+    }
+
+    /**
+     * Retrieves the score of a snake since it was last placed.
+     *
+     * @param i The number of the snake.
+     * @return The number of food cells the snake has eaten.
+     */
+    public int getScore(int i) {
+        return scores[i];
+    }
+
+    /**
+     * Retrieves the outcome of the last tick for a snake. Head-to-head
+     * collisions are reported as HIT_BODY.
+     *
+     * @param i The number of the snake.
+     * @return The outcome, or null if the snake was not on the board.
+     */
+    public StepResult getResult(int i) {
+        return results[i];
+    }
+
+    /**
+     * Retrieves the number of the snake covering a cell.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return The number of the snake, or -1 if no snake covers the cell.
+     */
+    public int getOwner(int x, int y) {
+        return owner[y * columns + x] - 1;
+    }
+
+    /**
+     * Checks whether a cell is a wall or covered by a snake. Cells outside the
+     * board are treated as occupied.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return x <= 0 || y <= 0 || x >= columns - 1 || y >= rows - 1 || owner[y * columns + x] != 0;
+    }
+
+    /**
+     * Checks whether there is food on a cell.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell holds food.
+     */
+    public boolean isFood(int x, int y) {
+        return food[y * columns + x];
+    }
+
+    /**
+     * Retrieves the number of food cells on the board.
+     *
+     * @return The number of food cells.
+     */
+    public int getFoodCount() {
+        return foodCount;
+    }
+
+    /**
+     * Retrieves the number of ticks played.
+     *
+     * @return The number of calls to step().
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Retrieves the number of times a snake has died.
+     *
+     * @return The number of deaths.
+     */
+    public long getDeaths() {
+        return deaths;
+    }
+
+    /**
+     * The phases of a tick.
+     */
+    private enum Phase {
+        PROPOSE,
+        RESOLVE,
+        VACATE,
+        COMMIT
+    }
+
+    /**
+     * A task running one phase for a range of snakes, splitting itself in two
+     * while the range is larger than SNAKES_PER_TASK.
+     */
+    private class PhaseTask extends RecursiveAction {
+        private final Phase phase;
+        private final int from;
+        private final int to;
+
+        PhaseTask(Phase phase, int from, int to) {
+            this.phase = phase;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SNAKES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PhaseTask(phase, from, middle), new PhaseTask(phase, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                switch (phase) {
+                    case PROPOSE:
+                        propose(i);
+                        break;
+                    case RESOLVE:
+                        resolve(i);
+                        break;
+                    case VACATE:
+                        vacate(i);
+                        break;
+                    case COMMIT:
+                        commit(i);
+                        break;
+                }
+            }
+        }
+    }
+}
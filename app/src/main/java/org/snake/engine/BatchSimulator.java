@@ -0,0 +1,140 @@
+package org.snake.engine;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import org.snake.util.ForkableRandom;
+
+/**
+ * Plays many independent headless games in parallel on a ForkJoinPool and
+ * aggregates their results.
+ *
+ * The range of games is split recursively until each task holds a small number
+ * of games. Every game gets its own Random, seeded from the batch seed and the
+ * index of the game, so the results of a batch do not depend on how many
+ * threads played it.
+ */
+public class BatchSimulator {
+
+    private static final int GAMES_PER_TASK = 8;
+
+    private int numberOfColumns;
+    private int snakeLength;
+    private long maxTicks;
+    private long seed;
+    private Supplier<DirectionPolicy> policyFactory;
+
+    /**
+     * Constructs a BatchSimulator.
+     *
+     * @param numberOfColumns The number of columns (and rows) on the board.
+     * @param snakeLength     The initial length of the snake.
+     * @param maxTicks        The number of ticks after which a game is stopped.
+     * @param seed            The seed the seed of every game is derived from.
+     * @param policyFactory   Creates the policy that steers the snake. A new
+     *                        policy is created for each task, so policies do not
+     *                        have to be thread safe.
+     */
+    public BatchSimulator(int numberOfColumns, int snakeLength, long maxTicks, long seed,
+            Supplier<DirectionPolicy> policyFactory) {
+        this.numberOfColumns = numberOfColumns;
+        this.snakeLength = snakeLength;
+        this.maxTicks = maxTicks;
+        this.seed = seed;
+        this.policyFactory = policyFactory;
+    }
+
+    /**
+     * Plays a number of games on the given pool and waits for them to finish.
+     *
+     * @param numberOfGames The number of games to play.
+     * @param pool          The pool to play the games on.
+     * @return The aggregated statistics of all games.
+     */
+    public BatchStatistics run(int numberOfGames, ForkJoinPool pool) {
+        return pool.invoke(new GameRangeTask(0, numberOfGames));
+    }
+
+    /**
+     * Plays a single game until it ends or reaches the tick limit.
+     *
+     * @param gameIndex The index of the game in the batch, used to derive its seed.
+     * @param policy    The policy that steers the snake.
+     * @param engine    An engine to reuse for the game, or null to create one.
+     * @param statistics The statistics to add the result to.
+     * @return The engine used, so it can be reused for the next game.
+     */
+    private GameEngine playGame(int gameIndex, DirectionPolicy policy, GameEngine engine,
+            BatchStatistics statistics) {
+        Random random = new ForkableRandom(gameSeed(seed, gameIndex));
+        if (engine == null) {
+            engine = new GameEngine(numberOfColumns, snakeLength, random);
+        } else {
+            engine.setRandom(random);
+        }
+        engine.reset();
+
+        StepResult result = null;
+        long ticks = 0;
+        while (ticks < maxTicks) {
+            result = engine.step(policy.nextDirection(engine));
+            ticks++;
+            if (result.isGameOver()) {
+                break;
+            }
+        }
+
+        statistics.addGame(engine.getCurrentScore(), engine.getSnake().getSnakeLength(), ticks,
+                result != null && result.isGameOver() ? result : null);
+        return engine;
+    }
+
+    /**
+     * Derives the seed of a single game from the batch seed, mixing the bits so
+     * neighbouring games get unrelated random streams.
+     *
+     * @param seed      The seed of the batch.
+     * @param gameIndex The index of the game in the batch.
+     * @return The seed of the game.
+     */
+    public static long gameSeed(long seed, int gameIndex) {
+        long z = seed + (gameIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A task playing a range of games, splitting itself in two while the range
+     * is larger than GAMES_PER_TASK.
+     */
+    private class GameRangeTask extends RecursiveTask<BatchStatistics> {
+        private final int from;
+        private final int to;
+
+        GameRangeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BatchStatistics compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                BatchStatistics statistics = new BatchStatistics();
+                DirectionPolicy policy = policyFactory.get();
+                GameEngine engine = null;
+                for (int i = from; i < to; i++) {
+                    engine = playGame(i, policy, engine, statistics);
+                }
+                return statistics;
+            }
+
+            int middle = (from + to) >>> 1;
+            GameRangeTask left = new GameRangeTask(from, middle);
+            left.fork();
+            BatchStatistics right = new GameRangeTask(middle, to).compute();
+            return right.combine(left.join());
+        }
+    }
+}
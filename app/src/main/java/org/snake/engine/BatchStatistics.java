@@ -0,0 +1,187 @@
+package org.snake.engine;
+
+/**
+ * Aggregated results of a batch of headless games. Statistics from separate
+ * workers are merged with combine(), so each worker can collect its own
+ * results without any locking.
+ */
+public class BatchStatistics {
+
+    private int games;
+    private long totalScore;
+    private int minScore = Integer.MAX_VALUE;
+    private int maxScore;
+    private long totalLength;
+    private int maxLength;
+    private long totalTicks;
+    private long maxTicks;
+    private int wallCollisions;
+    private int bodyCollisions;
+    private int timeouts;
+
+    /**
+     * Adds the result of a single game to the statistics.
+     *
+     * @param score  The final score of the game.
+     * @param length The final length of the snake.
+     * @param ticks  The number of ticks the game lasted.
+     * @param ending The result of the last tick, or null if the game was stopped
+     *               after reaching the tick limit.
+     */
+    public void addGame(int score, int length, long ticks, StepResult ending) {
+        games++;
+        totalScore += score;
+        minScore = Math.min(minScore, score);
+        maxScore = Math.max(maxScore, score);
+        totalLength += length;
+        maxLength = Math.max(maxLength, length);
+        totalTicks += ticks;
+        maxTicks = Math.max(maxTicks, ticks);
+
+        if (ending == StepResult.HIT_WALL) {
+            wallCollisions++;
+        } else if (ending == StepResult.HIT_BODY) {
+            bodyCollisions++;
+        } else {
+            timeouts++;
+        }
+    }
+
+    /**
+     * Merges the statistics of another batch into this one.
+     *
+     * @param other The statistics to merge.
+     * @return This object, holding the combined statistics.
+     */
+    public BatchStatistics combine(BatchStatistics other) {
+        games += other.games;
+        totalScore += other.totalScore;
+        minScore = Math.min(minScore, other.minScore);
+        maxScore = Math.max(maxScore, other.maxScore);
+        totalLength += other.totalLength;
+        maxLength = Math.max(maxLength, other.maxLength);
+        totalTicks += other.totalTicks;
+        maxTicks = Math.max(maxTicks, other.maxTicks);
+        wallCollisions += other.wallCollisions;
+        bodyCollisions += other.bodyCollisions;
+        timeouts += other.timeouts;
+        return this;
+    }
+
+    /**
+     * Retrieves the number of games played.
+     *
+     * @return The number of games.
+     */
+    public int getGames() {
+        return games;
+    }
+
+    /**
+     * Retrieves the total score over all games.
+     *
+     * @return The sum of the scores.
+     */
+    public long getTotalScore() {
+        return totalScore;
+    }
+
+    /**
+     * Retrieves the lowest score of any game.
+     *
+     * @return The lowest score, or 0 if no games were played.
+     */
+    public int getMinScore() {
+        return games == 0 ? 0 : minScore;
+    }
+
+    /**
+     * Retrieves the highest score of any game.
+     *
+     * @return The highest score.
+     */
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * Retrieves the average score per game.
+     *
+     * @return The mean score, or 0 if no games were played.
+     */
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+
+    /**
+     * Retrieves the average final length of the snake.
+     *
+     * @return The mean length, or 0 if no games were played.
+     */
+    public double getMeanLength() {
+        return games == 0 ? 0 : (double) totalLength / games;
+    }
+
+    /**
+     * Retrieves the longest final length of the snake.
+     *
+     * @return The highest length.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Retrieves the total number of ticks played over all games.
+     *
+     * @return The sum of the ticks.
+     */
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    /**
+     * Retrieves the average number of ticks per game.
+     *
+     * @return The mean number of ticks, or 0 if no games were played.
+     */
+    public double getMeanTicks() {
+        return games == 0 ? 0 : (double) totalTicks / games;
+    }
+
+    /**
+     * Retrieves the number of ticks of the longest game.
+     *
+     * @return The highest number of ticks.
+     */
+    public long getMaxTicks() {
+        return maxTicks;
+    }
+
+    /**
+     * Retrieves the number of games that ended by hitting a wall.
+     *
+     * @return The number of wall collisions.
+     */
+    public int getWallCollisions() {
+        return wallCollisions;
+    }
+
+    /**
+     * Retrieves the number of games that ended by hitting the body.
+     *
+     * @return The number of body collisions.
+     */
+    public int getBodyCollisions() {
+        return bodyCollisions;
+    }
+
+    /**
+     * Retrieves the number of games stopped after reaching the tick limit.
+     *
+     * @return The number of games that timed out.
+     */
+    public int getTimeouts() {
+        return timeouts;
+    }
+}
@@ -0,0 +1,16 @@
+package org.snake.engine;
+
+/**
+ * Chooses the direction of the snake for the next tick of a game that is
+ * played without a keyboard, such as a batch run or an autopilot.
+ */
+public interface DirectionPolicy {
+
+    /**
+     * Chooses the direction to move the snake on the next tick.
+     *
+     * @param engine The engine holding the current state of the game.
+     * @return A character indicating the direction to move ('U', 'D', 'L', 'R').
+     */
+    char nextDirection(GameEngine engine);
+}
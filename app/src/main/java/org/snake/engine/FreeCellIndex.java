@@ -0,0 +1,159 @@
+package org.snake.engine;
+
+import java.util.Random;
+import org.snake.util.CopyOnWriteIntArray;
+
+/**
+ * Keeps the set of free cells inside the walls so a random free cell can be
+ * picked in constant time, no matter how full the board is.
+ *
+ * The free cells are held in a dense array. Removing a cell swaps the last
+ * entry into its place, and a second array maps each cell to its position in
+ * the dense array so both adding and removing are constant time. Both arrays
+ * are CopyOnWriteIntArrays so the index can be forked along with the rest of
+ * the game state.
+ *
+ * The index takes two ints for every cell of the board, which is why
+ * GameEngine limits boards to GameEngine.MAX_CELLS cells.
+ */
+public class FreeCellIndex {
+
+    private final int columns;
+    private final int rows;
+    private final CopyOnWriteIntArray cells; // Dense array of free cell indexes (y * columns + x)
+    private final CopyOnWriteIntArray positions; // Position of each cell in the dense array, or -1 when not free
+    private int size;
+
+    /**
+     * Constructs a FreeCellIndex with every cell inside the walls free.
+     *
+     * @param columns The number of columns on the board, including the walls.
+     * @param rows    The number of rows on the board, including the walls.
+     */
+    public FreeCellIndex(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = new CopyOnWriteIntArray(Math.max(0, (columns - 2) * (rows - 2)));
+        this.positions = new CopyOnWriteIntArray(columns * rows);
+        reset();
+    }
+
+    /**
+     * Constructs a fork of another index, sharing its arrays until either changes.
+     *
+     * @param other The index to fork.
+     */
+    private FreeCellIndex(FreeCellIndex other) {
+        this.columns = other.columns;
+        this.rows = other.rows;
+        this.cells = other.cells.fork();
+        this.positions = other.positions.fork();
+        this.size = other.size;
+    }
+
+    /**
+     * Creates an independent copy of this index without copying its arrays.
+     *
+     * @return The forked index.
+     */
+    public FreeCellIndex fork() {
+        return new FreeCellIndex(this);
+    }
+
+    /**
+     * Marks every cell inside the walls as free.
+     */
+    public void reset() {
+        size = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < columns; x++) {
+                int index = y * columns + x;
+                if (x > 0 && y > 0 && x < columns - 1 && y < rows - 1) {
+                    positions.set(index, size);
+                    cells.set(size++, index);
+                } else {
+                    positions.set(index, -1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of free cells.
+     *
+     * @return The number of free cells inside the walls.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a cell is free.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is free.
+     */
+    public boolean isFree(int x, int y) {
+        return isInside(x, y) && positions.get(y * columns + x) >= 0;
+    }
+
+    /**
+     * Marks a cell as occupied. Does nothing if the cell is not free.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     */
+    public void remove(int x, int y) {
+        if (!isFree(x, y)) {
+            return;
+        }
+        int index = y * columns + x;
+        int position = positions.get(index);
+        int last = cells.get(--size);
+
+        // Move the last free cell into the gap left by the removed cell
+        cells.set(position, last);
+        positions.set(last, position);
+        positions.set(index, -1);
+    }
+
+    /**
+     * Marks a cell inside the walls as free. Does nothing if it is already free.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     */
+    public void add(int x, int y) {
+        if (!isInside(x, y) || positions.get(y * columns + x) >= 0) {
+            return;
+        }
+        int index = y * columns + x;
+        positions.set(index, size);
+        cells.set(size++, index);
+    }
+
+    /**
+     * Picks a free cell uniformly at random.
+     *
+     * @param random The random number generator to use.
+     * @return The index of the cell (y * columns + x), or -1 if there are no free cells.
+     */
+    public int sample(Random random) {
+        if (size == 0) {
+            return -1;
+        }
+        return cells.get(random.nextInt(size));
+    }
+
+    /**
+     * Checks whether a cell lies inside the walls.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is inside the walls.
+     */
+    private boolean isInside(int x, int y) {
+        return x > 0 && y > 0 && x < columns - 1 && y < rows - 1;
+    }
+}
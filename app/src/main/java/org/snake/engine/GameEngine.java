@@ -0,0 +1,387 @@
+package org.snake.engine;
+
+import java.util.Random;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+
+/**
+ * Runs the rules of the Snake game without any dependency on Swing.
+ *
+ * The engine owns the snake, the food and the score for a single game, and
+ * advances the game one tick at a time through step(). Both SnakegameModel and
+ * headless tools (batch runs, regression tests) drive the game through this
+ * class, so the rules only exist in one place.
+ *
+ * Walls and body segments are tracked in an OccupancyGrid, so the collision
+ * checks made on every tick do not depend on the length of the snake. The free
+ * cells are kept in a FreeCellIndex so food can be placed in constant time,
+ * even when the snake covers almost the whole board.
+ *
+ * The state of a game can be forked cheaply with fork(), or saved and put back
+ * with snapshot() and restore(), for bots that search ahead from the current
+ * position.
+ *
+ * The size of the board is limited. Cells are packed with 16 bits per
+ * coordinate, so a side can be at most MAX_SIDE cells. The FreeCellIndex holds
+ * two ints for every cell of the board, so a board can have at most MAX_CELLS
+ * cells, about 128 MB of index per engine. A 4096x4096 board fits; a
+ * 10,000x10,000 board does not.
+ */
+public class GameEngine {
+
+    public static final int MAX_SIDE = Short.MAX_VALUE; // Coordinates must fit in the 16 bits of Cell.pack()
+    public static final int MAX_CELLS = 1 << 24; // Most cells on a board, to bound the memory of the FreeCellIndex
+
+    private int numberOfColumns;
+    private int numberOfRows;
+    private int snakeLength;
+    private int currentScore;
+    private long ticks;
+    private boolean gameOver;
+    private Random random;
+    private Snake snake;
+    private Cell food;
+    private OccupancyGrid grid;
+    private FreeCellIndex freeCells;
+
+    /**
+     * Constructs a GameEngine for a square board.
+     *
+     * @param numberOfColumns The number of columns (and rows) on the board,
+     *                        including the walls.
+     * @param snakeLength     The initial length of the snake (including the head).
+     * @param random          The random number generator used to place the snake
+     *                        and food.
+     */
+    public GameEngine(int numberOfColumns, int snakeLength, Random random) {
+        this(numberOfColumns, numberOfColumns, snakeLength, random);
+    }
+
+    /**
+     * Constructs a GameEngine for a board that need not be square.
+     *
+     * @param numberOfColumns The number of columns on the board, including the walls.
+     * @param numberOfRows    The number of rows on the board, including the walls.
+     * @param snakeLength     The initial length of the snake (including the head).
+     * @param random          The random number generator used to place the snake
+     *                        and food.
+     * @throws IllegalArgumentException if a side is longer than MAX_SIDE or the
+     *                                  board has more than MAX_CELLS cells.
+     */
+    public GameEngine(int numberOfColumns, int numberOfRows, int snakeLength, Random random) {
+        if (numberOfColumns > MAX_SIDE || numberOfRows > MAX_SIDE
+                || (long) numberOfColumns * numberOfRows > MAX_CELLS) {
+            throw new IllegalArgumentException("Board is too large: " + numberOfColumns + "x" + numberOfRows
+                    + ", the limit is " + MAX_SIDE + " cells a side and " + MAX_CELLS + " cells");
+        }
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfRows = numberOfRows;
+        this.snakeLength = snakeLength;
+        this.random = random;
+        this.grid = new OccupancyGrid(numberOfColumns, numberOfRows);
+        this.freeCells = new FreeCellIndex(numberOfColumns, numberOfRows);
+    }
+
+    /**
+     * Constructs a fork of another engine, sharing its state until either engine
+     * changes it.
+     *
+     * @param other The engine to fork.
+     */
+    private GameEngine(GameEngine other) {
+        this.numberOfColumns = other.numberOfColumns;
+        this.numberOfRows = other.numberOfRows;
+        this.snakeLength = other.snakeLength;
+        restore(other.snapshot());
+    }
+
+    /**
+     * Creates an independent copy of this game. The board and snake are not
+     * copied up front, only the parts that either game changes afterwards.
+     *
+     * @return The forked engine.
+     */
+    public GameEngine fork() {
+        return new GameEngine(this);
+    }
+
+    /**
+     * Saves the current state of the game.
+     *
+     * @return A snapshot that can be passed to restore().
+     */
+    public GameState snapshot() {
+        return new GameState(snake, grid, freeCells, food, currentScore, ticks, gameOver, random);
+    }
+
+    /**
+     * Puts the game back into a saved state. The same snapshot can be restored
+     * any number of times.
+     *
+     * @param state The snapshot to restore, taken from an engine with the same
+     *              board size.
+     */
+    public void restore(GameState state) {
+        grid = state.grid.fork();
+        snake = state.snake == null ? null : state.snake.fork(grid);
+        freeCells = state.freeCells.fork();
+        food = state.hasFood ? new Cell(Cell.unpackX(state.food), Cell.unpackY(state.food)) : null;
+        currentScore = state.currentScore;
+        ticks = state.ticks;
+        gameOver = state.gameOver;
+        random = GameState.forkRandom(state.random);
+    }
+
+    /**
+     * Starts a new game by placing a new snake and food on the board.
+     */
+    public void reset() {
+        initialiseSnake();
+        placeFood();
+    }
+
+    /**
+     * Retrieves the number of columns in the game board.
+     *
+     * @return The number of columns in the board.
+     */
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    /**
+     * Retrieves the number of rows in the game board.
+     *
+     * @return The number of rows in the board.
+     */
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Replaces the random number generator used to place the snake and food,
+     * so an engine can be reused for another game with its own seed.
+     *
+     * @param random The random number generator to use from now on.
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Retrieves the snake being played.
+     *
+     * @return The Snake object for this game.
+     */
+    public Snake getSnake() {
+        return snake;
+    }
+
+    /**
+     * Retrieves the grid of cells covered by the walls and the body of the snake.
+     *
+     * @return The OccupancyGrid for this game.
+     */
+    public OccupancyGrid getOccupancyGrid() {
+        return grid;
+    }
+
+    /**
+     * Retrieves the current location of food on the board.
+     *
+     * @return The Cell object representing food's coordinates on the board.
+     */
+    public Cell getFoodLocation() {
+        return food;
+    }
+
+    /**
+     * Retrieves the current score of this game.
+     *
+     * @return An integer representing current score.
+     */
+    public int getCurrentScore() {
+        return currentScore;
+    }
+
+    /**
+     * Retrieves the number of ticks played since the snake was placed.
+     *
+     * @return The number of calls to step() in this game.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Checks if the game has ended because the snake hit a wall or itself.
+     *
+     * @return A boolean indicating whether or not the game is over.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Checks if the snake covers every cell inside the walls, so no more food can
+     * be placed. A game that reaches this point has been played to completion.
+     *
+     * @return A boolean indicating whether the board is full.
+     */
+    public boolean isBoardFull() {
+        return freeCells.size() == 0;
+    }
+
+    /**
+     * Initializes a new Snake instance with random starting position within valid
+     * bounds and resets the score. The body extends downwards from the head, so
+     * the head is placed high enough for the whole body to fit inside the walls.
+     */
+    public void initialiseSnake() {
+        int x = random.nextInt(numberOfColumns - 2) + 1;
+        int y = random.nextInt(Math.max(1, numberOfRows - 1 - snakeLength)) + 1;
+
+        grid.reset();
+        snake = new Snake(x, y, snakeLength, grid);
+        freeCells.reset();
+        for (int i = 0; i < snakeLength; i++) {
+            int segment = snake.getSegment(i);
+            freeCells.remove(Cell.unpackX(segment), Cell.unpackY(segment));
+        }
+        currentScore = 0;
+        ticks = 0;
+        gameOver = false;
+    }
+
+    /**
+     * Places food at a random location on the board within valid boundaries,
+     * ensuring it does not appear on outermost cells or on the snake. The cell is
+     * picked uniformly from the free cells, so the cost does not depend on how
+     * full the board is. If there are no free cells left, the board is full and
+     * there is no food, as the cell it was on is now covered by the snake.
+     *
+     * @return Cell representing newly placed food location, or null if the board is full.
+     */
+    public Cell placeFood() {
+        int index = freeCells.sample(random);
+        food = index >= 0 ? new Cell(index % numberOfColumns, index / numberOfColumns) : null;
+        return food;
+    }
+
+    /**
+     * Advances the game by one tick: moves the snake head in the given direction,
+     * grows the snake if it reached the food and checks for collisions with the
+     * walls and the body.
+     *
+     * The move pushes a new head and removes the tail, so a tick costs the same
+     * regardless of the length of the snake. Growing is done by keeping the tail.
+     *
+     * @param direction A character indicating the direction to move ('U', 'D', 'L', 'R').
+     * @return The outcome of the tick.
+     */
+    public StepResult step(char direction) {
+        ticks++;
+        int x = snake.getHeadX();
+        int y = snake.getHeadY();
+
+        switch (direction) {
+            case 'U':
+                y--;
+                break;
+            case 'D':
+                y++;
+                break;
+            case 'L':
+                x--;
+                break;
+            case 'R':
+                x++;
+                break;
+        }
+        snake.pushHead(x, y);
+
+        // Check for collision between snake head and food, the snake only keeps its tail when it eats
+        boolean ateFood = isCollisionFood();
+        if (!ateFood) {
+            int tail = snake.removeTail();
+            freeCells.add(Cell.unpackX(tail), Cell.unpackY(tail));
+        }
+        freeCells.remove(x, y);
+        if (ateFood) {
+            placeFood();
+        }
+
+        // The head is not marked on the grid, so a single bit test tells whether it hit something
+        if (grid.isOccupied(x, y)) {
+            gameOver = true;
+            return grid.isWall(x, y) ? StepResult.HIT_WALL : StepResult.HIT_BODY;
+        }
+        return ateFood ? StepResult.ATE_FOOD : StepResult.MOVED;
+    }
+
+    /**
+     * Checks whether two Cells have collided. This could be when
+     * snake head collides with food.
+     *
+     * A collision occurs when both Cells' 'x' and 'y' coordinates are identical.
+     *
+     * @param cell1 - The first Cell to check
+     * @param cell2 - The second Cell to check
+     * @return A boolean indicating whether both Cells refer to same location
+     */
+    public boolean isCollision(Cell cell1, Cell cell2) {
+        return cell1.getX() == cell2.getX() && cell1.getY() == cell2.getY();
+    }
+
+    /**
+     * Checks if there is a collision between snake head and food. If so,
+     * increments score. The snake grows because step() keeps its tail.
+     *
+     * @return A boolean indicating whether there was a collision with food, which
+     *         is never the case once the board is full.
+     */
+    public boolean isCollisionFood() {
+        if (food != null && snake.getHeadX() == food.getX() && snake.getHeadY() == food.getY()) {
+            currentScore++;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Checks for collision between snake head and walls defined by boundaries.
+     *
+     * If collision occurs, sets gameOver status to true.
+     *
+     * @return A boolean indicating whether there was a collision with walls.
+     */
+    public boolean isCollisionWall() {
+        if (grid.isWall(snake.getHeadX(), snake.getHeadY())) {
+            gameOver = true;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Checks for collision between snake head and its own body segments.
+     *
+     * If collision occurs, sets gameOver status to true.
+     *
+     * @return A boolean indicating whether there was a collision with body
+     *         segments.
+     */
+    public boolean isCollisionBody() {
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+
+        if (grid.isOccupied(headX, headY) && !grid.isWall(headX, headY)) {
+            gameOver = true;
+            return true;
+        } else {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.snake.engine;
+
+import java.util.Random;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+import org.snake.util.ForkableRandom;
+
+/**
+ * A snapshot of the state of a game, taken with GameEngine.snapshot() and put
+ * back with GameEngine.restore().
+ *
+ * The snake, occupancy grid and free cell index are stored in copy-on-write
+ * arrays, so taking or restoring a snapshot only copies the chunks of those
+ * arrays that change afterwards. This lets search-based bots expand many
+ * positions from the current one without copying the whole board each time.
+ */
+public class GameState {
+
+    final Snake snake;
+    final OccupancyGrid grid;
+    final FreeCellIndex freeCells;
+    final int food; // Packed coordinates of the food
+    final boolean hasFood;
+    final int currentScore;
+    final long ticks;
+    final boolean gameOver;
+    final Random random;
+
+    /**
+     * Constructs a snapshot by forking the state of a game.
+     *
+     * @param snake        The snake to fork.
+     * @param grid         The occupancy grid to fork.
+     * @param freeCells    The free cell index to fork.
+     * @param food         The location of the food, or null if none has been placed.
+     * @param currentScore The current score.
+     * @param ticks        The number of ticks played.
+     * @param gameOver     Whether the game is over.
+     * @param random       The random number generator of the game.
+     */
+    GameState(Snake snake, OccupancyGrid grid, FreeCellIndex freeCells, Cell food, int currentScore, long ticks,
+            boolean gameOver, Random random) {
+        this.grid = grid.fork();
+        this.snake = snake == null ? null : snake.fork(this.grid);
+        this.freeCells = freeCells.fork();
+        this.hasFood = food != null;
+        this.food = food == null ? 0 : Cell.pack(food.getX(), food.getY());
+        this.currentScore = currentScore;
+        this.ticks = ticks;
+        this.gameOver = gameOver;
+        this.random = forkRandom(random);
+    }
+
+    /**
+     * Retrieves the snake at the time of the snapshot. The snake belongs to the
+     * snapshot and must not be changed, so it can be read by another thread while
+     * the game goes on.
+     *
+     * @return The snake, or null if the game had not started.
+     */
+    public Snake getSnake() {
+        return snake;
+    }
+
+    /**
+     * Retrieves the number of columns on the board, including the walls.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return grid.getColumns();
+    }
+
+    /**
+     * Retrieves the number of rows on the board, including the walls.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return grid.getRows();
+    }
+
+    /**
+     * Checks whether a cell was a wall or covered by the body of the snake at the
+     * time of the snapshot. The head of the snake is not included.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell was occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return grid.isOccupied(x, y);
+    }
+
+    /**
+     * Checks whether a cell is part of the walls around the board.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is a wall.
+     */
+    public boolean isWall(int x, int y) {
+        return grid.isWall(x, y);
+    }
+
+    /**
+     * Retrieves the location of the food at the time of the snapshot.
+     *
+     * @return A new Cell holding the location of the food, or null if there was none.
+     */
+    public Cell getFoodLocation() {
+        return hasFood ? new Cell(Cell.unpackX(food), Cell.unpackY(food)) : null;
+    }
+
+    /**
+     * Retrieves the score at the time of the snapshot.
+     *
+     * @return The score.
+     */
+    public int getCurrentScore() {
+        return currentScore;
+    }
+
+    /**
+     * Retrieves the number of ticks played at the time of the snapshot.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Checks whether the game was over at the time of the snapshot.
+     *
+     * @return A boolean indicating whether the game was over.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    /**
+     * Copies a random number generator so the copy continues with the same
+     * numbers. Only a ForkableRandom can be copied; any other Random is shared,
+     * so forks using it will not see the same food placements.
+     *
+     * @param random The generator to copy.
+     * @return The copy, or the same generator if it cannot be copied.
+     */
+    static Random forkRandom(Random random) {
+        if (random instanceof ForkableRandom) {
+            return ((ForkableRandom) random).fork();
+        }
+        return random;
+    }
+}
@@ -0,0 +1,47 @@
+package org.snake.engine;
+
+import org.snake.util.Cell;
+
+/**
+ * A simple DirectionPolicy that moves towards the food, only taking moves that
+ * do not immediately hit a wall or the body. If no safe move gets closer to the
+ * food, any safe move is taken.
+ */
+public class GreedyPolicy implements DirectionPolicy {
+
+    private static final char[] DIRECTIONS = { 'U', 'D', 'L', 'R' };
+    private static final int[] DELTA_X = { 0, 0, -1, 1 };
+    private static final int[] DELTA_Y = { -1, 1, 0, 0 };
+
+    /**
+     * Chooses the safe direction that gets closest to the food.
+     *
+     * @param engine The engine holding the current state of the game.
+     * @return A character indicating the direction to move ('U', 'D', 'L', 'R').
+     */
+    @Override
+    public char nextDirection(GameEngine engine) {
+        OccupancyGrid grid = engine.getOccupancyGrid();
+        int headX = engine.getSnake().getHeadX();
+        int headY = engine.getSnake().getHeadY();
+        Cell food = engine.getFoodLocation();
+        int foodX = food == null ? headX : food.getX(); // Once the board is full any safe move will do
+        int foodY = food == null ? headY : food.getY();
+
+        char best = DIRECTIONS[0];
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < DIRECTIONS.length; i++) {
+            int x = headX + DELTA_X[i];
+            int y = headY + DELTA_Y[i];
+            if (grid.isOccupied(x, y)) {
+                continue;
+            }
+            int distance = Math.abs(foodX - x) + Math.abs(foodY - y);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = DIRECTIONS[i];
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,216 @@
+package org.snake.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A cycle that visits every cell inside the walls of the board exactly once
+ * and returns to where it started. A snake that follows the cycle can never
+ * run into itself, so it can fill the whole board.
+ *
+ * The cycle runs along the top row, zigzags through the rows below it without
+ * using the first column, and comes back up the first column. This needs an even
+ * number of rows, so if there is an odd number the board is turned on its side.
+ * If both sides are odd no cycle can cover every cell; the two bottom rows are
+ * then zigzagged in pairs of columns and the bottom left corner is left out. The
+ * corner shares the position of the cell above and to the right of it, so the
+ * snake can still detour through it to reach food there.
+ *
+ * Building a cycle is linear in the number of cells, so cycles are cached per
+ * board size and shared between games and threads.
+ */
+public class HamiltonianCycle {
+
+    private static final ConcurrentMap<Long, HamiltonianCycle> CACHE = new ConcurrentHashMap<>();
+    private static final char[] DIRECTIONS = { 'U', 'D', 'L', 'R' };
+
+    private final int columns;
+    private final int rows;
+    private final int length;
+    private final int[] positions; // Position of each cell on the cycle, or -1 for walls
+    private final byte[] nextMoves; // Direction from each cell to the next cell on the cycle
+
+    /**
+     * Retrieves the cycle for a board size, building it the first time the size
+     * is used.
+     *
+     * @param columns The number of columns on the board, including the walls.
+     * @param rows    The number of rows on the board, including the walls.
+     * @return The cycle for the board.
+     * @throws IllegalArgumentException if there are fewer than two columns or
+     *                                  rows inside the walls.
+     */
+    public static HamiltonianCycle forBoard(int columns, int rows) {
+        long key = ((long) columns << 32) | rows;
+        return CACHE.computeIfAbsent(key, k -> new HamiltonianCycle(columns, rows));
+    }
+
+    /**
+     * Constructs the cycle for a board.
+     *
+     * @param columns The number of columns on the board, including the walls.
+     * @param rows    The number of rows on the board, including the walls.
+     */
+    private HamiltonianCycle(int columns, int rows) {
+        int width = columns - 2;
+        int height = rows - 2;
+        if (width < 2 || height < 2) {
+            throw new IllegalArgumentException("Board is too small for a cycle: " + columns + "x" + rows);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.positions = new int[columns * rows];
+        this.nextMoves = new byte[columns * rows];
+        Arrays.fill(positions, -1);
+
+        // Build the cycle with an even number of rows, turning the board if needed
+        boolean transposed = height % 2 != 0 && width % 2 == 0;
+        int[] cells = transposed ? buildCells(height, width) : buildCells(width, height);
+        this.length = cells.length;
+
+        for (int i = 0; i < length; i++) {
+            int x = cells[i] >>> 16;
+            int y = cells[i] & 0xFFFF;
+            int nextX = cells[(i + 1) % length] >>> 16;
+            int nextY = cells[(i + 1) % length] & 0xFFFF;
+            if (transposed) {
+                setCell(y, x, i, nextY - y, nextX - x);
+            } else {
+                setCell(x, y, i, nextX - x, nextY - y);
+            }
+        }
+
+        if (width % 2 != 0 && height % 2 != 0) {
+            // The corner left out takes the position of the cell it replaces and leads up
+            int replaced = positions[(height - 1) * columns + 2];
+            setCell(1, height, replaced, 0, -1);
+        }
+    }
+
+    /**
+     * Lists the cells of the cycle in order, in coordinates inside the walls
+     * (starting at 1) packed as (x << 16) | y.
+     *
+     * @param width  The number of columns inside the walls.
+     * @param height The number of rows inside the walls, which must be even
+     *               unless the width is odd too.
+     * @return The cells of the cycle.
+     */
+    private static int[] buildCells(int width, int height) {
+        boolean skipCorner = height % 2 != 0;
+        int zigzagRows = skipCorner ? height - 1 : height;
+        int[] cells = new int[width * height - (skipCorner ? 1 : 0)];
+        int count = 0;
+
+        // Along the top row
+        for (int x = 1; x <= width; x++) {
+            cells[count++] = (x << 16) | 1;
+        }
+        // Zigzag through the other rows, leaving the first column free
+        for (int y = 2; y <= zigzagRows; y++) {
+            boolean leftwards = y % 2 == 0;
+            if (skipCorner && y == zigzagRows) {
+                // Cover the bottom two rows together, two columns at a time
+                for (int x = width; x >= 3; x -= 2) {
+                    cells[count++] = (x << 16) | y;
+                    cells[count++] = (x << 16) | height;
+                    cells[count++] = ((x - 1) << 16) | height;
+                    cells[count++] = ((x - 1) << 16) | y;
+                }
+            } else if (leftwards) {
+                for (int x = width; x >= 2; x--) {
+                    cells[count++] = (x << 16) | y;
+                }
+            } else {
+                for (int x = 2; x <= width; x++) {
+                    cells[count++] = (x << 16) | y;
+                }
+            }
+        }
+        // Back up the first column
+        for (int y = zigzagRows; y >= 2; y--) {
+            cells[count++] = (1 << 16) | y;
+        }
+        return cells;
+    }
+
+    /**
+     * Stores the position of a cell and the direction to the next cell.
+     *
+     * @param x        The x-coordinate of the cell.
+     * @param y        The y-coordinate of the cell.
+     * @param position The position of the cell on the cycle.
+     * @param deltaX   The change in x to reach the next cell.
+     * @param deltaY   The change in y to reach the next cell.
+     */
+    private void setCell(int x, int y, int position, int deltaX, int deltaY) {
+        int index = y * columns + x;
+        positions[index] = position;
+        nextMoves[index] = (byte) (deltaY < 0 ? 0 : deltaY > 0 ? 1 : deltaX < 0 ? 2 : 3);
+    }
+
+    /**
+     * Retrieves the number of columns on the board the cycle was built for.
+     *
+     * @return The number of columns, including the walls.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Retrieves the number of rows on the board the cycle was built for.
+     *
+     * @return The number of rows, including the walls.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Retrieves the number of distinct positions on the cycle.
+     *
+     * @return The length of the cycle.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Retrieves the position of a cell on the cycle.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return The position of the cell, or -1 if it is a wall or outside the board.
+     */
+    public int getPosition(int x, int y) {
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return -1;
+        }
+        return positions[y * columns + x];
+    }
+
+    /**
+     * Retrieves the direction from a cell to the next cell on the cycle.
+     *
+     * @param x The x-coordinate of the cell, which must be inside the walls.
+     * @param y The y-coordinate of the cell, which must be inside the walls.
+     * @return A character indicating the direction to move ('U', 'D', 'L', 'R').
+     */
+    public char getNextDirection(int x, int y) {
+        return DIRECTIONS[nextMoves[y * columns + x]];
+    }
+
+    /**
+     * Calculates how many steps along the cycle lead from one position to another.
+     *
+     * @param from The starting position.
+     * @param to   The position to reach.
+     * @return The number of steps, between 0 and the length of the cycle minus one.
+     */
+    public int distance(int from, int to) {
+        int distance = to - from;
+        return distance < 0 ? distance + length : distance;
+    }
+}
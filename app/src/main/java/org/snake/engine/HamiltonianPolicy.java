@@ -0,0 +1,196 @@
+package org.snake.engine;
+
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+
+/**
+ * A DirectionPolicy that follows a HamiltonianCycle, so the snake never dies
+ * and eventually fills the whole board.
+ *
+ * As long as every segment of the snake lies on the cycle in order from the
+ * tail to the head, the cells ahead of the head on the cycle up to the tail are
+ * free. The policy takes shortcuts by moving to a neighbouring cell further
+ * along the cycle, as long as it does not pass the tail or jump over the food,
+ * which keeps the snake in order and cuts the time to reach the food.
+ *
+ * Checking whether the snake is in order takes time proportional to its length,
+ * so it is only done when the policy has not steered the previous tick (a new
+ * game, or the autopilot just turned on). If the snake is out of order it follows
+ * the cycle where it can and uses a PathfindingPolicy otherwise; once it has
+ * followed the cycle for its whole length it is in order again. Every tick takes
+ * constant time, whatever the size of the board.
+ */
+public class HamiltonianPolicy implements DirectionPolicy {
+
+    private static final char[] DIRECTIONS = { 'U', 'D', 'L', 'R' };
+    private static final int[] DELTA_X = { 0, 0, -1, 1 };
+    private static final int[] DELTA_Y = { -1, 1, 0, 0 };
+
+    private HamiltonianCycle cycle;
+    private PathfindingPolicy joinPolicy;
+    private boolean inOrder; // Whether the snake is known to lie on the cycle in order
+    private int stepsOnCycle; // Moves along the cycle in a row while joining it
+    private int expectedHead = -1; // Packed cell the head moves to if the last choice was followed
+    private long expectedTicks = -1;
+
+    /**
+     * Chooses the next direction along the cycle, taking a shortcut if it is safe.
+     *
+     * @param engine The engine holding the current state of the game.
+     * @return A character indicating the direction to move ('U', 'D', 'L', 'R').
+     */
+    @Override
+    public char nextDirection(GameEngine engine) {
+        OccupancyGrid grid = engine.getOccupancyGrid();
+        if (cycle == null || cycle.getColumns() != grid.getColumns() || cycle.getRows() != grid.getRows()) {
+            cycle = HamiltonianCycle.forBoard(grid.getColumns(), grid.getRows());
+        }
+
+        Snake snake = engine.getSnake();
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        if (cycle.getPosition(headX, headY) < 0) {
+            return DIRECTIONS[0]; // The head is on a wall, so the game is already over
+        }
+
+        // Only trust the order of the snake if it made the move chosen last tick
+        if (Cell.pack(headX, headY) != expectedHead || engine.getTicks() != expectedTicks) {
+            inOrder = isInOrder(snake);
+            stepsOnCycle = 0;
+        } else if (!inOrder && stepsOnCycle >= snake.getSnakeLength() - 1) {
+            inOrder = true; // The whole body is made of cells the head visited along the cycle
+        }
+
+        char direction = inOrder ? followCycle(engine, snake, headX, headY) : joinCycle(engine, headX, headY);
+        int move = indexOf(direction);
+        expectedHead = Cell.pack(headX + DELTA_X[move], headY + DELTA_Y[move]);
+        expectedTicks = engine.getTicks() + 1;
+        return direction;
+    }
+
+    /**
+     * Chooses the neighbour furthest along the cycle that does not pass the tail
+     * or the food. The food itself is taken as soon as it is next to the head.
+     *
+     * @param engine The engine holding the current state of the game.
+     * @param snake  The snake, which lies on the cycle in order.
+     * @param headX  The x-coordinate of the head.
+     * @param headY  The y-coordinate of the head.
+     * @return A character indicating the direction to move.
+     */
+    private char followCycle(GameEngine engine, Snake snake, int headX, int headY) {
+        OccupancyGrid grid = engine.getOccupancyGrid();
+        int head = cycle.getPosition(headX, headY);
+        int tailX = Cell.unpackX(snake.getTail());
+        int tailY = Cell.unpackY(snake.getTail());
+        int distanceToTail = cycle.getLength();
+        if (snake.getSnakeLength() > 1) {
+            distanceToTail = cycle.distance(head, cycle.getPosition(tailX, tailY));
+        }
+        Cell food = engine.getFoodLocation();
+        int distanceToFood = food == null ? cycle.getLength() // The board is full, so only the tail limits shortcuts
+                : cycle.distance(head, cycle.getPosition(food.getX(), food.getY()));
+        int maxShortcut = Math.min(distanceToTail, distanceToFood) - 1;
+        // Eating the last food fills the board, so it is safe even when it means passing the tail
+        boolean lastFood = snake.getSnakeLength() + 1 == (grid.getColumns() - 2) * (grid.getRows() - 2);
+
+        char best = cycle.getNextDirection(headX, headY);
+        int bestDistance = 1;
+        for (int move = 0; move < DIRECTIONS.length; move++) {
+            int x = headX + DELTA_X[move];
+            int y = headY + DELTA_Y[move];
+            int position = cycle.getPosition(x, y);
+            if (position < 0 || grid.isOccupied(x, y)) {
+                continue;
+            }
+            int distance = cycle.distance(head, position);
+            if (food != null && x == food.getX() && y == food.getY() && (distanceToFood < distanceToTail || lastFood)) {
+                return DIRECTIONS[move];
+            }
+            if (distance > bestDistance && distance <= maxShortcut) {
+                best = DIRECTIONS[move];
+                bestDistance = distance;
+            }
+        }
+
+        // The next position is the tail's. On a board with the corner left out, the corner
+        // shares a position with the cell next to it, so follow the tail into whichever it is in
+        if (distanceToTail == 1) {
+            for (int move = 0; move < DIRECTIONS.length; move++) {
+                if (headX + DELTA_X[move] == tailX && headY + DELTA_Y[move] == tailY) {
+                    return DIRECTIONS[move];
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Moves the head along the cycle if the move is safe, so the snake falls into
+     * order once it has followed the cycle for its whole length. Otherwise steers
+     * with a PathfindingPolicy.
+     *
+     * @param engine The engine holding the current state of the game.
+     * @param headX  The x-coordinate of the head.
+     * @param headY  The y-coordinate of the head.
+     * @return A character indicating the direction to move.
+     */
+    private char joinCycle(GameEngine engine, int headX, int headY) {
+        if (joinPolicy == null) {
+            joinPolicy = new PathfindingPolicy();
+        }
+        char next = cycle.getNextDirection(headX, headY);
+        if (joinPolicy.isSafe(engine, next)) {
+            stepsOnCycle++;
+            return next;
+        }
+        stepsOnCycle = 0;
+        return joinPolicy.nextDirection(engine);
+    }
+
+    /**
+     * Checks whether every segment of the snake lies on the cycle further along
+     * than the segment behind it, counting from the tail.
+     *
+     * @param snake The snake to check.
+     * @return A boolean indicating whether the snake lies on the cycle in order.
+     */
+    private boolean isInOrder(Snake snake) {
+        int length = snake.getSnakeLength();
+        int tail = snake.getSegment(length - 1);
+        int tailPosition = cycle.getPosition(Cell.unpackX(tail), Cell.unpackY(tail));
+        int previous = 0;
+        for (int i = length - 2; i >= 0; i--) {
+            int segment = snake.getSegment(i);
+            int position = cycle.getPosition(Cell.unpackX(segment), Cell.unpackY(segment));
+            if (position < 0 || tailPosition < 0) {
+                return false;
+            }
+            int distance = cycle.distance(tailPosition, position);
+            if (distance <= previous) {
+                return false;
+            }
+            previous = distance;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the index of a direction in DIRECTIONS.
+     *
+     * @param direction A character indicating the direction ('U', 'D', 'L', 'R').
+     * @return The index of the direction.
+     */
+    private static int indexOf(char direction) {
+        switch (direction) {
+            case 'U':
+                return 0;
+            case 'D':
+                return 1;
+            case 'L':
+                return 2;
+            default:
+                return 3;
+        }
+    }
+}
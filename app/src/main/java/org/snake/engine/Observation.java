@@ -0,0 +1,267 @@
+package org.snake.engine;
+
+import java.nio.ByteBuffer;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+
+/**
+ * Writes the board of one or more games into a reusable direct ByteBuffer, so
+ * an agent training in the same process can read the observation of every tick
+ * without walking the Snake and Cell objects or allocating anything.
+ *
+ * The buffer holds one byte per cell and channel, 1 if the channel is set and
+ * 0 otherwise, laid out as [game][channel][y][x]. The channels are the walls,
+ * the body without the head, the head and the food. The walls never change, so
+ * they are written once. When the game has moved one tick since it was last
+ * written, only the cells that changed are updated: the old and new head, the
+ * old tail and the food. After a reset or a jump in ticks the game is rewritten.
+ */
+public class Observation {
+
+    public static final int CHANNELS = 4;
+    public static final int WALL = 0;
+    public static final int BODY = 1;
+    public static final int HEAD = 2;
+    public static final int FOOD = 3;
+
+    private final int numberOfColumns;
+    private final int numberOfEnvs;
+    private final int planeSize;
+    private final ByteBuffer buffer;
+    private final byte[] zeros; // Copied over the planes that are rewritten
+
+    // What was last written for each game, to update it in place on the next tick
+    private final int[] writtenHead;
+    private final int[] writtenTail;
+    private final int[] writtenFood;
+    private final int[] writtenLength;
+    private final long[] writtenTicks;
+
+    /**
+     * Constructs an Observation for a single game.
+     *
+     * @param numberOfColumns The number of columns (and rows) on the board.
+     */
+    public Observation(int numberOfColumns) {
+        this(numberOfColumns, 1);
+    }
+
+    /**
+     * Constructs an Observation for a number of games of the same board size.
+     *
+     * @param numberOfColumns The number of columns (and rows) on each board.
+     * @param numberOfEnvs    The number of games.
+     */
+    public Observation(int numberOfColumns, int numberOfEnvs) {
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfEnvs = numberOfEnvs;
+        this.planeSize = numberOfColumns * numberOfColumns;
+        this.buffer = ByteBuffer.allocateDirect(numberOfEnvs * CHANNELS * planeSize);
+        this.zeros = new byte[(CHANNELS - 1) * planeSize];
+        this.writtenHead = new int[numberOfEnvs];
+        this.writtenTail = new int[numberOfEnvs];
+        this.writtenFood = new int[numberOfEnvs];
+        this.writtenLength = new int[numberOfEnvs];
+        this.writtenTicks = new long[numberOfEnvs];
+
+        for (int env = 0; env < numberOfEnvs; env++) {
+            writtenTicks[env] = Long.MIN_VALUE; // Nothing written yet, so the first write is a full one
+            int walls = offset(env, WALL);
+            for (int y = 0; y < numberOfColumns; y++) {
+                for (int x = 0; x < numberOfColumns; x++) {
+                    boolean wall = x == 0 || y == 0 || x == numberOfColumns - 1 || y == numberOfColumns - 1;
+                    buffer.put(walls + y * numberOfColumns + x, (byte) (wall ? 1 : 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the buffer holding the observations. The same buffer is updated
+     * in place by every write.
+     *
+     * @return The direct buffer, laid out as [game][channel][y][x].
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Retrieves the number of bytes in the observation of one game.
+     *
+     * @return The number of bytes per game.
+     */
+    public int getObservationSize() {
+        return CHANNELS * planeSize;
+    }
+
+    /**
+     * Retrieves the number of games held in the buffer.
+     *
+     * @return The number of games.
+     */
+    public int getNumberOfEnvs() {
+        return numberOfEnvs;
+    }
+
+    /**
+     * Retrieves the position of a channel of a game in the buffer.
+     *
+     * @param env     The index of the game.
+     * @param channel The channel (WALL, BODY, HEAD or FOOD).
+     * @return The offset of the first cell of the channel in bytes.
+     */
+    public int offset(int env, int channel) {
+        return (env * CHANNELS + channel) * planeSize;
+    }
+
+    /**
+     * Writes the board of a game into the first observation.
+     *
+     * @param engine The engine holding the game.
+     */
+    public void write(GameEngine engine) {
+        write(0, engine);
+    }
+
+    /**
+     * Writes the board of a game into an observation.
+     *
+     * @param env    The index of the observation to write.
+     * @param engine The engine holding the game.
+     */
+    public void write(int env, GameEngine engine) {
+        Snake snake = engine.getSnake();
+        int length = snake.getSnakeLength();
+        Cell food = engine.getFoodLocation();
+        int foodCell = food == null ? -1 : toCell(food.getX(), food.getY());
+
+        if (engine.getTicks() == writtenTicks[env] + 1) {
+            int body = length > 1 ? toCell(snake.getSegment(1)) : -1;
+            update(env, toCell(snake.getSegment(0)), body, length, foodCell);
+        } else {
+            clear(env);
+            for (int i = 1; i < length; i++) {
+                setCell(env, BODY, toCell(snake.getSegment(i)));
+            }
+            setCell(env, HEAD, toCell(snake.getSegment(0)));
+            setCell(env, FOOD, foodCell);
+            writtenLength[env] = length;
+        }
+        writtenHead[env] = toCell(snake.getSegment(0));
+        writtenTail[env] = toCell(snake.getSegment(length - 1));
+        writtenFood[env] = foodCell;
+        writtenTicks[env] = engine.getTicks();
+    }
+
+    /**
+     * Writes the boards of all games in a VecEnv, one observation per game.
+     *
+     * @param vecEnv The VecEnv holding the games, with the same number of games
+     *               and board size as this Observation.
+     */
+    public void write(VecEnv vecEnv) {
+        if (vecEnv.getNumberOfEnvs() != numberOfEnvs || vecEnv.getNumberOfColumns() != numberOfColumns) {
+            throw new IllegalArgumentException("VecEnv does not match the size of the observation");
+        }
+        for (int env = 0; env < numberOfEnvs; env++) {
+            int length = vecEnv.getSnakeLength(env);
+            int foodCell = vecEnv.getFoodCell(env);
+
+            if (vecEnv.getTicks(env) == writtenTicks[env] + 1) {
+                int body = length > 1 ? vecEnv.getSegmentCell(env, 1) : -1;
+                update(env, vecEnv.getSegmentCell(env, 0), body, length, foodCell);
+            } else {
+                clear(env);
+                for (int i = 1; i < length; i++) {
+                    setCell(env, BODY, vecEnv.getSegmentCell(env, i));
+                }
+                setCell(env, HEAD, vecEnv.getSegmentCell(env, 0));
+                setCell(env, FOOD, foodCell);
+                writtenLength[env] = length;
+            }
+            writtenHead[env] = vecEnv.getSegmentCell(env, 0);
+            writtenTail[env] = vecEnv.getSegmentCell(env, length - 1);
+            writtenFood[env] = foodCell;
+            writtenTicks[env] = vecEnv.getTicks(env);
+        }
+    }
+
+    /**
+     * Updates an observation after one tick. The old head became the first body
+     * segment, and the old tail left the body unless the snake grew.
+     *
+     * @param env    The index of the observation.
+     * @param head   The cell of the new head.
+     * @param body   The cell of the first body segment, or -1 if there is none.
+     * @param length The length of the snake.
+     * @param food   The cell of the food, or -1 if there is none.
+     */
+    private void update(int env, int head, int body, int length, int food) {
+        if (length == writtenLength[env]) {
+            clearCell(env, BODY, writtenTail[env]);
+        }
+        setCell(env, BODY, body);
+        clearCell(env, HEAD, writtenHead[env]);
+        setCell(env, HEAD, head);
+        clearCell(env, FOOD, writtenFood[env]);
+        setCell(env, FOOD, food);
+        writtenLength[env] = length;
+    }
+
+    /**
+     * Clears every channel of an observation except the walls.
+     *
+     * @param env The index of the observation.
+     */
+    private void clear(int env) {
+        buffer.put(offset(env, BODY), zeros);
+    }
+
+    /**
+     * Sets a cell of a channel.
+     *
+     * @param env     The index of the observation.
+     * @param channel The channel.
+     * @param cell    The cell (y * columns + x), or -1 to do nothing.
+     */
+    private void setCell(int env, int channel, int cell) {
+        if (cell >= 0) {
+            buffer.put(offset(env, channel) + cell, (byte) 1);
+        }
+    }
+
+    /**
+     * Clears a cell of a channel.
+     *
+     * @param env     The index of the observation.
+     * @param channel The channel.
+     * @param cell    The cell (y * columns + x), or -1 to do nothing.
+     */
+    private void clearCell(int env, int channel, int cell) {
+        if (cell >= 0) {
+            buffer.put(offset(env, channel) + cell, (byte) 0);
+        }
+    }
+
+    /**
+     * Converts a packed cell to its index on the board.
+     *
+     * @param packed The packed cell.
+     * @return The cell (y * columns + x).
+     */
+    private int toCell(int packed) {
+        return toCell(Cell.unpackX(packed), Cell.unpackY(packed));
+    }
+
+    /**
+     * Converts coordinates to the index of a cell on the board.
+     *
+     * @param x The x-coordinate.
+     * @param y The y-coordinate.
+     * @return The cell (y * columns + x).
+     */
+    private int toCell(int x, int y) {
+        return y * numberOfColumns + x;
+    }
+}
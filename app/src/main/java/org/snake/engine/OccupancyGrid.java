@@ -0,0 +1,142 @@
+package org.snake.engine;
+
+import org.snake.util.CopyOnWriteLongArray;
+
+/**
+ * A bitset with one bit per cell of the board, set when the cell is a wall or
+ * is covered by the body of the snake.
+ *
+ * The grid is updated by the Snake as it moves and grows, so checking whether a
+ * cell is free is a single bit test regardless of the length of the snake. The
+ * head of the snake is not marked, which lets the engine test the cell the head
+ * has just moved into.
+ *
+ * The bits are held in a CopyOnWriteLongArray so the grid can be forked along
+ * with the rest of the game state.
+ */
+public class OccupancyGrid {
+
+    private final int columns;
+    private final int rows;
+    private CopyOnWriteLongArray bits;
+
+    /**
+     * Constructs an OccupancyGrid for a board, with the walls already marked.
+     *
+     * @param columns The number of columns on the board, including the walls.
+     * @param rows    The number of rows on the board, including the walls.
+     */
+    public OccupancyGrid(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        reset();
+    }
+
+    /**
+     * Constructs a fork of another grid, sharing its bits until either grid changes.
+     *
+     * @param other The grid to fork.
+     */
+    private OccupancyGrid(OccupancyGrid other) {
+        this.columns = other.columns;
+        this.rows = other.rows;
+        this.bits = other.bits.fork();
+    }
+
+    /**
+     * Creates an independent copy of this grid without copying its bits.
+     *
+     * @return The forked grid.
+     */
+    public OccupancyGrid fork() {
+        return new OccupancyGrid(this);
+    }
+
+    /**
+     * Clears the grid so only the walls around the board are marked.
+     */
+    public void reset() {
+        bits = new CopyOnWriteLongArray((columns * rows + 63) >>> 6);
+        for (int x = 0; x < columns; x++) {
+            set(x, 0); // Top wall
+            set(x, rows - 1); // Bottom wall
+        }
+        for (int y = 0; y < rows; y++) {
+            set(0, y); // Left wall
+            set(columns - 1, y); // Right wall
+        }
+    }
+
+    /**
+     * Retrieves the number of columns in the grid.
+     *
+     * @return The number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Retrieves the number of rows in the grid.
+     *
+     * @return The number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Checks whether a cell is a wall or covered by the snake. Cells outside the
+     * board are treated as occupied.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return true;
+        }
+        int index = y * columns + x;
+        return (bits.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Checks whether a cell is part of the walls around the board (or outside it).
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is a wall.
+     */
+    public boolean isWall(int x, int y) {
+        return x <= 0 || y <= 0 || x >= columns - 1 || y >= rows - 1;
+    }
+
+    /**
+     * Marks a cell as occupied. Cells outside the board are ignored.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     */
+    public void set(int x, int y) {
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return;
+        }
+        int index = y * columns + x;
+        bits.set(index >>> 6, bits.get(index >>> 6) | (1L << index));
+    }
+
+    /**
+     * Marks a cell as free. Cells outside the board are ignored.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     */
+    public void clear(int x, int y) {
+        if (x < 0 || y < 0 || x >= columns || y >= rows) {
+            return;
+        }
+        int index = y * columns + x;
+        bits.set(index >>> 6, bits.get(index >>> 6) & ~(1L << index));
+    }
+}
@@ -0,0 +1,349 @@
+package org.snake.engine;
+
+import java.util.Arrays;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+
+/**
+ * A DirectionPolicy that steers the snake along the shortest path to the food,
+ * found with a breadth-first search over the free cells of the board.
+ *
+ * Before taking the first step of the path, the policy checks that the tail of
+ * the snake can still be reached from the new head position, so the snake does
+ * not trap itself. If the step is not safe, or there is no path to the food,
+ * the snake moves to the free neighbouring cell from which the tail is furthest
+ * away, which buys time until the path opens up.
+ *
+ * The path found is kept and followed on later ticks while the food stays
+ * where it is, so on a large board the full search only runs once per piece of
+ * food; each tick then only checks the next step and the tail. The search reuses
+ * preallocated queue and visited arrays, so choosing a direction does not
+ * allocate any memory. Visited cells are marked with the number of the current
+ * search (a stamp) rather than clearing the array.
+ */
+public class PathfindingPolicy implements DirectionPolicy {
+
+    private static final char[] DIRECTIONS = { 'U', 'D', 'L', 'R' };
+    private static final int[] DELTA_X = { 0, 0, -1, 1 };
+    private static final int[] DELTA_Y = { -1, 1, 0, 0 };
+    private static final int NOT_FOUND = -1;
+
+    private int columns;
+    private int rows;
+    private int[] queue = new int[0];
+    private int[] visited = new int[0]; // Stamp of the search that last visited each cell
+    private byte[] parentMove = new byte[0]; // Direction of the step that reached each cell
+    private int[] distance = new int[0];
+    private int stamp;
+    private int searches;
+
+    private byte[] path = new byte[0]; // Moves of the planned path to the food
+    private int pathLength;
+    private int pathPosition;
+    private int pathHead = NOT_FOUND; // Cell the head is expected to be in to follow the path
+    private int pathTarget = NOT_FOUND;
+
+    /**
+     * Chooses the direction that follows the shortest safe path to the food.
+     *
+     * @param engine The engine holding the current state of the game.
+     * @return A character indicating the direction to move ('U', 'D', 'L', 'R').
+     */
+    @Override
+    public char nextDirection(GameEngine engine) {
+        OccupancyGrid grid = engine.getOccupancyGrid();
+        ensureCapacity(grid.getColumns(), grid.getRows());
+
+        Snake snake = engine.getSnake();
+        int headX = snake.getHeadX();
+        int headY = snake.getHeadY();
+        int head = headY * columns + headX;
+        int tail = snake.getSnakeLength() > 1 ? toIndex(snake.getTail()) : NOT_FOUND;
+        Cell food = engine.getFoodLocation();
+        int target = food == null ? NOT_FOUND : food.getY() * columns + food.getX(); // No food once the board is full
+
+        // Follow the planned path while it still leads to the food, otherwise plan a new one
+        if (target != NOT_FOUND && (pathTarget != target || pathHead != head || pathPosition >= pathLength)) {
+            planPath(grid, head, tail, target);
+        }
+        if (target != NOT_FOUND && pathPosition < pathLength) {
+            int move = path[pathPosition];
+            int x = headX + DELTA_X[move];
+            int y = headY + DELTA_Y[move];
+            int next = y * columns + x;
+            // When the snake eats, its tail stays where it is
+            boolean eats = next == target;
+            if ((!grid.isOccupied(x, y) || next == tail && !eats)
+                    && isTailReachable(grid, snake, next, head, eats)) {
+                pathPosition++;
+                pathHead = next;
+                return DIRECTIONS[move];
+            }
+        }
+        pathLength = 0;
+
+        // No safe path to the food, so follow the tail along the longest route
+        int bestMove = NOT_FOUND;
+        int bestDistance = -1;
+        for (int move = 0; move < DIRECTIONS.length; move++) {
+            int x = headX + DELTA_X[move];
+            int y = headY + DELTA_Y[move];
+            int next = y * columns + x;
+            if (grid.isOccupied(x, y) && next != tail) {
+                continue;
+            }
+            if (bestMove == NOT_FOUND) {
+                bestMove = move; // Any free cell is better than hitting something
+            }
+            if (tail != NOT_FOUND && search(grid, next, head, tail, tail) != NOT_FOUND
+                    && distance[tail] > bestDistance) {
+                bestDistance = distance[tail];
+                bestMove = move;
+            }
+        }
+        return bestMove == NOT_FOUND ? DIRECTIONS[0] : DIRECTIONS[bestMove];
+    }
+
+    /**
+     * Checks whether moving in a direction is safe: the cell is free and the tail
+     * can still be reached afterwards.
+     *
+     * @param engine    The engine holding the current state of the game.
+     * @param direction A character indicating the direction to move ('U', 'D', 'L', 'R').
+     * @return A boolean indicating whether the move is safe.
+     */
+    boolean isSafe(GameEngine engine, char direction) {
+        OccupancyGrid grid = engine.getOccupancyGrid();
+        ensureCapacity(grid.getColumns(), grid.getRows());
+
+        Snake snake = engine.getSnake();
+        int move = 0;
+        while (DIRECTIONS[move] != direction) {
+            move++;
+        }
+        int x = snake.getHeadX() + DELTA_X[move];
+        int y = snake.getHeadY() + DELTA_Y[move];
+        int head = snake.getHeadY() * columns + snake.getHeadX();
+        int next = y * columns + x;
+        int tail = snake.getSnakeLength() > 1 ? toIndex(snake.getTail()) : NOT_FOUND;
+        Cell food = engine.getFoodLocation();
+        boolean eats = food != null && x == food.getX() && y == food.getY();
+        if (grid.isOccupied(x, y) && (next != tail || eats)) {
+            return false;
+        }
+        return isTailReachable(grid, snake, next, head, eats);
+    }
+
+    /**
+     * Retrieves the number of searches run by this policy, for benchmarking.
+     *
+     * @return The number of breadth-first searches run so far.
+     */
+    public int getSearches() {
+        return searches;
+    }
+
+    /**
+     * Searches for the shortest path from the head to the food and stores its
+     * moves, leaving the path empty if the food cannot be reached.
+     *
+     * @param grid   The occupancy grid of the game.
+     * @param head   The cell of the head.
+     * @param tail   The cell of the tail, which moves out of the way, or NOT_FOUND.
+     * @param target The cell of the food.
+     */
+    private void planPath(OccupancyGrid grid, int head, int tail, int target) {
+        pathLength = 0;
+        pathPosition = 0;
+        pathHead = head;
+        pathTarget = target;
+        if (search(grid, head, NOT_FOUND, tail, target) == NOT_FOUND) {
+            return;
+        }
+
+        // Walk back from the food to the head, then reverse the moves
+        pathLength = distance[target];
+        int cell = target;
+        for (int i = pathLength - 1; i >= 0; i--) {
+            int move = parentMove[cell];
+            path[i] = (byte) move;
+            cell -= DELTA_Y[move] * columns + DELTA_X[move];
+        }
+    }
+
+    /**
+     * Checks whether the tail can be reached after the head moves to a cell.
+     * Unless the snake eats, its tail moves on by one segment during the move, so
+     * the cell the tail leaves is free and the segment in front of it is the one
+     * to reach.
+     *
+     * @param grid  The occupancy grid of the game.
+     * @param snake The snake before the move.
+     * @param next  The cell the head moves to.
+     * @param head  The current cell of the head, which becomes body after the move.
+     * @param eats  Whether the move eats the food, in which case the tail does not move.
+     * @return A boolean indicating whether the tail can be reached.
+     */
+    private boolean isTailReachable(OccupancyGrid grid, Snake snake, int next, int head, boolean eats) {
+        int length = snake.getSnakeLength();
+        if (length == 1 || length == 2 && !eats) {
+            return true; // The cell the head leaves becomes the tail, right behind the head
+        }
+        int tail = toIndex(snake.getTail());
+        if (!eats && next == tail) {
+            return true; // Following the tail directly is always safe
+        }
+        int target = eats ? tail : toIndex(snake.getSegment(length - 2));
+        return isReachable(grid, next, head, eats ? NOT_FOUND : tail, target);
+    }
+
+    /**
+     * Checks whether a cell can be reached with a depth-first search that tries
+     * the neighbours closer to the target first. Unlike the breadth-first search
+     * this does not find the shortest path, but on an open board it only visits
+     * the cells along one route instead of every cell within the same distance.
+     *
+     * @param grid     The occupancy grid of the game.
+     * @param start    The cell to start from.
+     * @param blocked  An extra cell to treat as occupied, or NOT_FOUND.
+     * @param passable An occupied cell to treat as free, or NOT_FOUND.
+     * @param target   The cell to search for.
+     * @return A boolean indicating whether the target can be reached.
+     */
+    private boolean isReachable(OccupancyGrid grid, int start, int blocked, int passable, int target) {
+        searches++;
+        nextStamp();
+
+        int targetX = target % columns;
+        int targetY = target / columns;
+        int size = 0;
+        visited[start] = stamp;
+        queue[size++] = start; // Used as a stack
+
+        while (size > 0) {
+            int cell = queue[--size];
+            if (cell == target) {
+                return true;
+            }
+            int x = cell % columns;
+            int y = cell / columns;
+            int distanceToTarget = Math.abs(x - targetX) + Math.abs(y - targetY);
+
+            // Push the moves away from the target first, so the moves towards it are popped first
+            for (int pass = 0; pass < 2; pass++) {
+                for (int move = 0; move < DIRECTIONS.length; move++) {
+                    int nx = x + DELTA_X[move];
+                    int ny = y + DELTA_Y[move];
+                    boolean closer = Math.abs(nx - targetX) + Math.abs(ny - targetY) < distanceToTarget;
+                    if (closer != (pass == 1)) {
+                        continue;
+                    }
+                    int next = ny * columns + nx;
+                    if (nx < 0 || ny < 0 || nx >= columns || ny >= rows || visited[next] == stamp
+                            || next == blocked) {
+                        continue;
+                    }
+                    if (grid.isOccupied(nx, ny) && next != passable && next != target) {
+                        continue;
+                    }
+                    visited[next] = stamp;
+                    queue[size++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs a breadth-first search over the free cells, stopping when the target
+     * is reached. Fills parentMove and distance for every visited cell.
+     *
+     * @param grid     The occupancy grid of the game.
+     * @param start    The cell to start from.
+     * @param blocked  An extra cell to treat as occupied, or NOT_FOUND.
+     * @param passable An occupied cell to treat as free, or NOT_FOUND.
+     * @param target   The cell to search for.
+     * @return The target, or NOT_FOUND if it cannot be reached.
+     */
+    private int search(OccupancyGrid grid, int start, int blocked, int passable, int target) {
+        searches++;
+        nextStamp();
+
+        int readIndex = 0;
+        int writeIndex = 0;
+        visited[start] = stamp;
+        distance[start] = 0;
+        queue[writeIndex++] = start;
+
+        while (readIndex < writeIndex) {
+            int cell = queue[readIndex++];
+            if (cell == target) {
+                return target;
+            }
+            int x = cell % columns;
+            int y = cell / columns;
+            for (int move = 0; move < DIRECTIONS.length; move++) {
+                int nx = x + DELTA_X[move];
+                int ny = y + DELTA_Y[move];
+                int next = ny * columns + nx;
+                if (nx < 0 || ny < 0 || nx >= columns || ny >= rows || visited[next] == stamp
+                        || next == blocked) {
+                    continue;
+                }
+                if (grid.isOccupied(nx, ny) && next != passable && next != target) {
+                    continue;
+                }
+                visited[next] = stamp;
+                distance[next] = distance[cell] + 1;
+                parentMove[next] = (byte) move;
+                queue[writeIndex++] = next;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Starts a new search by moving to the next stamp, clearing the visited
+     * array only when the stamp wraps around.
+     */
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Converts packed coordinates into a cell index.
+     *
+     * @param packed The packed coordinates.
+     * @return The index of the cell (y * columns + x).
+     */
+    private int toIndex(int packed) {
+        return Cell.unpackY(packed) * columns + Cell.unpackX(packed);
+    }
+
+    /**
+     * Allocates the search arrays for the size of the board, reusing them while
+     * the board size stays the same.
+     *
+     * @param columns The number of columns on the board.
+     * @param rows    The number of rows on the board.
+     */
+    private void ensureCapacity(int columns, int rows) {
+        if (columns == this.columns && rows == this.rows) {
+            return;
+        }
+        this.columns = columns;
+        this.rows = rows;
+        int cells = columns * rows;
+        queue = new int[cells];
+        visited = new int[cells];
+        parentMove = new byte[cells];
+        distance = new int[cells];
+        path = new byte[cells];
+        pathLength = 0;
+        pathTarget = NOT_FOUND;
+        stamp = 0;
+    }
+}
@@ -0,0 +1,104 @@
+package org.snake.engine;
+
+import org.snake.util.ForkableRandom;
+
+/**
+ * Plays a game recorded by a ReplayRecorder again, as fast as possible and
+ * without any UI. The replayed game ends in exactly the same state as the
+ * original, which makes replays useful for verifying results and reproducing
+ * bugs.
+ */
+public class ReplayPlayer {
+
+    private final byte[] replay;
+    private int position;
+
+    /**
+     * Constructs a ReplayPlayer for an encoded replay.
+     *
+     * @param replay The replay, as produced by ReplayRecorder.toByteArray().
+     */
+    public ReplayPlayer(byte[] replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Plays the whole replay on a new engine.
+     *
+     * @return The engine holding the final state of the game.
+     * @throws IllegalArgumentException if the replay is not in a supported format.
+     */
+    public GameEngine play() {
+        position = 0;
+        int version = readByte();
+        if (version < 1 || version > ReplayRecorder.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported replay format version: " + version);
+        }
+        int numberOfColumns = (int) readVarint();
+        int numberOfRows = version >= 2 ? (int) readVarint() : numberOfColumns; // Version 1 boards are square
+        int snakeLength = (int) readVarint();
+        long seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | readByte();
+        }
+        long ticks = readVarint();
+        long changeCount = readVarint();
+
+        GameEngine engine = new GameEngine(numberOfColumns, numberOfRows, snakeLength, new ForkableRandom(seed));
+        engine.reset();
+
+        char direction = 'U';
+        long nextChangeTick = Long.MAX_VALUE;
+        long change = 0;
+        if (changeCount > 0) {
+            change = readVarint();
+            nextChangeTick = change >>> 2;
+            changeCount--;
+        }
+
+        for (long tick = 0; tick < ticks; tick++) {
+            if (tick == nextChangeTick) {
+                direction = ReplayRecorder.DIRECTIONS.charAt((int) (change & 3));
+
+                // Read the next change, which is stored relative to this one
+                nextChangeTick = Long.MAX_VALUE;
+                if (changeCount > 0) {
+                    change = readVarint();
+                    nextChangeTick = tick + (change >>> 2);
+                    changeCount--;
+                }
+            }
+            engine.step(direction);
+        }
+        return engine;
+    }
+
+    /**
+     * Reads a single unsigned byte from the replay.
+     *
+     * @return The byte, between 0 and 255.
+     */
+    private int readByte() {
+        if (position >= replay.length) {
+            throw new IllegalArgumentException("Replay is truncated");
+        }
+        return replay[position++] & 0xFF;
+    }
+
+    /**
+     * Reads a varint from the replay.
+     *
+     * @return The decoded value.
+     */
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,133 @@
+package org.snake.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Records the input of a game in a compact binary format, so the game can be
+ * played again exactly by a ReplayPlayer.
+ *
+ * A game is fully defined by the board size, the initial snake length, the
+ * seed of its Random and the direction on every tick. Only the ticks where the
+ * direction changes are stored. The format is:
+ *
+ *     byte    format version
+ *     varint  number of columns
+ *     varint  number of rows (from version 2, before that the board is square)
+ *     varint  snake length
+ *     8 bytes seed (big-endian)
+ *     varint  total number of ticks
+ *     varint  number of direction changes
+ *     varint  (ticks since previous change << 2 | direction) for each change
+ *
+ * Varints use 7 bits per byte with the high bit set on all but the last byte.
+ */
+public class ReplayRecorder {
+
+    static final int FORMAT_VERSION = 2;
+    static final String DIRECTIONS = "UDLR";
+
+    private int numberOfColumns;
+    private int numberOfRows;
+    private int snakeLength;
+    private long seed;
+    private long ticks;
+    private long lastChangeTick;
+    private char lastDirection;
+    private long[] changes = new long[16]; // Packed (ticks since previous change << 2 | direction)
+    private int changeCount;
+
+    /**
+     * Starts recording a new game, discarding any previous recording.
+     *
+     * @param numberOfColumns The number of columns (and rows) on the board.
+     * @param snakeLength     The initial length of the snake.
+     * @param seed            The seed of the Random used by the game.
+     */
+    public void start(int numberOfColumns, int snakeLength, long seed) {
+        start(numberOfColumns, numberOfColumns, snakeLength, seed);
+    }
+
+    /**
+     * Starts recording a new game on a board that need not be square,
+     * discarding any previous recording.
+     *
+     * @param numberOfColumns The number of columns on the board.
+     * @param numberOfRows    The number of rows on the board.
+     * @param snakeLength     The initial length of the snake.
+     * @param seed            The seed of the Random used by the game.
+     */
+    public void start(int numberOfColumns, int numberOfRows, int snakeLength, long seed) {
+        this.numberOfColumns = numberOfColumns;
+        this.numberOfRows = numberOfRows;
+        this.snakeLength = snakeLength;
+        this.seed = seed;
+        this.ticks = 0;
+        this.lastChangeTick = 0;
+        this.lastDirection = 0;
+        this.changeCount = 0;
+    }
+
+    /**
+     * Records the direction used for the next tick. Only changes of direction
+     * are stored.
+     *
+     * @param direction A character indicating the direction ('U', 'D', 'L', 'R').
+     */
+    public void record(char direction) {
+        if (direction != lastDirection) {
+            if (changeCount == changes.length) {
+                changes = Arrays.copyOf(changes, changeCount * 2);
+            }
+            changes[changeCount++] = ((ticks - lastChangeTick) << 2) | DIRECTIONS.indexOf(direction);
+            lastChangeTick = ticks;
+            lastDirection = direction;
+        }
+        ticks++;
+    }
+
+    /**
+     * Retrieves the number of ticks recorded so far.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Encodes the recording in the binary replay format.
+     *
+     * @return The encoded replay.
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + changeCount * 2);
+        out.write(FORMAT_VERSION);
+        writeVarint(out, numberOfColumns);
+        writeVarint(out, numberOfRows);
+        writeVarint(out, snakeLength);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (seed >>> shift));
+        }
+        writeVarint(out, ticks);
+        writeVarint(out, changeCount);
+        for (int i = 0; i < changeCount; i++) {
+            writeVarint(out, changes[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a non-negative value as a varint.
+     *
+     * @param out   The stream to write to.
+     * @param value The value to write.
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,22 @@
+package org.snake.engine;
+
+/**
+ * Represents the outcome of advancing a game by a single tick.
+ * Returned by GameEngine.step() so callers can react to food being eaten
+ * or the game ending without querying the engine again.
+ */
+public enum StepResult {
+    MOVED,
+    ATE_FOOD,
+    HIT_WALL,
+    HIT_BODY;
+
+    /**
+     * Checks whether this result ends the game.
+     *
+     * @return A boolean indicating whether the snake collided with a wall or itself.
+     */
+    public boolean isGameOver() {
+        return this == HIT_WALL || this == HIT_BODY;
+    }
+}
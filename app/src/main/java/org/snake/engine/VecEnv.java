@@ -0,0 +1,505 @@
+package org.snake.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Steps many games of the same board size in lock-step, for training agents
+ * that play thousands of games at once.
+ *
+ * The state of all games is held in flat primitive arrays (a struct of arrays)
+ * rather than one GameEngine per game: per-game values such as the head and the
+ * food have one entry per game, and the snake bodies, occupancy bitsets and free
+ * cell indexes are stored as one block per game in shared arrays. A step first
+ * moves every head and checks the walls and the food with the Vector API, many
+ * games per instruction, and then updates the bodies one game at a time.
+ *
+ * The rules are the same as GameEngine.step(), including the order in which the
+ * random number generator is used, so a game played here with the same seed and
+ * actions ends exactly like it would on a GameEngine. A game that ends is reset
+ * straight away, continuing with the same random stream, like calling
+ * GameEngine.reset() after a game over.
+ *
+ * The Vector API is an incubator module, so the JVM needs
+ * --add-modules jdk.incubator.vector to use this class.
+ */
+public class VecEnv {
+
+    /** The actions, as indexes into this string of directions. */
+    public static final String ACTIONS = "UDLR";
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int[] DELTA_X = { 0, 0, -1, 1 };
+    private static final int[] DELTA_Y = { -1, 1, 0, 0 };
+    private static final StepResult[] RESULTS = StepResult.values();
+    private static final long MULTIPLIER = 0x5DEECE66DL; // Same generator as java.util.Random
+    private static final long ADDEND = 0xBL;
+    private static final long RANDOM_MASK = (1L << 48) - 1;
+
+    private final int numberOfEnvs;
+    private final int numberOfColumns;
+    private final int snakeLength;
+    private final int capacity; // Size of the ring buffer of each snake, a power of two
+    private final int words; // Longs in the occupancy bitset of each game
+    private final int innerCells; // Cells inside the walls
+
+    // One entry per game
+    private final int[] headX;
+    private final int[] headY;
+    private final int[] headCell; // Cell of the head (y * columns + x)
+    private final int[] headIndex; // Position of the head in the ring buffer
+    private final int[] length;
+    private final int[] food; // -1 once the board is full
+    private final int[] score;
+    private final int[] lastEpisodeScore;
+    private final long[] ticks;
+    private final long[] randomState;
+    private final int[] freeCount;
+    private final byte[] results;
+    private final boolean[] hitWall;
+    private final boolean[] ateFood;
+
+    // One block per game
+    private final int[] segments; // Ring buffer of the cells of each snake, capacity per game
+    private final long[] occupancy; // Walls and body without the head, words per game
+    private final int[] freeCells; // Dense array of free cells, innerCells per game
+    private final int[] freePositions; // Position of each cell in freeCells or -1, columns * columns per game
+
+    // Templates copied into a block when a game is reset
+    private final long[] wallTemplate;
+    private final int[] freeCellsTemplate;
+    private final int[] freePositionsTemplate;
+
+    private long completedEpisodes;
+
+    /**
+     * Constructs a VecEnv and starts every game.
+     *
+     * @param numberOfEnvs    The number of games to step together.
+     * @param numberOfColumns The number of columns (and rows) on each board.
+     * @param snakeLength     The initial length of each snake.
+     * @param seed            The seed the seed of every game is derived from, in
+     *                        the same way as BatchSimulator.gameSeed().
+     */
+    public VecEnv(int numberOfEnvs, int numberOfColumns, int snakeLength, long seed) {
+        this.numberOfEnvs = numberOfEnvs;
+        this.numberOfColumns = numberOfColumns;
+        this.snakeLength = snakeLength;
+        int cells = numberOfColumns * numberOfColumns;
+        this.innerCells = (numberOfColumns - 2) * (numberOfColumns - 2);
+        this.capacity = Integer.highestOneBit(Math.max(innerCells, snakeLength) * 2);
+        this.words = (cells + 63) >>> 6;
+
+        headX = new int[numberOfEnvs];
+        headY = new int[numberOfEnvs];
+        headCell = new int[numberOfEnvs];
+        headIndex = new int[numberOfEnvs];
+        length = new int[numberOfEnvs];
+        food = new int[numberOfEnvs];
+        score = new int[numberOfEnvs];
+        lastEpisodeScore = new int[numberOfEnvs];
+        ticks = new long[numberOfEnvs];
+        randomState = new long[numberOfEnvs];
+        freeCount = new int[numberOfEnvs];
+        results = new byte[numberOfEnvs];
+        hitWall = new boolean[numberOfEnvs];
+        ateFood = new boolean[numberOfEnvs];
+
+        segments = new int[numberOfEnvs * capacity];
+        occupancy = new long[numberOfEnvs * words];
+        freeCells = new int[numberOfEnvs * innerCells];
+        freePositions = new int[numberOfEnvs * cells];
+
+        // Build the empty board once, in the same order as OccupancyGrid and FreeCellIndex
+        wallTemplate = new long[words];
+        freeCellsTemplate = new int[innerCells];
+        freePositionsTemplate = new int[cells];
+        int count = 0;
+        for (int y = 0; y < numberOfColumns; y++) {
+            for (int x = 0; x < numberOfColumns; x++) {
+                int cell = y * numberOfColumns + x;
+                if (isInside(x, y)) {
+                    freePositionsTemplate[cell] = count;
+                    freeCellsTemplate[count++] = cell;
+                } else {
+                    freePositionsTemplate[cell] = -1;
+                    wallTemplate[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+
+        for (int env = 0; env < numberOfEnvs; env++) {
+            randomState[env] = (BatchSimulator.gameSeed(seed, env) ^ MULTIPLIER) & RANDOM_MASK;
+            reset(env);
+        }
+    }
+
+    /**
+     * Moves every snake one cell and applies the rules of the game. Games that
+     * end are reset, and their outcome can be read with getResult().
+     *
+     * @param actions The action of each game, as an index into ACTIONS.
+     */
+    public void step(int[] actions) {
+        // Move the heads and check the walls and the food, many games at a time
+        int env = 0;
+        int upperBound = SPECIES.loopBound(numberOfEnvs);
+        IntVector lastColumn = IntVector.broadcast(SPECIES, numberOfColumns - 1);
+        for (; env < upperBound; env += SPECIES.length()) {
+            IntVector x = IntVector.fromArray(SPECIES, headX, env)
+                    .add(IntVector.fromArray(SPECIES, DELTA_X, 0, actions, env));
+            IntVector y = IntVector.fromArray(SPECIES, headY, env)
+                    .add(IntVector.fromArray(SPECIES, DELTA_Y, 0, actions, env));
+            IntVector cell = y.mul(numberOfColumns).add(x);
+
+            VectorMask<Integer> wall = x.compare(VectorOperators.LE, 0)
+                    .or(y.compare(VectorOperators.LE, 0))
+                    .or(x.compare(VectorOperators.GE, lastColumn))
+                    .or(y.compare(VectorOperators.GE, lastColumn));
+            VectorMask<Integer> eats = cell.compare(VectorOperators.EQ, IntVector.fromArray(SPECIES, food, env));
+
+            x.intoArray(headX, env);
+            y.intoArray(headY, env);
+            wall.intoArray(hitWall, env);
+            eats.intoArray(ateFood, env);
+            // The old head is still needed to update the body, so the new cell is stored after it
+            cell.intoArray(headCell, env);
+        }
+        for (; env < numberOfEnvs; env++) {
+            int x = headX[env] + DELTA_X[actions[env]];
+            int y = headY[env] + DELTA_Y[actions[env]];
+            headX[env] = x;
+            headY[env] = y;
+            hitWall[env] = !isInside(x, y);
+            headCell[env] = y * numberOfColumns + x;
+            ateFood[env] = headCell[env] == food[env];
+        }
+
+        // Update the bodies, which touches different cells in every game
+        for (env = 0; env < numberOfEnvs; env++) {
+            stepBody(env);
+        }
+    }
+
+    /**
+     * Updates the body of one game after its head has moved, as GameEngine.step()
+     * does after the head is pushed.
+     *
+     * @param env The index of the game.
+     */
+    private void stepBody(int env) {
+        int base = env * capacity;
+        int cell = headCell[env];
+        ticks[env]++;
+
+        // The old head becomes a body segment
+        setOccupied(env, segments[base + headIndex[env]]);
+        headIndex[env] = (headIndex[env] - 1) & (capacity - 1);
+        segments[base + headIndex[env]] = cell;
+        length[env]++;
+
+        // The snake only keeps its tail when it eats
+        boolean eats = ateFood[env];
+        if (eats) {
+            score[env]++;
+        } else {
+            int tail = segments[base + ((headIndex[env] + length[env] - 1) & (capacity - 1))];
+            clearOccupied(env, tail);
+            length[env]--;
+            addFree(env, tail);
+        }
+        removeFree(env, cell);
+        if (eats) {
+            placeFood(env);
+        }
+
+        if (hitWall[env] || isOccupied(env, cell)) {
+            results[env] = (byte) (hitWall[env] ? StepResult.HIT_WALL : StepResult.HIT_BODY).ordinal();
+            lastEpisodeScore[env] = score[env];
+            completedEpisodes++;
+            reset(env);
+        } else {
+            results[env] = (byte) (eats ? StepResult.ATE_FOOD : StepResult.MOVED).ordinal();
+        }
+    }
+
+    /**
+     * Starts a new game, as GameEngine.reset() does: places the snake with its
+     * body below the head and then places the food.
+     *
+     * @param env The index of the game.
+     */
+    private void reset(int env) {
+        int x = nextInt(env, numberOfColumns - 2) + 1;
+        int y = nextInt(env, Math.max(1, numberOfColumns - 1 - snakeLength)) + 1;
+
+        System.arraycopy(wallTemplate, 0, occupancy, env * words, words);
+        System.arraycopy(freeCellsTemplate, 0, freeCells, env * innerCells, innerCells);
+        System.arraycopy(freePositionsTemplate, 0, freePositions, env * freePositionsTemplate.length,
+                freePositionsTemplate.length);
+        freeCount[env] = innerCells;
+
+        int base = env * capacity;
+        headIndex[env] = 0;
+        for (int i = 0; i < snakeLength; i++) {
+            int cell = (y + i) * numberOfColumns + x;
+            segments[base + i] = cell;
+            if (i > 0) {
+                setOccupied(env, cell);
+            }
+        }
+        for (int i = 0; i < snakeLength; i++) {
+            removeFree(env, segments[base + i]);
+        }
+        length[env] = snakeLength;
+        headX[env] = x;
+        headY[env] = y;
+        score[env] = 0;
+        ticks[env] = 0;
+        placeFood(env);
+    }
+
+    /**
+     * Places the food on a random free cell, as GameEngine.placeFood() does. When
+     * the board is full there is no food, which is stored as -1 so no head can
+     * reach it.
+     *
+     * @param env The index of the game.
+     */
+    private void placeFood(int env) {
+        if (freeCount[env] > 0) {
+            food[env] = freeCells[env * innerCells + nextInt(env, freeCount[env])];
+        } else {
+            food[env] = -1;
+        }
+    }
+
+    /**
+     * Marks a cell as free, as FreeCellIndex.add() does.
+     *
+     * @param env  The index of the game.
+     * @param cell The cell (y * columns + x).
+     */
+    private void addFree(int env, int cell) {
+        int positions = env * freePositionsTemplate.length;
+        if (!isInside(cell % numberOfColumns, cell / numberOfColumns) || freePositions[positions + cell] >= 0) {
+            return;
+        }
+        freePositions[positions + cell] = freeCount[env];
+        freeCells[env * innerCells + freeCount[env]++] = cell;
+    }
+
+    /**
+     * Marks a cell as not free, as FreeCellIndex.remove() does.
+     *
+     * @param env  The index of the game.
+     * @param cell The cell (y * columns + x).
+     */
+    private void removeFree(int env, int cell) {
+        int positions = env * freePositionsTemplate.length;
+        int position = freePositions[positions + cell];
+        if (position < 0) {
+            return;
+        }
+        int last = freeCells[env * innerCells + --freeCount[env]];
+        freeCells[env * innerCells + position] = last;
+        freePositions[positions + last] = position;
+        freePositions[positions + cell] = -1;
+    }
+
+    /**
+     * Checks whether a cell of a game is a wall or covered by the body.
+     *
+     * @param env  The index of the game.
+     * @param cell The cell (y * columns + x).
+     * @return A boolean indicating whether the cell is occupied.
+     */
+    boolean isOccupied(int env, int cell) {
+        return (occupancy[env * words + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Marks a cell of a game as occupied.
+     *
+     * @param env  The index of the game.
+     * @param cell The cell (y * columns + x).
+     */
+    private void setOccupied(int env, int cell) {
+        occupancy[env * words + (cell >>> 6)] |= 1L << cell;
+    }
+
+    /**
+     * Marks a cell of a game as free.
+     *
+     * @param env  The index of the game.
+     * @param cell The cell (y * columns + x).
+     */
+    private void clearOccupied(int env, int cell) {
+        occupancy[env * words + (cell >>> 6)] &= ~(1L << cell);
+    }
+
+    /**
+     * Checks whether a cell lies inside the walls.
+     *
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return A boolean indicating whether the cell is inside the walls.
+     */
+    private boolean isInside(int x, int y) {
+        return x > 0 && y > 0 && x < numberOfColumns - 1 && y < numberOfColumns - 1;
+    }
+
+    /**
+     * Draws the next random number of a game, with the same algorithm as
+     * java.util.Random.nextInt(int).
+     *
+     * @param env   The index of the game.
+     * @param bound The upper bound (exclusive), which must be positive.
+     * @return A random number between 0 and bound - 1.
+     */
+    private int nextInt(int env, int bound) {
+        int r = next(env, 31);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return (int) ((bound * (long) r) >> 31);
+        }
+        for (int u = r; u - (r = u % bound) + m < 0; u = next(env, 31)) {
+            // Draw again to avoid bias towards small numbers
+        }
+        return r;
+    }
+
+    /**
+     * Advances the random number generator of a game, as java.util.Random.next(int) does.
+     *
+     * @param env  The index of the game.
+     * @param bits The number of random bits to return.
+     * @return The random bits.
+     */
+    private int next(int env, int bits) {
+        long state = (randomState[env] * MULTIPLIER + ADDEND) & RANDOM_MASK;
+        randomState[env] = state;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Retrieves the number of games stepped together.
+     *
+     * @return The number of games.
+     */
+    public int getNumberOfEnvs() {
+        return numberOfEnvs;
+    }
+
+    /**
+     * Retrieves the number of columns (and rows) on each board.
+     *
+     * @return The number of columns.
+     */
+    public int getNumberOfColumns() {
+        return numberOfColumns;
+    }
+
+    /**
+     * Retrieves the outcome of the last step of a game. If the game ended, the
+     * game has already been reset.
+     *
+     * @param env The index of the game.
+     * @return The outcome of the last step.
+     */
+    public StepResult getResult(int env) {
+        return RESULTS[results[env]];
+    }
+
+    /**
+     * Retrieves the x-coordinate of the head of a snake.
+     *
+     * @param env The index of the game.
+     * @return The x-coordinate of the head.
+     */
+    public int getHeadX(int env) {
+        return headX[env];
+    }
+
+    /**
+     * Retrieves the y-coordinate of the head of a snake.
+     *
+     * @param env The index of the game.
+     * @return The y-coordinate of the head.
+     */
+    public int getHeadY(int env) {
+        return headY[env];
+    }
+
+    /**
+     * Retrieves the cell of a segment of a snake, counting from the head.
+     *
+     * @param env   The index of the game.
+     * @param index The index of the segment, 0 being the head.
+     * @return The cell of the segment (y * columns + x).
+     */
+    public int getSegmentCell(int env, int index) {
+        return segments[env * capacity + ((headIndex[env] + index) & (capacity - 1))];
+    }
+
+    /**
+     * Retrieves the length of a snake.
+     *
+     * @param env The index of the game.
+     * @return The number of segments.
+     */
+    public int getSnakeLength(int env) {
+        return length[env];
+    }
+
+    /**
+     * Retrieves the cell of the food of a game.
+     *
+     * @param env The index of the game.
+     * @return The cell of the food (y * columns + x), or -1 if the board is full.
+     */
+    public int getFoodCell(int env) {
+        return food[env];
+    }
+
+    /**
+     * Retrieves the score of the current game.
+     *
+     * @param env The index of the game.
+     * @return The score.
+     */
+    public int getScore(int env) {
+        return score[env];
+    }
+
+    /**
+     * Retrieves the final score of the last game that ended.
+     *
+     * @param env The index of the game.
+     * @return The final score, or 0 if no game has ended yet.
+     */
+    public int getLastEpisodeScore(int env) {
+        return lastEpisodeScore[env];
+    }
+
+    /**
+     * Retrieves the number of ticks played in the current game.
+     *
+     * @param env The index of the game.
+     * @return The number of ticks.
+     */
+    public long getTicks(int env) {
+        return ticks[env];
+    }
+
+    /**
+     * Retrieves the number of games that have ended, over all games.
+     *
+     * @return The number of completed games.
+     */
+    public long getCompletedEpisodes() {
+        return completedEpisodes;
+    }
+}
@@ -1,15 +1,33 @@
 package org.snake.model;
 
 import java.util.ArrayList;
+import org.snake.engine.OccupancyGrid;
 import org.snake.util.Cell;
+import org.snake.util.CopyOnWriteIntArray;
 
 /**
  * Represents a Snake in a game, consisting of a head and a series of body segments.
  * The Snake can grow by adding new body segments, and its length can be queried.
+ *
+ * The segments are stored in a ring buffer of packed int coordinates (see
+ * Cell.pack), with the head at the front. Moving the snake pushes a new head
+ * and removes the tail, so a move costs the same regardless of the length of
+ * the snake and does not create any objects.
+ *
+ * When constructed with an OccupancyGrid, the snake keeps the grid up to date
+ * as it moves and grows, marking every segment except the head.
+ *
+ * The ring buffer is a CopyOnWriteIntArray, so a snake can be forked cheaply
+ * for search without copying the whole body.
  */
 public class Snake {
-    private ArrayList<Cell> snake;
-    private Cell snakeHead; 
+    private static final int MIN_CAPACITY = 16;
+
+    private CopyOnWriteIntArray segments; // Ring buffer of packed coordinates
+    private int mask; // Capacity of the ring buffer minus one, the capacity is a power of two
+    private int headIndex; // Position of the head in the ring buffer
+    private int length; // Number of segments, including the head
+    private OccupancyGrid grid; // Optional grid of occupied cells, kept in step with the body
 
     /**
      * Constructs a Snake object with a specified starting position and length.
@@ -19,13 +37,58 @@ public class Snake {
      * @param snakeLength The initial length of the snake (including the head).
      */
     public Snake(int x, int y, int snakeLength) {
-        snake = new ArrayList<Cell>();
-        snakeHead = new Cell(x, y);
-        snake.add(snakeHead);
-        for (int i = 1; i < snakeLength; i++) {
-            Cell bodySegment = new Cell(x, y + i);
-            snake.add(bodySegment);
+        this(x, y, snakeLength, null);
+    }
+
+    /**
+     * Constructs a Snake object with a specified starting position and length
+     * that marks its body segments on an occupancy grid.
+     *
+     * @param x          The x-coordinate of the snake's head.
+     * @param y          The y-coordinate of the snake's head.
+     * @param snakeLength The initial length of the snake (including the head).
+     * @param grid       The grid to keep up to date, or null for none.
+     */
+    public Snake(int x, int y, int snakeLength, OccupancyGrid grid) {
+        this.grid = grid;
+        int capacity = MIN_CAPACITY;
+        while (capacity < snakeLength * 2) {
+            capacity <<= 1;
         }
+        segments = new CopyOnWriteIntArray(capacity);
+        mask = capacity - 1;
+        headIndex = 0;
+        length = 0;
+        for (int i = 0; i < snakeLength; i++) {
+            addTail(Cell.pack(x, y + i));
+        }
+    }
+
+    /**
+     * Constructs a fork of another snake, sharing its ring buffer until either
+     * snake moves.
+     *
+     * @param other The snake to fork.
+     * @param grid  The grid the fork keeps up to date, or null for none.
+     */
+    private Snake(Snake other, OccupancyGrid grid) {
+        this.segments = other.segments.fork();
+        this.mask = other.mask;
+        this.headIndex = other.headIndex;
+        this.length = other.length;
+        this.grid = grid;
+    }
+
+    /**
+     * Creates an independent copy of this snake. Forking does not copy the body,
+     * segments are only copied when one of the snakes moves.
+     *
+     * @param grid The grid the fork keeps up to date (usually a fork of this
+     *             snake's grid), or null for none.
+     * @return The forked snake.
+     */
+    public Snake fork(OccupancyGrid grid) {
+        return new Snake(this, grid);
     }
 
     /**
@@ -34,35 +97,97 @@ public class Snake {
      * @return The number of segments in the snake, including the head.
      */
     public int getSnakeLength() {
-        return snake.size();
+        return length;
     }
 
     /**
-     * Retrieves all segments of the snake as an ArrayList.
+     * Retrieves all segments of the snake as an ArrayList. The list is a copy,
+     * so changing it does not change the snake.
      *
-     * @return An ArrayList containing all segments of the snake.
+     * @return An ArrayList containing all segments of the snake, starting with the head.
      */
     public ArrayList<Cell> getSnake() {
+        ArrayList<Cell> snake = new ArrayList<Cell>(length);
+        for (int i = 0; i < length; i++) {
+            snake.add(getBodySegment(i));
+        }
         return snake;
     }
 
     /**
      * Gets the head segment of the snake.
      *
-     * @return The Cell object representing the head of the snake.
+     * @return A Cell object holding the position of the head of the snake.
      */
     public Cell getSnakeHead() {
-        return snakeHead;
+        return getBodySegment(0);
+    }
+
+    /**
+     * Gets the x-coordinate of the head of the snake.
+     *
+     * @return The x-coordinate of the head.
+     */
+    public int getHeadX() {
+        return Cell.unpackX(segments.get(headIndex));
+    }
+
+    /**
+     * Gets the y-coordinate of the head of the snake.
+     *
+     * @return The y-coordinate of the head.
+     */
+    public int getHeadY() {
+        return Cell.unpackY(segments.get(headIndex));
     }
 
     /**
      * Retrieves a specific body segment of the snake based on its index.
      *
      * @param x The index of the body segment to retrieve (0 for head, 1 for first body segment, etc.).
-     * @return The Cell object representing the specified body segment.
+     * @return A Cell object holding the position of the specified body segment.
      */
     public Cell getBodySegment(int x) {
-        return snake.get(x);
+        int segment = getSegment(x);
+        return new Cell(Cell.unpackX(segment), Cell.unpackY(segment));
+    }
+
+    /**
+     * Retrieves the packed coordinates of a specific segment of the snake.
+     *
+     * @param index The index of the segment (0 for head, 1 for first body segment, etc.).
+     * @return The packed coordinates of the segment.
+     */
+    public int getSegment(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+        return segments.get((headIndex + index) & mask);
+    }
+
+    /**
+     * Retrieves the packed coordinates of the last segment of the snake.
+     *
+     * @return The packed coordinates of the tail.
+     */
+    public int getTail() {
+        return segments.get((headIndex + length - 1) & mask);
+    }
+
+    /**
+     * Moves a specific segment of the snake to a new position.
+     *
+     * @param index The index of the segment (0 for head, 1 for first body segment, etc.).
+     * @param x     The new x-coordinate of the segment.
+     * @param y     The new y-coordinate of the segment.
+     */
+    public void setSegment(int index, int x, int y) {
+        int segment = getSegment(index);
+        if (grid != null && index > 0) {
+            grid.clear(Cell.unpackX(segment), Cell.unpackY(segment));
+            grid.set(x, y);
+        }
+        segments.set((headIndex + index) & mask, Cell.pack(x, y));
     }
 
     /**
@@ -71,6 +196,69 @@ public class Snake {
      * @param bodySegment The Cell object representing the new body segment to add.
      */
     public void addBodySegment(Cell bodySegment) {
-        snake.add(bodySegment);
+        addTail(Cell.pack(bodySegment.getX(), bodySegment.getY()));
+    }
+
+    /**
+     * Adds a new head in front of the current head, growing the snake by one.
+     * Moving the snake is done by pushing a new head and then removing the tail.
+     *
+     * @param x The x-coordinate of the new head.
+     * @param y The y-coordinate of the new head.
+     */
+    public void pushHead(int x, int y) {
+        if (grid != null && length > 0) {
+            // The current head becomes a body segment
+            grid.set(getHeadX(), getHeadY());
+        }
+        ensureCapacity();
+        headIndex = (headIndex - 1) & mask;
+        segments.set(headIndex, Cell.pack(x, y));
+        length++;
+    }
+
+    /**
+     * Removes the last segment of the snake.
+     *
+     * @return The packed coordinates of the removed segment.
+     */
+    public int removeTail() {
+        int tail = getTail();
+        if (grid != null && length > 1) {
+            grid.clear(Cell.unpackX(tail), Cell.unpackY(tail));
+        }
+        length--;
+        return tail;
+    }
+
+    /**
+     * Appends a segment with packed coordinates after the current tail.
+     *
+     * @param segment The packed coordinates of the new segment.
+     */
+    private void addTail(int segment) {
+        if (grid != null && length > 0) {
+            grid.set(Cell.unpackX(segment), Cell.unpackY(segment));
+        }
+        ensureCapacity();
+        segments.set((headIndex + length) & mask, segment);
+        length++;
+    }
+
+    /**
+     * Doubles the ring buffer when it is full, unwrapping the segments so the
+     * head is at the start of the new buffer.
+     */
+    private void ensureCapacity() {
+        if (length <= mask) {
+            return;
+        }
+        CopyOnWriteIntArray grown = new CopyOnWriteIntArray(segments.length() << 1);
+        for (int i = 0; i < length; i++) {
+            grown.set(i, segments.get((headIndex + i) & mask));
+        }
+        segments = grown;
+        mask = grown.length() - 1;
+        headIndex = 0;
     }
-}
\ No newline at end of file
+}
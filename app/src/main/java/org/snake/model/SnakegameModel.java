@@ -1,14 +1,30 @@
 package org.snake.model;
 
 import java.awt.Color;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.snake.database.DataHandler;
+import org.snake.database.GameResult;
+import org.snake.database.ResultWriter;
+import org.snake.engine.DirectionPolicy;
+import org.snake.engine.GameEngine;
+import org.snake.engine.GameState;
+import org.snake.engine.HamiltonianPolicy;
+import org.snake.engine.PathfindingPolicy;
+import org.snake.engine.ReplayPlayer;
+import org.snake.engine.ReplayRecorder;
+import org.snake.engine.StepResult;
 import org.snake.util.Cell;
 import org.snake.util.ConfigReader;
+import org.snake.util.ForkableRandom;
+import org.snake.util.InputQueue;
 
 /**
  * Represents the model for the Snake game, managing game state, configuration,
@@ -17,33 +33,45 @@ import org.snake.util.ConfigReader;
 public class SnakegameModel {
 
     private static final String CONFIG_FILENAME = "snakegame.config"; // Configuration file name
-    private static final Random RANDOM = new Random(); // Random number generator for food placement
-    private static final int OFFSET = 2;
+    private static final Random RANDOM = new Random(); // Source of the seed of each game
+    private static final int INPUT_QUEUE_CAPACITY = 4; // Direction keys that can wait for a tick
+    private static final int DEFAULT_FRAME_RATE = 60; // Frames per second when rendering actively
 
     private String gameTitle; 
     private int boardSize; 
     private int numberOfColumns; 
+    private int numberOfRows;
+    private int viewportColumns; // Columns shown in the window, the camera scrolls over the rest
+    private int viewportRows;
     private int cellSize; 
     private Color boardColour; 
     private Color boardGridColour; 
-    private boolean gameOver; 
+    private volatile boolean gameOver; // Set by the game loop thread, read by the UI
     private boolean newGame; 
-    private boolean dailyTimeUsed;
+    private volatile boolean dailyTimeUsed; // Also set when today's totals arrive
     private int timerInterval; 
-    private char direction; 
+    private boolean activeRendering;
+    private int frameRate;
+    private boolean tiledTheme;
+    private volatile char direction; // Set by the UI, read by the game loop thread
     private int snakeLength;
-    private int wallTop; 
-    private int wallBottom; 
-    private int wallLeft; 
-    private int wallRight; 
-    private int currentScore; 
     private int gameTimeAllowed; 
     private int topscorestodisplay; 
+    private final Object sessionLock = new Object(); // Guards the session totals and the games held back
     private int currentSessionTime; 
     private int currentSessionGamesPlayed;
+    private LocalDate sessionDate; // Day the session totals above belong to
+    private boolean sessionTotalsRead; // Whether today's stored totals have been added to the ones above
+    private final List<GameResult> heldBackResults = new ArrayList<>(); // Games that ended before the totals were read
+    private CompletableFuture<Void> sessionTotalsLoaded; // Reads today's totals in the background
     private DataHandler dataHandler; 
-    private Snake snake; 
-    private Cell food; 
+    private ResultWriter resultWriter; // Stores finished games in the background
+    private GameEngine engine; 
+    private long gameSeed; 
+    private ReplayRecorder replayRecorder; 
+    private volatile boolean autopilot; 
+    private final InputQueue inputQueue = new InputQueue(INPUT_QUEUE_CAPACITY); // Keys from the UI to the ticks
+    private DirectionPolicy autopilotPolicy; 
 
     /**
      * Default constructor that initializes a new SnakegameModel instance,
@@ -71,8 +99,20 @@ public class SnakegameModel {
      */
     private void initializeGameModel(DataHandler dataHandler) {
         this.dataHandler = dataHandler;
+        this.resultWriter = new ResultWriter(dataHandler);
         this.gameOver = false;
         readConfig();
+        LocalDate today = LocalDate.now();
+        this.sessionDate = today;
+        this.sessionTotalsLoaded = CompletableFuture.supplyAsync(() -> getSessionTime(today))
+                .handle((sessionInfo, e) -> {
+                    if (e != null) {
+                        e.getCause().printStackTrace(); // The totals then start from zero
+                    }
+                    addSessionTotals(today, sessionInfo == null ? new JSONObject() : sessionInfo);
+                    return null;
+                });
+        CompletableFuture.runAsync(dataHandler::readScoreCount); // Reads the scores to rank before the first game ends
     }
     
     /**
@@ -84,23 +124,110 @@ public class SnakegameModel {
         this.gameTitle = ConfigReader.getProperty("gametitle");
         this.boardSize = Integer.parseInt(ConfigReader.getProperty("boardsize"));
         this.numberOfColumns = Integer.parseInt(ConfigReader.getProperty("numberofcolumns"));
+        String rowsProperty = ConfigReader.getProperty("numberofrows");
+        this.numberOfRows = rowsProperty == null ? this.numberOfColumns : Integer.parseInt(rowsProperty);
         this.snakeLength = Integer.parseInt(ConfigReader.getProperty("snakelength"));
-        this.cellSize = this.boardSize / this.numberOfColumns;
+
+        // The window shows at most viewportcells cells each way, so cells keep their size on large boards
+        String viewportProperty = ConfigReader.getProperty("viewportcells");
+        int viewportCells = Math.max(this.numberOfColumns, this.numberOfRows);
+        if (viewportProperty != null) {
+            viewportCells = Math.min(viewportCells, Integer.parseInt(viewportProperty));
+        }
+        this.viewportColumns = Math.min(this.numberOfColumns, viewportCells);
+        this.viewportRows = Math.min(this.numberOfRows, viewportCells);
+        this.cellSize = this.boardSize / viewportCells;
         this.boardColour = Color.decode(ConfigReader.getProperty("boardcolour"));
         this.boardGridColour = Color.decode(ConfigReader.getProperty("boardgridcolour"));
         this.timerInterval = Integer.parseInt(ConfigReader.getProperty("timerinterval"));
         this.direction = ConfigReader.getProperty("startdirection").charAt(0);
         this.topscorestodisplay = Integer.parseInt(ConfigReader.getProperty("topscorestodisplay"));
         this.gameTimeAllowed = 30000; // Hard coded at request of customer to prevent player from updating
+        this.autopilotPolicy = createAutopilotPolicy(ConfigReader.getProperty("autopilot"));
+        this.activeRendering = "active".equals(ConfigReader.getProperty("rendering"));
+        String frameRateProperty = ConfigReader.getProperty("framerate");
+        this.frameRate = frameRateProperty == null ? DEFAULT_FRAME_RATE : Integer.parseInt(frameRateProperty);
+        this.tiledTheme = "tiles".equals(ConfigReader.getProperty("theme"));
+
+        // Adjust board size to ensure it's divisible by the number of cells in view.
+        this.boardSize = viewportCells * this.cellSize;
+
+        // The engine holds the rules and state of a single game, independent of the UI.
+        this.gameSeed = RANDOM.nextLong();
+        this.engine = new GameEngine(this.numberOfColumns, this.numberOfRows, this.snakeLength,
+                new ForkableRandom(gameSeed));
+        this.replayRecorder = new ReplayRecorder();
+        this.replayRecorder.start(this.numberOfColumns, this.numberOfRows, this.snakeLength, gameSeed);
+    }
+
+    /**
+     * Creates the policy the autopilot steers with. "hamiltonian" follows a cycle
+     * through every cell and never dies; anything else, including a missing
+     * setting, uses the shortest path to the food.
+     *
+     * @param name The name of the policy from the config file, or null.
+     * @return The policy for the autopilot.
+     */
+    private DirectionPolicy createAutopilotPolicy(String name) {
+        if ("hamiltonian".equals(name)) {
+            return new HamiltonianPolicy();
+        }
+        return new PathfindingPolicy();
+    }
 
-        // Adjust board size to ensure it's divisible by number of columns.
-        this.boardSize = this.numberOfColumns * this.cellSize;
+    /**
+     * Retrieves the engine that runs the rules of the current game.
+     *
+     * @return The GameEngine used by this model.
+     */
+    public GameEngine getEngine() {
+        return engine;
+    }
 
-        // Set wall boundaries based on board dimensions.
-        wallTop = 0;
-        wallBottom = this.numberOfColumns - 1;
-        wallLeft = 0;
-        wallRight = this.numberOfColumns - 1;
+    /**
+     * Takes a snapshot of the current game for painting. The snapshot shares
+     * memory with the game until either changes, so it is cheap to take, and it
+     * can be read on another thread while the game goes on.
+     *
+     * @return The snapshot of the current game.
+     */
+    public GameState snapshot() {
+        return engine.snapshot();
+    }
+
+    /**
+     * Retrieves the seed of the random number generator used by the current game.
+     * Playing the same seed with the same input gives exactly the same game.
+     *
+     * @return The seed of the current game.
+     */
+    public long getGameSeed() {
+        return gameSeed;
+    }
+
+    /**
+     * Retrieves the replay of the current game so far.
+     *
+     * @return The encoded replay, in the format written by ReplayRecorder.
+     */
+    public byte[] getReplay() {
+        return replayRecorder.toByteArray();
+    }
+
+    /**
+     * Reads the replay of a stored game and plays it again without the UI.
+     *
+     * @param gameId The ID of the game history row.
+     * @return The engine holding the final state of the replayed game, or null if
+     *         the game has no replay.
+     */
+    public GameEngine replayGame(long gameId) {
+        flushResults();
+        byte[] replay = dataHandler.readReplay(gameId);
+        if (replay == null) {
+            return null;
+        }
+        return new ReplayPlayer(replay).play();
     }
 
     /**
@@ -130,6 +257,33 @@ public class SnakegameModel {
         return numberOfColumns;
     }
 
+    /**
+     * Retrieves the number of rows in the game board.
+     *
+     * @return The number of rows in the board.
+     */
+    public int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Retrieves the number of columns shown in the window at once.
+     *
+     * @return The number of columns in the viewport.
+     */
+    public int getViewportColumns() {
+        return viewportColumns;
+    }
+
+    /**
+     * Retrieves the number of rows shown in the window at once.
+     *
+     * @return The number of rows in the viewport.
+     */
+    public int getViewportRows() {
+        return viewportRows;
+    }
+
     /**
      * Retrieves the timer interval for updating game state.
      *
@@ -139,6 +293,35 @@ public class SnakegameModel {
         return timerInterval;
     }
 
+    /**
+     * Checks whether the board is drawn by its own render thread rather than by
+     * Swing repainting, set by rendering=active in the config file.
+     *
+     * @return A boolean indicating whether active rendering is used.
+     */
+    public boolean isActiveRendering() {
+        return activeRendering;
+    }
+
+    /**
+     * Retrieves the number of frames drawn per second when rendering actively.
+     *
+     * @return The frame rate.
+     */
+    public int getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * Checks whether the board is drawn with the tiles of the tiled theme rather
+     * than plain colours, set by theme=tiles in the config file.
+     *
+     * @return A boolean indicating whether the tiled theme is used.
+     */
+    public boolean isTiledTheme() {
+        return tiledTheme;
+    }
+
     /**
      * Retrieves the size of each cell on the board.
      *
@@ -172,7 +355,7 @@ public class SnakegameModel {
      * @return The Cell object representing food's coordinates on the board.
      */
     public Cell getFoodLocation() {
-        return food;
+        return engine.getFoodLocation();
     }
 
     /**
@@ -181,7 +364,7 @@ public class SnakegameModel {
      * @return The Snake object representing player's snake.
      */
     public Snake getSnake() {
-        return snake;
+        return engine.getSnake();
     }
 
     /**
@@ -202,6 +385,49 @@ public class SnakegameModel {
         this.direction = direction;
     }
 
+    /**
+     * Queues a direction chosen by the player. One queued direction is applied
+     * per tick, so quick key presses within one tick are all played in order.
+     * Directions that would reverse the snake into its body are skipped when
+     * they are applied. Must only be called from one thread, the UI.
+     *
+     * @param direction A character indicating new direction ('U', 'D', 'L', 'R').
+     * @return A boolean indicating whether the direction was queued, false if
+     *         too many directions are already waiting.
+     */
+    public boolean queueDirection(char direction) {
+        return inputQueue.offer(direction);
+    }
+
+    /**
+     * Retrieves the queue of directions waiting for a tick, which also measures
+     * how long the directions wait.
+     *
+     * @return The input queue.
+     */
+    public InputQueue getInputQueue() {
+        return inputQueue;
+    }
+
+    /**
+     * Checks whether the autopilot is steering the snake.
+     *
+     * @return A boolean indicating whether the autopilot is on.
+     */
+    public boolean isAutopilot() {
+        return autopilot;
+    }
+
+    /**
+     * Turns the autopilot on or off. While it is on, the direction of the snake
+     * is chosen on every tick by the policy named in the autopilot setting.
+     *
+     * @param autopilot A boolean indicating whether the autopilot should steer.
+     */
+    public void setAutopilot(boolean autopilot) {
+        this.autopilot = autopilot;
+    }
+
     /**
      * Retrieves all configuration settings for the game.
      *
@@ -265,7 +491,7 @@ public class SnakegameModel {
      * @return An integer representing current score.
      */
     public int getCurrentScore() {
-        return currentScore;
+        return engine.getCurrentScore();
     }
 
     /**
@@ -283,41 +509,89 @@ public class SnakegameModel {
      * @return An integer representing total session time played in seconds.
      */
     public int getCurrentSessionTime() {
-        return currentSessionTime;
+        synchronized (sessionLock) {
+            return currentSessionTime;
+        }
     }
 
     /**
-     * Calculates and retrieves total session time played today from database
-     * records,
-     * returning it as an integer value. If no records exist, returns zero.
+     * Reads the total session time and games played on a day from the database
+     * records.
      *
-     * @return An integer representing total session time played today in seconds.
+     * Runs once, in the background, when the model is created. From then on the
+     * totals are kept in memory: the model is the only one adding games to them,
+     * so they never need to be read again.
+     *
+     * @param date The day the model was created.
+     * @return A JSON object with the totals of that day, empty if no records exist.
      */
-    private void getSessionTime() {
-        LocalDateTime currentTime = LocalDateTime.now();
-
+    private JSONObject getSessionTime(LocalDate date) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        String formattedDateTime = currentTime.format(formatter);
+        String formattedDateTime = date.format(formatter);
+
+        return new JSONObject(dataHandler.readSessionTableByDate(formattedDateTime));
+    }
+
+    /**
+     * Adds the stored totals, once they have been read, to the games played
+     * since the model was created. The games that ended before then are stored
+     * now, in the order they were played, as the totals stored with them could
+     * not be known earlier. If the totals show the daily time is used up, the
+     * game is ended as startNewGame() would have done.
+     *
+     * Called on the thread that read the totals.
+     *
+     * @param date        The day the totals were read for.
+     * @param sessionInfo The stored totals of that day, empty if there are none.
+     */
+    private void addSessionTotals(LocalDate date, JSONObject sessionInfo) {
+        int storedTime = sessionInfo.isEmpty() ? 0 : sessionInfo.getInt("duration");
+        int storedGames = sessionInfo.isEmpty() ? 0 : sessionInfo.getInt("gamesplayed");
+        synchronized (sessionLock) {
+            sessionTotalsRead = true;
+            for (GameResult result : heldBackResults) {
+                boolean sameDay = result.getFinishedAt().toLocalDate().equals(date);
+                resultWriter.submit(new GameResult(result.getFinishedAt(), result.getGameDuration(),
+                        result.getScore(), result.getSessionDuration() + (sameDay ? storedTime : 0),
+                        result.getGamesPlayed() + (sameDay ? storedGames : 0), result.getSeed(),
+                        result.getReplay()));
+            }
+            heldBackResults.clear();
+            if (date.equals(sessionDate)) { // Otherwise the day was over before the totals were read
+                currentSessionTime += storedTime;
+                currentSessionGamesPlayed += storedGames;
+            }
 
-        JSONObject sessionInfo = new JSONObject(dataHandler.readSessionTableByDate(formattedDateTime));
+            if (currentSessionTime > gameTimeAllowed) {
+                dailyTimeUsed = true;
+                gameOver = true;
+            }
+        }
+    }
 
-        if (sessionInfo.isEmpty()) {
+    /**
+     * Starts the session totals again from zero once the day they belong to is
+     * over. Called while holding sessionLock.
+     */
+    private void updateSessionTotals() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(sessionDate)) {
             currentSessionTime = 0;
             currentSessionGamesPlayed = 0;
-        }
-        else {
-            currentSessionTime = sessionInfo.getInt("duration");
-            currentSessionGamesPlayed = sessionInfo.getInt("gamesplayed");
+            sessionDate = today;
         }
     }
 
     /**
      * Retrieves leaderboard data from DataHandler, returning it as a JSON array.
      *
+     * Reads the database, so it is not called on the event dispatch thread.
+     *
      * @return A JSONArray containing leaderboard entries with scores and
      *         timestamps.
      */
     public JSONArray getLeaderboard() {
+        flushResults();
         String sLeaderboard = dataHandler.readLeaderboard(topscorestodisplay);
         JSONArray leaderboard;
 
@@ -329,17 +603,105 @@ public class SnakegameModel {
         return leaderboard;
     }
 
+    /**
+     * Retrieves the rank of a score among every game played, where the highest
+     * score ranks first and equal scores share a rank. Games that have ended are
+     * counted even if they are still waiting to be stored.
+     *
+     * Reads the database, so it is not called on the event dispatch thread.
+     *
+     * @param score The score to rank.
+     * @return One more than the number of games with a higher score.
+     */
+    public long getScoreRank(int score) {
+        flushResults();
+        return dataHandler.readScoreRank(score);
+    }
+
+    /**
+     * Retrieves the number of games the scores are ranked among.
+     *
+     * Reads the database, so it is not called on the event dispatch thread.
+     *
+     * @return The number of games played.
+     */
+    public long getNumberOfScores() {
+        flushResults();
+        return dataHandler.readScoreCount();
+    }
+
     /**
      * Retrieves historical gameplay data from DataHandler, returning it as a JSON
      * array.
      *
+     * Reads the database, so it is not called on the event dispatch thread.
+     *
      * @return A JSONArray containing historical gameplay entries with durations.
      */
     public JSONArray getGameHistory() {
+        flushResults();
         JSONArray gameHistory = new JSONArray(dataHandler.readSessionTable());
         return gameHistory;
     }
 
+    /**
+     * Advances the game by one tick in the current direction of the snake, after
+     * applying the next direction queued by the player, or in the direction chosen
+     * by the autopilot when it is on.
+     *
+     * If the snake collides with a wall or its own body, sets gameOver status to true.
+     *
+     * @return The outcome of the tick.
+     */
+    public StepResult step() {
+        if (autopilot) {
+            inputQueue.clear(); // Keys pressed while the autopilot steers are ignored
+            setDirection(autopilotPolicy.nextDirection(engine));
+        } else {
+            applyQueuedDirection();
+        }
+        replayRecorder.record(direction);
+        StepResult result = engine.step(direction);
+        if (result.isGameOver()) {
+            gameOver = true;
+        }
+        return result;
+    }
+
+    /**
+     * Applies the oldest queued direction that turns the snake. Directions that
+     * keep it going the same way or reverse it are skipped, so at most one turn
+     * is made per tick.
+     */
+    private void applyQueuedDirection() {
+        char next;
+        while ((next = inputQueue.poll()) != InputQueue.EMPTY) {
+            if (next != direction && next != opposite(direction)) {
+                direction = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the direction opposite to a direction.
+     *
+     * @param direction A character indicating the direction ('U', 'D', 'L', 'R').
+     * @return A character indicating the opposite direction.
+     */
+    private static char opposite(char direction) {
+        switch (direction) {
+            case 'U':
+                return 'D';
+            case 'D':
+                return 'U';
+            case 'L':
+                return 'R';
+            default:
+                return 'L';
+        }
+    }
+
     /**
      * Checks whether two Cells have collided. This could be when
      * snake head collides with food.
@@ -351,28 +713,18 @@ public class SnakegameModel {
      * @return A boolean indicating whether both Cells refer to same location
      */
     public boolean isCollision(Cell cell1, Cell cell2) {
-        if (cell1.getX() == cell2.getX() && cell1.getY() == cell2.getY()) {
-            return true;
-        } else {
-            return false;
-        }
+        return engine.isCollision(cell1, cell2);
     }
 
     /**
      * Checks if there is a collision between snake head and food. If so,
-     * grows snake by adding body segment at food's location and increments score.
+     * increments score. The snake grows because the engine's step keeps its tail.
      *
-     * @return A boolean indicating whether there was a collision with food.
+     * @return A boolean indicating whether there was a collision with food, which
+     *         is never the case once the board is full.
      */
     public boolean isCollisionFood() {
-        if (this.isCollision(snake.getSnakeHead(), food)) {
-            Cell bodySegment = new Cell(food.getX(), food.getY());
-            snake.addBodySegment(bodySegment);
-            currentScore++;
-            return true;
-        } else {
-            return false;
-        }
+        return engine.isCollisionFood();
     }
 
     /**
@@ -383,10 +735,7 @@ public class SnakegameModel {
      * @return A boolean indicating whether there was a collision with walls.
      */
     public boolean isCollisionWall() {
-        Cell snakeHead = snake.getSnakeHead();
-
-        if (snakeHead.getX() == wallTop || snakeHead.getX() == wallBottom ||
-                snakeHead.getY() == wallLeft || snakeHead.getY() == wallRight) {
+        if (engine.isCollisionWall()) {
             gameOver = true;
             return true;
         } else {
@@ -403,16 +752,12 @@ public class SnakegameModel {
      *         segments.
      */
     public boolean isCollisionBody() {
-        for (int i = snake.getSnakeLength() - 1; i > 1; i--) {
-            Cell bodySegment = snake.getBodySegment(i);
-
-            if (this.isCollision(snake.getSnakeHead(), bodySegment)) {
-                gameOver = true;
-                return true;
-            }
+        if (engine.isCollisionBody()) {
+            gameOver = true;
+            return true;
+        } else {
+            return false;
         }
-
-        return false;
     }
 
     /**
@@ -421,12 +766,9 @@ public class SnakegameModel {
      * Sets initial direction and resets score.
      */
     public void initialiseSnake() {
-        int x = RANDOM.nextInt((boardSize / cellSize) - 2) + 1;
-        int y = RANDOM.nextInt((boardSize / cellSize) - 2) + 1;
-
-        snake = new Snake(x, y, this.snakeLength);
+        engine.initialiseSnake();
         this.direction = 'U';
-        currentScore = 0;
+        inputQueue.clear(); // Keys pressed during the previous game are not carried over
     }
 
     /**
@@ -436,24 +778,57 @@ public class SnakegameModel {
      * @return Cell representing newly placed food location.
      */
     public Cell placeFood() {
-        int x = RANDOM.nextInt((boardSize / cellSize) - OFFSET) + 1;
-        int y = RANDOM.nextInt((boardSize / cellSize) - OFFSET) + 1;
-
-        food = new Cell(x, y);
-        return food;
+        return engine.placeFood();
     }
 
     /**
      * Stores total gameplay time for current session into database,
      * updating both session duration and individual game's history.
      *
+     * The result is handed to a background writer, so this only costs adding it
+     * to a queue; the session totals held by the model are updated straight away.
+     * A game that ends before today's stored totals have been read is held back
+     * until they have, as it is stored with the totals.
+     *
      * @param gameTime Duration played during current session in seconds.
      */
     public void storeGameTime(int gameTime) {
-        this.currentSessionTime += gameTime;
-        this.currentSessionGamesPlayed++;
-        dataHandler.insertSessionTable(currentSessionTime, currentSessionGamesPlayed);
-        dataHandler.insertGameTable(gameTime, currentScore);
+        storeGameTime(gameTime, engine.getCurrentScore(), gameSeed, replayRecorder.toByteArray());
+    }
+
+    /**
+     * Stores a game that has ended, as storeGameTime(int) does, with its score
+     * and replay taken when it ended, so a new game may already have started.
+     *
+     * @param gameTime Duration played during current session in seconds.
+     * @param score    The final score of the game.
+     * @param seed     The seed of the game.
+     * @param replay   The encoded replay of the game.
+     */
+    public void storeGameTime(int gameTime, int score, long seed, byte[] replay) {
+        synchronized (sessionLock) {
+            updateSessionTotals();
+            this.currentSessionTime += gameTime;
+            this.currentSessionGamesPlayed++;
+            GameResult result = new GameResult(LocalDateTime.now(), gameTime, score,
+                    currentSessionTime, currentSessionGamesPlayed, seed, replay);
+            if (sessionTotalsRead) {
+                resultWriter.submit(result);
+            } else {
+                heldBackResults.add(result);
+            }
+        }
+    }
+
+    /**
+     * Waits until the results of every finished game have been stored, including
+     * the ones held back until today's totals were read.
+     *
+     * Reads the database, so it is not called on the event dispatch thread.
+     */
+    public void flushResults() {
+        sessionTotalsLoaded.join();
+        resultWriter.flush();
     }
 
 /**
@@ -465,17 +840,25 @@ public class SnakegameModel {
 * @return A boolean indicating whether gameplay has ended due to exceeding daily limits.     
 */     
 public boolean startNewGame() {     
+      // Each game gets its own seed so it can be reproduced from its replay
+      this.gameSeed = RANDOM.nextLong();
+      engine.setRandom(new ForkableRandom(gameSeed));
       this.initialiseSnake();     
       this.placeFood();     
-      this.getSessionTime();     
-
-      if (this.currentSessionTime > this.gameTimeAllowed) {     
-          this.dailyTimeUsed = true;     
-          this.gameOver = true;     
-          return true;     
-       } else {     
-           this.dailyTimeUsed = false;
-           return false;
-       }
+      replayRecorder.start(numberOfColumns, numberOfRows, snakeLength, gameSeed);
+
+      // Does not wait for today's stored totals; they end the game if they use up the time
+      synchronized (sessionLock) {
+          this.updateSessionTotals();     
+
+          if (this.currentSessionTime > this.gameTimeAllowed) {     
+              this.dailyTimeUsed = true;     
+              this.gameOver = true;     
+              return true;     
+           } else {     
+               this.dailyTimeUsed = false;
+               return false;
+           }
+      }
     }
 }
\ No newline at end of file
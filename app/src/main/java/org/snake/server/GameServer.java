@@ -0,0 +1,157 @@
+package org.snake.server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import org.snake.database.DataHandler;
+import org.snake.model.SnakegameModel;
+import org.snake.util.ConfigReader;
+import org.snake.util.LatencyHistogram;
+
+/**
+ * Hosts many independent game sessions in one JVM without the UI, for bot
+ * ladders and load tests. Each session has its own model and database and runs
+ * on its own virtual thread, so thousands of sessions only need a few carrier
+ * threads. A single TickScheduler wakes all of them on every tick.
+ *
+ * The session threads never wait on the database: a finished game is handed to
+ * the ResultWriter of the model, which stores it on the small pool of platform
+ * threads shared by every writer. The JDBC calls, made inside the synchronized
+ * methods of a DataHandler, would otherwise pin the carrier threads and hold up
+ * the ticks of every other session.
+ */
+public class GameServer {
+
+    private static final String CONFIG_FILENAME = "snakegame.config";
+    private static final String DATABASE_DIRECTORY = "sessions"; // Holds one database per session
+
+    private final TickScheduler scheduler;
+    private final List<GameSession> sessions = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * Constructs a GameServer and creates its sessions. The models are created
+     * on the calling thread, since the configuration is read into shared state.
+     *
+     * @param sessionCount The number of sessions to host.
+     * @param tickNanos    The length of a tick in nanoseconds.
+     * @param modelFactory Creates the model of the session with a given number.
+     */
+    public GameServer(int sessionCount, long tickNanos, IntFunction<SnakegameModel> modelFactory) {
+        this.scheduler = new TickScheduler(tickNanos);
+        for (int i = 0; i < sessionCount; i++) {
+            sessions.add(new GameSession(i, modelFactory.apply(i), scheduler));
+        }
+    }
+
+    /**
+     * Starts the tick scheduler and a virtual thread for every session.
+     */
+    public void start() {
+        scheduler.start();
+        for (GameSession session : sessions) {
+            threads.add(Thread.ofVirtual().name("session-" + session.getId()).start(session));
+        }
+    }
+
+    /**
+     * Stops the tick scheduler and waits for every session to finish its tick.
+     */
+    public void stop() {
+        scheduler.stop();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+
+    /**
+     * Retrieves the sessions hosted by the server.
+     *
+     * @return The list of sessions.
+     */
+    public List<GameSession> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Retrieves the scheduler that wakes the sessions.
+     *
+     * @return The tick scheduler.
+     */
+    public TickScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Merges the tick latencies of all sessions. Must only be called once the
+     * server has been stopped.
+     *
+     * @return The histogram of tick latencies over all sessions.
+     */
+    public LatencyHistogram getLatencies() {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (GameSession session : sessions) {
+            latencies.add(session.getLatencies());
+        }
+        return latencies;
+    }
+
+    /**
+     * Runs the server for a number of seconds and prints the tick latency over all
+     * sessions. Each session stores its games in its own database in the sessions
+     * directory.
+     *
+     * Usage: App server [sessions] [seconds] [tickmillis]
+     *
+     * @param args Optional number of sessions, seconds to run for and length of a
+     *             tick in milliseconds, in that order. The tick length defaults to
+     *             the timerinterval setting.
+     */
+    public static void main(String[] args) {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        ConfigReader.readConfig(CONFIG_FILENAME);
+        int tickMillis = args.length > 2 ? Integer.parseInt(args[2])
+                : Integer.parseInt(ConfigReader.getProperty("timerinterval"));
+
+        new File(DATABASE_DIRECTORY).mkdirs();
+        long setupStart = System.nanoTime();
+        GameServer server = new GameServer(sessionCount, tickMillis * 1_000_000L, id -> new SnakegameModel(
+                new DataHandler("jdbc:sqlite:" + DATABASE_DIRECTORY + "/session-" + id + ".db", false)));
+        System.out.printf("Created %d sessions in %.1f s%n", sessionCount, (System.nanoTime() - setupStart) / 1e9);
+
+        server.start();
+        try {
+            Thread.sleep(seconds * 1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop();
+
+        long ticks = 0;
+        long missedTicks = 0;
+        long games = 0;
+        for (GameSession session : server.getSessions()) {
+            ticks += session.getTicks();
+            missedTicks += session.getMissedTicks();
+            games += session.getGamesPlayed();
+        }
+        LatencyHistogram latencies = server.getLatencies();
+
+        System.out.printf("Sessions: %d for %d s at %d ms per tick%n", sessionCount, seconds, tickMillis);
+        System.out.printf("Ticks: %d (%.0f/s), %d games, %d missed by sessions, %d missed by scheduler%n", ticks,
+                ticks / (double) seconds, games, missedTicks, server.getScheduler().getMissedTicks());
+        System.out.printf("Tick latency: mean %.3f ms, p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                latencies.getMeanNanos() / 1e6, latencies.getPercentileNanos(0.5) / 1e6,
+                latencies.getPercentileNanos(0.99) / 1e6, latencies.getPercentileNanos(0.999) / 1e6,
+                latencies.getMaxNanos() / 1e6);
+    }
+}
@@ -0,0 +1,134 @@
+package org.snake.server;
+
+import org.snake.engine.StepResult;
+import org.snake.model.SnakegameModel;
+import org.snake.util.LatencyHistogram;
+
+/**
+ * One game session hosted by the GameServer. The session runs on its own
+ * virtual thread and plays games with the autopilot on its own model, one step
+ * per tick of the shared TickScheduler, handing each finished game to the
+ * model's ResultWriter to be stored.
+ *
+ * The latency of a tick is measured from when the tick was due until the step,
+ * including handing over the result of a finished game, has finished. A session that wakes up after
+ * later ticks are already due runs a single step and counts the others as missed.
+ */
+public class GameSession implements Runnable {
+
+    private final int id;
+    private final SnakegameModel model;
+    private final TickScheduler scheduler;
+    private final LatencyHistogram latencies = new LatencyHistogram(); // Only recorded by the session thread
+    private long ticks;
+    private long missedTicks;
+    private int gamesPlayed;
+
+    /**
+     * Constructs a GameSession.
+     *
+     * @param id        The number of the session.
+     * @param model     The model of the session, with its own DataHandler.
+     * @param scheduler The scheduler that wakes the session on every tick.
+     */
+    public GameSession(int id, SnakegameModel model, TickScheduler scheduler) {
+        this.id = id;
+        this.model = model;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Plays games until the scheduler stops or the daily time allocation of the
+     * session is used up. Registers the calling thread with the scheduler.
+     */
+    @Override
+    public void run() {
+        Thread thread = Thread.currentThread();
+        scheduler.register(thread);
+        try {
+            model.setAutopilot(true);
+            if (model.startNewGame()) {
+                return;
+            }
+            int gameTicks = 0;
+            long lastTick = scheduler.getTick();
+            long tick;
+            while ((tick = scheduler.awaitTick(lastTick)) != TickScheduler.STOPPED) {
+                missedTicks += tick - lastTick - 1;
+                lastTick = tick;
+
+                StepResult result = model.step();
+                ticks++;
+                gameTicks++;
+                boolean timeUsed = false;
+                if (result.isGameOver()) {
+                    model.storeGameTime((int) ((long) gameTicks * model.getTimerInterval() / 1000));
+                    gamesPlayed++;
+                    gameTicks = 0;
+                    timeUsed = model.startNewGame();
+                }
+                latencies.record(System.nanoTime() - scheduler.getTickNanos(tick));
+                if (timeUsed) {
+                    return;
+                }
+            }
+        } finally {
+            scheduler.unregister(thread);
+        }
+    }
+
+    /**
+     * Retrieves the number of the session.
+     *
+     * @return The number of the session.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Retrieves the model of the session.
+     *
+     * @return The SnakegameModel of the session.
+     */
+    public SnakegameModel getModel() {
+        return model;
+    }
+
+    /**
+     * Retrieves the latencies of the ticks of the session. Must only be read once
+     * the session thread has ended.
+     *
+     * @return The histogram of tick latencies.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Retrieves the number of ticks the session has run.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Retrieves the number of ticks the session skipped because it woke up late.
+     *
+     * @return The number of missed ticks.
+     */
+    public long getMissedTicks() {
+        return missedTicks;
+    }
+
+    /**
+     * Retrieves the number of games the session has finished.
+     *
+     * @return The number of games.
+     */
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+}
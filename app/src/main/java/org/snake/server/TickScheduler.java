@@ -0,0 +1,179 @@
+package org.snake.server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wakes the threads of many game sessions on every tick, from one platform
+ * thread shared by all of them.
+ *
+ * Tick n is due at a fixed time, start + n * tickNanos, so the latency of a
+ * session can be measured from when its tick was due rather than from when its
+ * thread happened to wake up. Sessions wait for a tick with awaitTick(), which
+ * parks their (virtual) thread; the scheduler unparks every waiting thread when
+ * the tick is due. If the scheduler itself falls more than a tick behind, the
+ * ticks it missed are counted and skipped.
+ */
+public class TickScheduler implements Runnable {
+
+    /**
+     * Returned by awaitTick() once the scheduler has been stopped.
+     */
+    public static final long STOPPED = -1;
+
+    private final long tickNanos;
+    private final List<Thread> sessions = new CopyOnWriteArrayList<>();
+    private volatile long tick;
+    private volatile long missedTicks;
+    private volatile boolean running;
+    private long startNanos;
+    private Thread thread;
+
+    /**
+     * Constructs a TickScheduler.
+     *
+     * @param tickNanos The length of a tick in nanoseconds.
+     */
+    public TickScheduler(long tickNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+    }
+
+    /**
+     * Starts the scheduler on a new platform thread. Tick 0 is due immediately.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        running = true;
+        thread = new Thread(this, "tick-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the scheduler and wakes every registered thread, so that awaitTick()
+     * returns STOPPED.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        for (Thread session : sessions) {
+            LockSupport.unpark(session);
+        }
+    }
+
+    /**
+     * Registers a thread to be woken on every tick.
+     *
+     * @param session The thread of a session.
+     */
+    public void register(Thread session) {
+        sessions.add(session);
+    }
+
+    /**
+     * Stops waking a thread on every tick.
+     *
+     * @param session The thread of a session.
+     */
+    public void unregister(Thread session) {
+        sessions.remove(session);
+    }
+
+    /**
+     * Checks if the scheduler is running.
+     *
+     * @return A boolean indicating whether the scheduler is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Retrieves the latest tick that is due.
+     *
+     * @return The number of the tick, starting from 0.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Retrieves the number of ticks the scheduler skipped because it fell behind.
+     *
+     * @return The number of missed ticks.
+     */
+    public long getMissedTicks() {
+        return missedTicks;
+    }
+
+    /**
+     * Retrieves the time a tick was due.
+     *
+     * @param tick The number of the tick.
+     * @return The time in System.nanoTime() terms.
+     */
+    public long getTickNanos(long tick) {
+        return startNanos + tick * tickNanos;
+    }
+
+    /**
+     * Parks the calling thread, which must be registered, until a tick later than
+     * the given one is due.
+     *
+     * @param lastTick The last tick the caller has run.
+     * @return The latest tick that is due, or STOPPED if the scheduler stopped.
+     */
+    public long awaitTick(long lastTick) {
+        long current;
+        while ((current = tick) <= lastTick) {
+            if (!running) {
+                return STOPPED;
+            }
+            LockSupport.park(this);
+        }
+        return running ? current : STOPPED;
+    }
+
+    /**
+     * Runs the scheduler until it is stopped, waking the registered threads on
+     * every tick.
+     */
+    @Override
+    public void run() {
+        long next = tick;
+        while (running) {
+            long wait = getTickNanos(next) - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            // Skip the ticks that are already over rather than running them in a burst
+            long due = (System.nanoTime() - startNanos) / tickNanos;
+            if (due > next) {
+                missedTicks += due - next;
+                next = due;
+            }
+            tick = next;
+            for (Thread session : sessions) {
+                LockSupport.unpark(session);
+            }
+            next++;
+        }
+    }
+}
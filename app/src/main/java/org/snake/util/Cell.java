@@ -55,4 +55,66 @@ public class Cell {
     public void setY(int y) {
         this.y = y;
     }
+
+    /**
+     * Packs a pair of coordinates into a single int, with x in the upper 16 bits
+     * and y in the lower 16 bits. Used to store positions without creating Cell
+     * objects. Coordinates outside the range are not checked and unpack wrongly;
+     * GameEngine keeps boards within it.
+     *
+     * @param x The x-coordinate, between -32768 and 32767.
+     * @param y The y-coordinate, between -32768 and 32767.
+     * @return The packed coordinates.
+     */
+    public static int pack(int x, int y) {
+        return (x << 16) | (y & 0xFFFF);
+    }
+
+    /**
+     * Retrieves the x-coordinate from packed coordinates.
+     *
+     * @param packed The packed coordinates.
+     * @return The x-coordinate.
+     */
+    public static int unpackX(int packed) {
+        return packed >> 16;
+    }
+
+    /**
+     * Retrieves the y-coordinate from packed coordinates.
+     *
+     * @param packed The packed coordinates.
+     * @return The y-coordinate.
+     */
+    public static int unpackY(int packed) {
+        return (short) packed;
+    }
+
+    /**
+     * Checks whether another object is a Cell at the same location.
+     *
+     * @param obj The object to compare with.
+     * @return A boolean indicating whether both refer to the same location.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Cell)) {
+            return false;
+        }
+        Cell other = (Cell) obj;
+        return x == other.x && y == other.y;
+    }
+
+    /**
+     * Returns a hash code based on the location of this cell.
+     *
+     * @return The packed coordinates of this cell.
+     */
+    @Override
+    public int hashCode() {
+        return pack(x, y);
+    }
 }
@@ -0,0 +1,94 @@
+package org.snake.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed length int array that can be forked cheaply.
+ *
+ * The values are stored in chunks. Forking only copies the table of chunks and
+ * both arrays then share every chunk; a chunk is copied the first time either
+ * array writes to it. Forking and writing after a fork therefore cost time in
+ * proportion to the number of chunks touched, not the length of the array.
+ */
+public class CopyOnWriteIntArray {
+
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int length;
+    private int[][] chunks;
+    private boolean[] owned; // Whether each chunk belongs only to this array and can be written in place
+
+    /**
+     * Constructs an array of the given length, filled with zeros.
+     *
+     * @param length The number of elements in the array.
+     */
+    public CopyOnWriteIntArray(int length) {
+        this.length = length;
+        int numberOfChunks = (length + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.chunks = new int[numberOfChunks][];
+        this.owned = new boolean[numberOfChunks];
+        for (int i = 0; i < numberOfChunks; i++) {
+            chunks[i] = new int[CHUNK_SIZE];
+            owned[i] = true;
+        }
+    }
+
+    /**
+     * Constructs a fork sharing the chunks of another array.
+     *
+     * @param other The array to fork.
+     */
+    private CopyOnWriteIntArray(CopyOnWriteIntArray other) {
+        this.length = other.length;
+        this.chunks = other.chunks.clone();
+        this.owned = new boolean[chunks.length];
+    }
+
+    /**
+     * Creates an independent copy of this array that shares its chunks until
+     * either array writes to them.
+     *
+     * @return The forked array.
+     */
+    public CopyOnWriteIntArray fork() {
+        Arrays.fill(owned, false);
+        return new CopyOnWriteIntArray(this);
+    }
+
+    /**
+     * Retrieves the number of elements in the array.
+     *
+     * @return The length of the array.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Retrieves an element of the array.
+     *
+     * @param index The index of the element.
+     * @return The value of the element.
+     */
+    public int get(int index) {
+        return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Sets an element of the array, copying its chunk first if it is shared.
+     *
+     * @param index The index of the element.
+     * @param value The new value of the element.
+     */
+    public void set(int index, int value) {
+        int chunk = index >>> CHUNK_SHIFT;
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk] = true;
+        }
+        chunks[chunk][index & CHUNK_MASK] = value;
+    }
+}
@@ -0,0 +1,62 @@
+package org.snake.util;
+
+import java.util.Random;
+
+/**
+ * A Random whose state can be copied, so a forked game continues with exactly
+ * the same random numbers as the game it was forked from.
+ *
+ * It uses the same linear congruential generator as java.util.Random, so a
+ * ForkableRandom produces the same sequence as a Random with the same seed.
+ */
+public class ForkableRandom extends Random {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Constructs a ForkableRandom with the given seed.
+     *
+     * @param seed The initial seed.
+     */
+    public ForkableRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Creates a copy of this generator that continues with the same sequence.
+     *
+     * @return The forked generator.
+     */
+    public ForkableRandom fork() {
+        ForkableRandom copy = new ForkableRandom(0);
+        copy.state = state;
+        return copy;
+    }
+
+    /**
+     * Sets the seed of this generator, scrambled the same way as java.util.Random.
+     *
+     * @param seed The new seed.
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * Generates the next random bits.
+     *
+     * @param bits The number of random bits to generate.
+     * @return The random bits.
+     */
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
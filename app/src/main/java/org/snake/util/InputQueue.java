@@ -0,0 +1,160 @@
+package org.snake.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue of direction commands from a single producer (the key
+ * listener on the event dispatch thread) to a single consumer (the thread
+ * running the ticks).
+ *
+ * The commands are kept in a ring buffer whose size is a power of two. Only the
+ * producer moves the tail and only the consumer moves the head, so neither side
+ * needs a lock: each side publishes its counter with a release write and reads
+ * the other side's with an acquire read. When the queue is full new commands are
+ * dropped and counted, so a key held down cannot pile up moves for later ticks.
+ *
+ * Every command is stamped with System.nanoTime() when it is offered, and the
+ * consumer records how long it waited, so the input-to-tick latency can be shown.
+ */
+public class InputQueue {
+
+    /** Returned by poll() when there is no command waiting. */
+    public static final char EMPTY = 0;
+
+    private final char[] directions;
+    private final long[] timestamps;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next command to poll, moved by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next free slot, moved by the producer
+
+    // Metrics, each written by one side only
+    private volatile long droppedCommands;
+    private volatile long polledCommands;
+    private volatile long totalLatencyNanos;
+    private volatile long maxLatencyNanos;
+
+    /**
+     * Constructs an InputQueue.
+     *
+     * @param capacity The most commands that can wait, rounded up to a power of two.
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.directions = new char[size];
+        this.timestamps = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a command to the queue. Must only be called by the producer.
+     *
+     * @param direction A character indicating the direction ('U', 'D', 'L', 'R').
+     * @return A boolean indicating whether the command was added, false if the
+     *         queue was full.
+     */
+    public boolean offer(char direction) {
+        long position = tail.get();
+        if (position - head.getAcquire() > mask) {
+            droppedCommands++;
+            return false;
+        }
+        int slot = (int) position & mask;
+        directions[slot] = direction;
+        timestamps[slot] = System.nanoTime();
+        tail.setRelease(position + 1); // Publishes the slot to the consumer
+        return true;
+    }
+
+    /**
+     * Takes the oldest command from the queue and records how long it waited.
+     * Must only be called by the consumer.
+     *
+     * @return The direction of the command, or EMPTY if there is none.
+     */
+    public char poll() {
+        long position = head.get();
+        if (position == tail.getAcquire()) {
+            return EMPTY;
+        }
+        int slot = (int) position & mask;
+        char direction = directions[slot];
+        long latency = System.nanoTime() - timestamps[slot];
+        head.setRelease(position + 1); // Hands the slot back to the producer
+
+        polledCommands++;
+        totalLatencyNanos += latency;
+        if (latency > maxLatencyNanos) {
+            maxLatencyNanos = latency;
+        }
+        return direction;
+    }
+
+    /**
+     * Discards every waiting command. Must only be called by the consumer, or
+     * while the consumer is not running.
+     */
+    public void clear() {
+        head.setRelease(tail.getAcquire());
+    }
+
+    /**
+     * Retrieves the number of commands waiting.
+     *
+     * @return The number of commands in the queue.
+     */
+    public int size() {
+        return (int) (tail.getAcquire() - head.getAcquire());
+    }
+
+    /**
+     * Retrieves the most commands that can wait.
+     *
+     * @return The capacity of the queue.
+     */
+    public int getCapacity() {
+        return directions.length;
+    }
+
+    /**
+     * Retrieves the number of commands dropped because the queue was full.
+     *
+     * @return The number of dropped commands.
+     */
+    public long getDroppedCommands() {
+        return droppedCommands;
+    }
+
+    /**
+     * Retrieves the number of commands taken by the consumer.
+     *
+     * @return The number of polled commands.
+     */
+    public long getPolledCommands() {
+        return polledCommands;
+    }
+
+    /**
+     * Retrieves the average time between a command being offered and polled.
+     *
+     * @return The average latency in nanoseconds, or 0 if no command was polled.
+     */
+    public long getAverageLatencyNanos() {
+        long polled = polledCommands;
+        return polled == 0 ? 0 : totalLatencyNanos / polled;
+    }
+
+    /**
+     * Retrieves the longest time between a command being offered and polled.
+     *
+     * @return The longest latency in nanoseconds.
+     */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+}
@@ -0,0 +1,96 @@
+package org.snake.util;
+
+/**
+ * Counts latencies in buckets whose bounds double, from 1 microsecond up, so
+ * recording takes constant time and no memory, and histograms from many threads
+ * can be merged to find percentiles over all of them.
+ *
+ * A histogram must only be recorded into by one thread. Percentiles are
+ * reported as the upper bound of the bucket they fall in, so they are accurate
+ * to within a factor of two.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40; // Up to 2^40 microseconds, far more than any tick
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        counts[bucket]++;
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+    }
+
+    /**
+     * Adds the latencies recorded in another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    /**
+     * Retrieves the number of latencies recorded.
+     *
+     * @return The number of latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the average latency.
+     *
+     * @return The average latency in nanoseconds, or 0 if none were recorded.
+     */
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    /**
+     * Retrieves the longest latency.
+     *
+     * @return The longest latency in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /**
+     * Retrieves the latency that a fraction of the recorded latencies are below.
+     *
+     * @param fraction The fraction, such as 0.99 for the 99th percentile.
+     * @return The upper bound of the bucket holding the percentile in
+     *         nanoseconds, or 0 if none were recorded.
+     */
+    public long getPercentileNanos(double fraction) {
+        long target = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target && seen > 0) {
+                return Math.min(maxNanos, (2L << i) * 1000);
+            }
+        }
+        return maxNanos;
+    }
+}
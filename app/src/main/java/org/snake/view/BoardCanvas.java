@@ -0,0 +1,194 @@
+package org.snake.view;
+
+import java.awt.Canvas;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+import org.snake.engine.GameState;
+import org.snake.model.SnakegameModel;
+
+/**
+ * Draws the game board with active rendering, as an alternative to repainting
+ * GameboardPanel through Swing.
+ *
+ * A render thread draws the latest published snapshot at a fixed frame rate
+ * into the back buffer of a BufferStrategy and flips it onto the screen. The
+ * buffers are VolatileImages held in video memory where the platform allows it,
+ * and are drawn again if their contents are lost. Frames are not queued behind
+ * other Swing events, so frames are paced evenly even when ticks are fast.
+ *
+ * Snapshots are immutable, so the game loop can publish one while the render
+ * thread draws the previous one. The render thread has its own BoardRenderer,
+ * so only the cells that changed are drawn into the board image before it is
+ * copied to the back buffer. The performance overlay, when shown, is drawn on
+ * top of every frame.
+ */
+public class BoardCanvas extends Canvas implements Runnable {
+
+    private static final int BUFFERS = 2; // Front and back buffer, flipped on every frame
+
+    private final SnakegameModel model;
+    private final BoardRenderer renderer;
+    private final PerformanceHud hud;
+    private final long frameNanos;
+    private final Runnable frameDrawn;
+    private volatile GameState frame; // Latest snapshot published for drawing
+    private volatile boolean running;
+    private volatile long frames;
+    private GameState drawnFrame; // Only used on the render thread
+    private Thread thread;
+
+    /**
+     * Constructs a BoardCanvas.
+     *
+     * @param model      The model holding the settings of the board.
+     * @param hud        The performance overlay, timed and drawn on every frame
+     *                   while it is shown.
+     * @param frameDrawn Called on the render thread once a newly published
+     *                   snapshot has been drawn.
+     */
+    public BoardCanvas(SnakegameModel model, PerformanceHud hud, Runnable frameDrawn) {
+        this.model = model;
+        this.hud = hud;
+        this.renderer = new BoardRenderer(model.getViewportColumns(), model.getViewportRows(), model.getCellSize(),
+                model.getBoardColour(), model.getBoardGridColour(), model.isTiledTheme());
+        this.frameNanos = 1_000_000_000L / Math.max(1, model.getFrameRate());
+        this.frameDrawn = frameDrawn;
+        setIgnoreRepaint(true); // Every frame is drawn by the render thread
+    }
+
+    /**
+     * Publishes a snapshot to be drawn on the next frame. Can be called from any
+     * thread.
+     *
+     * @param state The snapshot of the game.
+     */
+    public void publish(GameState state) {
+        frame = state;
+    }
+
+    /**
+     * Retrieves the number of frames drawn since the render thread started.
+     *
+     * @return The number of frames.
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Creates the buffers and starts the render thread once the canvas is on the
+     * screen.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        createBufferStrategy(BUFFERS);
+        start();
+    }
+
+    /**
+     * Stops the render thread before the canvas is taken off the screen.
+     */
+    @Override
+    public void removeNotify() {
+        stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Starts the render thread.
+     */
+    private synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the render thread and waits for the current frame to be drawn.
+     */
+    private synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Draws a frame every frame interval until the render thread is stopped. If
+     * drawing falls behind, the missed frames are skipped rather than drawn in a
+     * burst.
+     */
+    @Override
+    public void run() {
+        long next = System.nanoTime();
+        while (running) {
+            render();
+            frames++;
+
+            next += frameNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Draws the latest snapshot into the back buffer and shows it, drawing again
+     * if the buffers were lost or restored in the meantime.
+     */
+    private void render() {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            return;
+        }
+        boolean timed = hud.isVisible(); // Only read the clock while the overlay is shown
+        long start = timed ? System.nanoTime() : 0;
+        GameState state = frame;
+        if (state != null) {
+            renderer.update(state, getGraphicsConfiguration());
+        }
+
+        do {
+            do {
+                Graphics graphic = strategy.getDrawGraphics();
+                try {
+                    graphic.setColor(getBackground());
+                    graphic.fillRect(0, 0, getWidth(), getHeight());
+                    renderer.paint(graphic);
+                    if (state != null && state.isGameOver()) {
+                        GameboardPanel.drawGameOver(graphic, getWidth(), getHeight(), model.isTimeAllocationUsed());
+                    }
+                    hud.paint(graphic);
+                } finally {
+                    graphic.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync(); // Flush the drawing to the screen on platforms that buffer it
+        if (timed) {
+            hud.recordPaint(System.nanoTime() - start);
+        }
+
+        if (state != null && state != drawnFrame) {
+            drawnFrame = state;
+            frameDrawn.run();
+        }
+    }
+}
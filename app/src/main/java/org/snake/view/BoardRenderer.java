@@ -0,0 +1,579 @@
+package org.snake.view;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import org.snake.engine.GameState;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+
+/**
+ * Draws the part of the game board inside a viewport into an image that is
+ * kept up to date one cell at a time, so the cost of a frame depends on how
+ * much of the view changed rather than on the size of the board or the length
+ * of the snake.
+ *
+ * The viewport is a window of a fixed number of cells onto a board that may be
+ * much larger. A camera follows the head of the snake, moving only once the
+ * head gets within a quarter of the view of an edge, and stops at the walls.
+ * While the camera stays put, only the cells that differ from the last snapshot
+ * are drawn: the new head segments, the tail segments that moved away and the
+ * old and new food. Those cells are recorded as dirty so the caller can repaint
+ * just them. When the camera moves the view is drawn again from the occupancy
+ * grid of the snapshot, which only looks at the cells in view.
+ *
+ * The background and grid lines never change, so they are drawn once into a
+ * cached background image.
+ *
+ * The images are created at the scale of the screen, so the board stays sharp
+ * on HiDPI screens, and all drawing is done in unscaled pixels through a scaled
+ * Graphics. With the tiled theme, cells are drawn with tiles from a TileAtlas
+ * at the same scale instead of filled with plain colours. A body tile depends
+ * on the neighbouring segments, which the occupancy grid does not tell, so the
+ * renderer keeps the tile of every segment by board cell. Each update records
+ * the tiles of the segments that changed, in view or not, so drawing the view
+ * again only looks up the tiles of the occupied cells in view. Only a new game,
+ * or snapshots too far apart to work out the changes, walk the whole snake.
+ *
+ * Must only be used from one thread, normally the event dispatch thread.
+ */
+public class BoardRenderer {
+
+    private static final int INITIAL_DIRTY_CAPACITY = 16;
+    private static final int DEAD_ZONE_DIVISOR = 4; // The camera moves when the head is within a quarter of the view of an edge
+
+    private final int viewportColumns;
+    private final int viewportRows;
+    private final int cellSize;
+    private final Color boardColour;
+    private final Color boardGridColour;
+    private final boolean tiled;
+    private TileAtlas atlas; // Tiles of the tiled theme, otherwise null
+    private double scale = 1; // Device pixels per pixel, above 1 on HiDPI screens
+    private BufferedImage background; // Background colour and grid, drawn once
+    private BufferedImage board; // Background with the cells in view of the last applied snapshot
+    private GameState applied; // Last snapshot drawn into the board image
+    private int cameraX; // Board coordinates of the top left cell in view
+    private int cameraY;
+    private int[] dirtyCells = new int[INITIAL_DIRTY_CAPACITY]; // Packed viewport coordinates of the cells changed by the last update
+    private int dirtyCount;
+    private byte[] segmentTiles; // Tile of the snake segment on each board cell (y * columns + x), tiled theme only
+    private int tileColumns; // Columns of the board segmentTiles was made for
+
+    /**
+     * Constructs a BoardRenderer.
+     *
+     * @param viewportColumns The number of columns shown at once.
+     * @param viewportRows    The number of rows shown at once.
+     * @param cellSize        The size of each cell in pixels.
+     * @param boardColour     The background colour of the board.
+     * @param boardGridColour The colour of the grid lines.
+     */
+    public BoardRenderer(int viewportColumns, int viewportRows, int cellSize, Color boardColour,
+            Color boardGridColour) {
+        this(viewportColumns, viewportRows, cellSize, boardColour, boardGridColour, false);
+    }
+
+    /**
+     * Constructs a BoardRenderer that may draw with the tiled theme.
+     *
+     * @param viewportColumns The number of columns shown at once.
+     * @param viewportRows    The number of rows shown at once.
+     * @param cellSize        The size of each cell in pixels.
+     * @param boardColour     The background colour of the board.
+     * @param boardGridColour The colour of the grid lines.
+     * @param tiled           Whether cells are drawn with tiles rather than
+     *                        plain colours.
+     */
+    public BoardRenderer(int viewportColumns, int viewportRows, int cellSize, Color boardColour,
+            Color boardGridColour, boolean tiled) {
+        this.viewportColumns = viewportColumns;
+        this.viewportRows = viewportRows;
+        this.cellSize = cellSize;
+        this.boardColour = boardColour;
+        this.boardGridColour = boardGridColour;
+        this.tiled = tiled;
+    }
+
+    /**
+     * Creates the images, compatible with a screen so drawing them is a plain
+     * copy. Called on the first update.
+     *
+     * @param configuration The configuration of the screen, or null to use a
+     *                      default image type (for example when headless).
+     */
+    private void createImages(GraphicsConfiguration configuration) {
+        scale = configuration == null ? 1 : configuration.getDefaultTransform().getScaleX();
+        background = createImage(configuration);
+        board = createImage(configuration);
+        if (tiled) {
+            atlas = TileAtlas.get(cellSize, scale, boardColour, configuration);
+        }
+
+        int width = viewportColumns * cellSize;
+        int height = viewportRows * cellSize;
+        Graphics graphic = createGraphics(background);
+
+        // Draw the game board background
+        graphic.setColor(boardColour);
+        graphic.fillRect(0, 0, width, height);
+
+        // Draw a grid pattern
+        graphic.setColor(boardGridColour);
+        for (int i = 0; i <= viewportColumns; i++) {
+            int x = i * cellSize;
+            graphic.drawLine(x, 0, x, height); // Vertical lines
+        }
+        for (int i = 0; i <= viewportRows; i++) {
+            int y = i * cellSize;
+            graphic.drawLine(0, y, width, y); // Horizontal lines
+        }
+        graphic.dispose();
+    }
+
+    /**
+     * Creates an opaque image the size of the viewport in device pixels.
+     *
+     * @param configuration The configuration of the screen, or null.
+     * @return The image.
+     */
+    private BufferedImage createImage(GraphicsConfiguration configuration) {
+        int width = Math.max(1, toDevice(viewportColumns * cellSize + 1)); // One more pixel for the last grid line
+        int height = Math.max(1, toDevice(viewportRows * cellSize + 1));
+        if (configuration != null) {
+            return configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Creates a graphics for an image, scaled so it is drawn on in unscaled
+     * pixels.
+     *
+     * @param image The image to draw on.
+     * @return The graphics, to be disposed by the caller.
+     */
+    private Graphics createGraphics(BufferedImage image) {
+        Graphics2D graphic = image.createGraphics();
+        graphic.scale(scale, scale);
+        return graphic;
+    }
+
+    /**
+     * Converts a length in unscaled pixels to device pixels.
+     *
+     * @param pixels The length in unscaled pixels.
+     * @return The length in device pixels.
+     */
+    private int toDevice(int pixels) {
+        return (int) Math.round(pixels * scale);
+    }
+
+    /**
+     * Draws a snapshot into the board image. Only the cells that changed since
+     * the last snapshot are drawn, unless the camera moved, the snapshot is from
+     * a new game or too many ticks have passed to work out the changes, in which
+     * case the whole view is drawn again.
+     *
+     * @param state         The snapshot to draw.
+     * @param configuration The configuration of the screen the board is shown
+     *                      on, or null.
+     * @return A boolean indicating whether the whole view was drawn again, in
+     *         which case the dirty cells are not recorded.
+     */
+    public boolean update(GameState state, GraphicsConfiguration configuration) {
+        dirtyCount = 0;
+        if (state == applied) {
+            return false;
+        }
+        if (board == null) {
+            createImages(configuration);
+        }
+        boolean moved = moveCamera(state);
+        int ticks = changedTicks(applied, state);
+        if (atlas != null) {
+            recordTiles(state, ticks);
+        }
+        Graphics graphic = createGraphics(board);
+        boolean redrawn = moved || ticks < 0;
+        if (!redrawn) {
+            drawChanges(graphic, applied, state, ticks);
+        } else {
+            drawView(graphic, state);
+            dirtyCount = 0;
+        }
+        graphic.dispose();
+        applied = state;
+        return redrawn;
+    }
+
+    /**
+     * Moves the camera so the head of the snake stays away from the edges of the
+     * view, without showing anything beyond the walls. If the head is out of view
+     * altogether, as at the start of a game, the camera is centred on it.
+     *
+     * @param state The snapshot to follow.
+     * @return A boolean indicating whether the camera moved.
+     */
+    private boolean moveCamera(GameState state) {
+        Snake snake = state.getSnake();
+        if (snake == null || snake.getSnakeLength() == 0) {
+            return false;
+        }
+        int x = follow(cameraX, snake.getHeadX(), viewportColumns, state.getColumns());
+        int y = follow(cameraY, snake.getHeadY(), viewportRows, state.getRows());
+        boolean moved = x != cameraX || y != cameraY;
+        cameraX = x;
+        cameraY = y;
+        return moved;
+    }
+
+    /**
+     * Works out the camera position along one axis.
+     *
+     * @param camera The current position of the first cell in view.
+     * @param head   The position of the head of the snake.
+     * @param view   The number of cells in view.
+     * @param size   The number of cells on the board.
+     * @return The new position of the first cell in view.
+     */
+    private static int follow(int camera, int head, int view, int size) {
+        int margin = view / DEAD_ZONE_DIVISOR;
+        if (head < camera || head >= camera + view) {
+            camera = head - view / 2; // Out of view, so centre on the head
+        } else if (head < camera + margin) {
+            camera = head - margin;
+        } else if (head > camera + view - 1 - margin) {
+            camera = head - (view - 1 - margin);
+        }
+        return Math.max(0, Math.min(camera, size - view));
+    }
+
+    /**
+     * Draws every cell in view from the occupancy grid of a snapshot. With the
+     * tiled theme the body tiles are looked up by cell, so the cost depends on
+     * the size of the view rather than the length of the snake.
+     *
+     * @param graphic The graphics of the board image.
+     * @param state   The snapshot to draw.
+     */
+    private void drawView(Graphics graphic, GameState state) {
+        graphic.drawImage(background, 0, 0, viewportColumns * cellSize + 1, viewportRows * cellSize + 1, null);
+        int columns = Math.min(viewportColumns, state.getColumns() - cameraX);
+        int rows = Math.min(viewportRows, state.getRows() - cameraY);
+        for (int row = 0; row < rows; row++) {
+            int y = cameraY + row;
+            for (int column = 0; column < columns; column++) {
+                int x = cameraX + column;
+                if (state.isWall(x, y) && atlas != null) {
+                    atlas.draw(graphic, TileAtlas.WALL, column * cellSize, row * cellSize, cellSize);
+                    continue;
+                } else if (state.isWall(x, y)) {
+                    graphic.setColor(Color.BLACK);
+                } else if (state.isOccupied(x, y) && atlas != null) {
+                    atlas.draw(graphic, segmentTiles[y * tileColumns + x], column * cellSize, row * cellSize, cellSize);
+                    continue;
+                } else if (state.isOccupied(x, y)) {
+                    graphic.setColor(Color.GREEN);
+                } else {
+                    continue;
+                }
+                graphic.fillRect(column * cellSize, row * cellSize, cellSize, cellSize);
+            }
+        }
+        Snake snake = state.getSnake();
+        if (snake != null && snake.getSnakeLength() > 0) {
+            drawSnake(graphic, snake, 0, 1); // The head is not marked in the occupancy grid
+        }
+        drawFood(graphic, state.getFoodLocation());
+    }
+
+    /**
+     * Works out how many ticks apart two snapshots of the same game are.
+     *
+     * @param previous The snapshot drawn last, or null.
+     * @param state    The snapshot to draw.
+     * @return The number of ticks, or -1 if the changes cannot be worked out
+     *         because the snapshot is from a new game or too far apart.
+     */
+    private static int changedTicks(GameState previous, GameState state) {
+        if (previous == null || previous.getSnake() == null || state.getSnake() == null) {
+            return -1;
+        }
+        Snake oldSnake = previous.getSnake();
+        Snake snake = state.getSnake();
+        long ticks = state.getTicks() - previous.getTicks();
+        int oldLength = oldSnake.getSnakeLength();
+        int length = snake.getSnakeLength();
+        long removed = ticks - (length - oldLength); // Tail segments that moved away
+        if (ticks <= 0 || ticks >= length || removed < 0 || removed >= oldLength) {
+            return -1; // A new game, or too far apart to work out the changes
+        }
+        if (snake.getTail() != oldSnake.getSegment(oldLength - 1 - (int) removed)) {
+            return -1; // The tail is not where the old body was, so this is a new game
+        }
+        return (int) ticks;
+    }
+
+    /**
+     * Records the tiles of the snake segments that changed, or of every segment
+     * if the changes cannot be worked out.
+     *
+     * @param state The snapshot to draw.
+     * @param ticks The number of ticks since the last snapshot, or -1.
+     */
+    private void recordTiles(GameState state, int ticks) {
+        Snake snake = state.getSnake();
+        if (snake == null) {
+            return;
+        }
+        int length = snake.getSnakeLength();
+        if (segmentTiles == null || tileColumns != state.getColumns()
+                || segmentTiles.length != state.getColumns() * state.getRows()) {
+            tileColumns = state.getColumns();
+            segmentTiles = new byte[state.getColumns() * state.getRows()];
+            ticks = -1;
+        }
+        if (ticks < 0) {
+            recordTiles(snake, 0, length);
+        } else {
+            // The new head segments, the old head that became the neck and the tail, as in drawChanges()
+            recordTiles(snake, 0, Math.min(length, ticks + 1));
+            recordTiles(snake, length - 1, length);
+        }
+    }
+
+    /**
+     * Records the tiles of a range of snake segments.
+     *
+     * @param snake The snake.
+     * @param from  The index of the first segment.
+     * @param to    The index after the last segment.
+     */
+    private void recordTiles(Snake snake, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int cell = snake.getSegment(i);
+            segmentTiles[Cell.unpackY(cell) * tileColumns + Cell.unpackX(cell)] = (byte) segmentTile(snake, i);
+        }
+    }
+
+    /**
+     * Draws the cells that differ between two snapshots of the same game.
+     *
+     * @param graphic  The graphics of the board image.
+     * @param previous The snapshot drawn last.
+     * @param state    The snapshot to draw.
+     * @param ticks    The number of ticks between them, from changedTicks().
+     */
+    private void drawChanges(Graphics graphic, GameState previous, GameState state, int ticks) {
+        Snake oldSnake = previous.getSnake();
+        Snake snake = state.getSnake();
+        int oldLength = oldSnake.getSnakeLength();
+        int length = snake.getSnakeLength();
+        int removed = ticks - (length - oldLength); // Tail segments that moved away
+
+        // Clear the cells the tail left and the old food, then draw the new head segments and food on top
+        for (int i = oldLength - removed; i < oldLength; i++) {
+            clearCell(graphic, oldSnake.getSegment(i));
+        }
+        Cell oldFood = previous.getFoodLocation();
+        Cell food = state.getFoodLocation();
+        boolean foodMoved = oldFood == null || !oldFood.equals(food);
+        if (foodMoved && oldFood != null) {
+            clearCell(graphic, Cell.pack(oldFood.getX(), oldFood.getY()));
+        }
+        if (atlas != null) {
+            // The old head is now a body segment and the tail may have turned, so both change tiles
+            drawSnake(graphic, snake, 0, Math.min(length, ticks + 1));
+            drawSnake(graphic, snake, length - 1, length);
+        } else {
+            drawSnake(graphic, snake, 0, ticks);
+        }
+        if (foodMoved) {
+            drawFood(graphic, food);
+        }
+    }
+
+    /**
+     * Draws the segments in view from a range of snake segments and records them
+     * as dirty.
+     *
+     * @param graphic The graphics of the board image.
+     * @param snake   The snake to draw.
+     * @param from    The index of the first segment to draw.
+     * @param to      The index after the last segment to draw.
+     */
+    private void drawSnake(Graphics graphic, Snake snake, int from, int to) {
+        graphic.setColor(Color.GREEN);
+        for (int i = from; i < to; i++) {
+            drawCell(graphic, snake.getSegment(i), atlas == null ? -1 : segmentTile(snake, i));
+        }
+    }
+
+    /**
+     * Works out the tile of a snake segment from its neighbouring segments.
+     *
+     * @param snake The snake.
+     * @param index The index of the segment.
+     * @return The index of the tile in the atlas.
+     */
+    private static int segmentTile(Snake snake, int index) {
+        int length = snake.getSnakeLength();
+        int cell = snake.getSegment(index);
+        int next = index + 1 < length ? TileAtlas.side(cell, snake.getSegment(index + 1)) : 0;
+        if (index == 0) {
+            return TileAtlas.head(next);
+        }
+        return next | TileAtlas.side(cell, snake.getSegment(index - 1));
+    }
+
+    /**
+     * Draws the food, if it is in view, and records its cell as dirty.
+     *
+     * @param graphic The graphics of the board image.
+     * @param food    The location of the food, or null.
+     */
+    private void drawFood(Graphics graphic, Cell food) {
+        if (food == null) {
+            return;
+        }
+        graphic.setColor(Color.RED);
+        drawCell(graphic, Cell.pack(food.getX(), food.getY()), atlas == null ? -1 : TileAtlas.FOOD);
+    }
+
+    /**
+     * Draws a tile into a cell, or fills it with the current colour, and records
+     * it as dirty, if it is in view.
+     *
+     * @param graphic The graphics of the board image.
+     * @param cell    The packed board coordinates of the cell.
+     * @param tile    The index of the tile in the atlas, or -1 to fill the cell.
+     */
+    private void drawCell(Graphics graphic, int cell, int tile) {
+        int column = Cell.unpackX(cell) - cameraX;
+        int row = Cell.unpackY(cell) - cameraY;
+        if (isInView(column, row)) {
+            if (tile < 0) {
+                graphic.fillRect(column * cellSize, row * cellSize, cellSize, cellSize);
+            } else {
+                atlas.draw(graphic, tile, column * cellSize, row * cellSize, cellSize);
+            }
+            markDirty(Cell.pack(column, row));
+        }
+    }
+
+    /**
+     * Copies a cell of the background into the board image and records it as
+     * dirty, if it is in view.
+     *
+     * @param graphic The graphics of the board image.
+     * @param cell    The packed board coordinates of the cell.
+     */
+    private void clearCell(Graphics graphic, int cell) {
+        int column = Cell.unpackX(cell) - cameraX;
+        int row = Cell.unpackY(cell) - cameraY;
+        if (isInView(column, row)) {
+            int x = column * cellSize;
+            int y = row * cellSize;
+            graphic.drawImage(background, x, y, x + cellSize, y + cellSize, toDevice(x), toDevice(y),
+                    toDevice(x + cellSize), toDevice(y + cellSize), null);
+            markDirty(Cell.pack(column, row));
+        }
+    }
+
+    /**
+     * Checks whether a cell is inside the viewport.
+     *
+     * @param column The column of the cell relative to the camera.
+     * @param row    The row of the cell relative to the camera.
+     * @return A boolean indicating whether the cell is in view.
+     */
+    private boolean isInView(int column, int row) {
+        return column >= 0 && row >= 0 && column < viewportColumns && row < viewportRows;
+    }
+
+    /**
+     * Records a cell as changed by the current update.
+     *
+     * @param cell The packed viewport coordinates of the cell.
+     */
+    private void markDirty(int cell) {
+        if (dirtyCount == dirtyCells.length) {
+            int[] grown = new int[dirtyCells.length << 1];
+            System.arraycopy(dirtyCells, 0, grown, 0, dirtyCount);
+            dirtyCells = grown;
+        }
+        dirtyCells[dirtyCount++] = cell;
+    }
+
+    /**
+     * Retrieves the number of cells changed by the last update.
+     *
+     * @return The number of dirty cells.
+     */
+    public int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    /**
+     * Retrieves a cell changed by the last update.
+     *
+     * @param index The index of the dirty cell, below getDirtyCount().
+     * @return The packed coordinates of the cell relative to the viewport.
+     */
+    public int getDirtyCell(int index) {
+        return dirtyCells[index];
+    }
+
+    /**
+     * Retrieves the column of the board shown at the left edge of the view.
+     *
+     * @return The x-coordinate of the camera.
+     */
+    public int getCameraX() {
+        return cameraX;
+    }
+
+    /**
+     * Retrieves the row of the board shown at the top edge of the view.
+     *
+     * @return The y-coordinate of the camera.
+     */
+    public int getCameraY() {
+        return cameraY;
+    }
+
+    /**
+     * Retrieves the size of each cell.
+     *
+     * @return The size of each cell in pixels.
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Retrieves the image the view is drawn into, which is larger than the view
+     * on a HiDPI screen.
+     *
+     * @return The board image, or null before the first update.
+     */
+    public BufferedImage getBoardImage() {
+        return board;
+    }
+
+    /**
+     * Paints the board image. Only the part inside the clip of the graphics is
+     * copied, so painting a few cells costs the same on any size of board.
+     *
+     * @param graphic The graphics to paint on.
+     */
+    public void paint(Graphics graphic) {
+        if (board != null) {
+            graphic.drawImage(board, 0, 0, viewportColumns * cellSize + 1, viewportRows * cellSize + 1, null);
+        }
+    }
+}
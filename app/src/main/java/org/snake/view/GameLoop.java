@@ -0,0 +1,177 @@
+package org.snake.view;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the game on its own thread at a fixed tick rate, independent of how long
+ * painting takes on the event dispatch thread.
+ *
+ * The loop measures elapsed time with System.nanoTime() and adds it to an
+ * accumulator. Every whole tick interval in the accumulator runs one tick, so
+ * the average tick rate stays exact even if the thread wakes up late. After the
+ * ticks of an iteration it asks for a frame to be rendered once; the renderer
+ * can skip the frame if the previous one has not been painted yet. If the loop
+ * falls more than MAX_CATCH_UP_TICKS behind, the extra ticks are dropped rather
+ * than run in a burst, and counted as missed.
+ */
+public class GameLoop implements Runnable {
+
+    private static final int MAX_CATCH_UP_TICKS = 5;
+
+    /**
+     * Receives the ticks and render requests of a GameLoop. Both methods are
+     * called on the loop thread.
+     */
+    public interface Listener {
+        /**
+         * Advances the game by one tick.
+         *
+         * @return A boolean indicating whether the loop should keep running.
+         */
+        boolean tick();
+
+        /**
+         * Publishes the latest state of the game for painting.
+         */
+        void render();
+    }
+
+    private final long tickNanos;
+    private final Listener listener;
+    private volatile boolean running;
+    private volatile boolean paused;
+    private volatile long ticks;
+    private volatile long missedTicks;
+    private Thread thread;
+
+    /**
+     * Constructs a GameLoop.
+     *
+     * @param tickNanos The length of a tick in nanoseconds.
+     * @param listener  The listener that runs the ticks and renders the frames.
+     */
+    public GameLoop(long tickNanos, Listener listener) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick length must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts the loop on a new daemon thread.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        paused = false;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop and waits for the current tick to finish, so the game state
+     * is not changed by the loop after this method returns. Must not be called
+     * from a tick.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Checks if the loop is running. A paused loop is still running.
+     *
+     * @return A boolean indicating whether the loop is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Checks if the loop is paused.
+     *
+     * @return A boolean indicating whether the loop is paused.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Pauses or resumes the ticks. Time spent paused is not caught up.
+     *
+     * @param paused A boolean indicating whether the loop should be paused.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * Retrieves the number of ticks run since the loop was created.
+     *
+     * @return The number of ticks.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Retrieves the number of ticks dropped because the loop fell too far behind.
+     *
+     * @return The number of missed ticks.
+     */
+    public long getMissedTicks() {
+        return missedTicks;
+    }
+
+    /**
+     * Runs the loop until it is stopped or a tick ends the game.
+     */
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            int ticksRun = 0;
+            if (paused) {
+                accumulator = 0;
+            }
+            while (accumulator >= tickNanos && running && !paused) {
+                accumulator -= tickNanos;
+                ticks++;
+                ticksRun++;
+                if (!listener.tick()) {
+                    running = false;
+                } else if (ticksRun == MAX_CATCH_UP_TICKS && accumulator >= tickNanos) {
+                    // Too far behind to catch up, so drop the remaining ticks
+                    missedTicks += accumulator / tickNanos;
+                    accumulator %= tickNanos;
+                }
+            }
+            if (ticksRun > 0) {
+                listener.render();
+            }
+
+            // Sleep until the next tick is due
+            if (running) {
+                LockSupport.parkNanos(this, tickNanos - accumulator);
+            }
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package org.snake.view;
 
-import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
-import org.snake.model.Snake;
+import org.snake.engine.GameState;
+import org.snake.engine.StepResult;
 import org.snake.model.SnakegameModel;
 import org.snake.util.Cell;
 
@@ -19,23 +23,43 @@ import org.snake.util.Cell;
  * It handles rendering the game elements such as the snake, food, and game
  * state,
  * as well as user input for controlling the snake's movement.
+ *
+ * The game is advanced by a GameLoop on its own thread. After its ticks the loop
+ * publishes a snapshot of the game, and the panel draws the latest snapshot on
+ * the event dispatch thread. A new snapshot is only taken once the previous one
+ * has been drawn, so frames are skipped when painting falls behind the ticks.
+ *
+ * Snapshots are drawn by a BoardRenderer into a cached image of the board, one
+ * changed cell at a time, and only the changed cells are repainted. Painting
+ * copies the part of that image inside the clip, so the cost of a frame does not
+ * depend on the size of the board or the length of the snake.
+ *
+ * With rendering=active in the config file, the board is instead drawn by a
+ * BoardCanvas on its own render thread at a fixed frame rate, and the panel only
+ * starts new games.
+ *
+ * Pressing H shows a PerformanceHud over the board with the tick and paint
+ * times, frame and tick rates, missed ticks and allocation rate.
  */
 public class GameboardPanel extends JPanel {
 
     private SnakegameModel model;
-    private Timer controlTimer;
+    private GameLoop gameLoop;
     private Timer gameTimer;
-    private Snake snake;
-    private Cell snakeHead;
-    private Cell food;
-    private int cellSize;
+    private volatile GameState frame; // Latest snapshot of the game published for painting
+    private final AtomicBoolean framePending = new AtomicBoolean(); // Whether a snapshot is waiting to be painted
+    private GameState appliedFrame; // Snapshot last drawn into the board image, only used on the event dispatch thread
+    private final BoardRenderer renderer;
+    private BoardCanvas canvas; // Draws the board on its own thread when rendering actively, otherwise null
     private int timerInterval;
     private int gameTime;
-    private char direction;
     private JLabel scoreLabel;
     private JLabel gameTimerLabel;
     private JLabel sessionTimerLabel;
     private static int sessionTimerInterval = 1000;
+    private static final int HUD_SAMPLE_INTERVAL = 500; // Milliseconds between updates of the performance overlay
+    private final PerformanceHud hud = new PerformanceHud();
+    private Timer hudTimer; // Updates the performance overlay while it is shown, otherwise null
 
     /**
      * Constructs a GameboardPanel with the specified model and labels.
@@ -51,12 +75,25 @@ public class GameboardPanel extends JPanel {
         this.gameTimerLabel = gameTimerLabel;
         this.sessionTimerLabel = sessionTimerLabel;
         this.timerInterval = model.getTimerInterval();
-        this.addKeyListener(new MyKeyAdapter());
+        this.renderer = new BoardRenderer(model.getViewportColumns(), model.getViewportRows(), model.getCellSize(),
+                model.getBoardColour(), model.getBoardGridColour(), model.isTiledTheme());
+        MyKeyAdapter keyAdapter = new MyKeyAdapter();
+        this.addKeyListener(keyAdapter);
+
+        if (model.isActiveRendering()) {
+            // The canvas covers the board and lets the game loop publish again once it has drawn a snapshot
+            canvas = new BoardCanvas(model, hud, () -> framePending.set(false));
+            canvas.setBounds(0, 0, model.getBoardSize() + 1, model.getBoardSize() + 1);
+            canvas.addKeyListener(keyAdapter);
+            setLayout(null);
+            add(canvas);
+        }
     }
 
     /**
      * Paints the component, rendering the game board, snake, food, and game over
-     * message if applicable.
+     * message if applicable. The board is copied from the image kept by the
+     * BoardRenderer, so only the part inside the clip is painted.
      *
      * @param graphic The Graphics context used for painting.
      */
@@ -64,117 +101,132 @@ public class GameboardPanel extends JPanel {
     protected void paintComponent(Graphics graphic) {
         super.paintComponent(graphic);
         setFocusable(true); // Make sure the panel can receive key events
-        requestFocusInWindow(); // Request focus for key events
+        if (canvas != null) {
+            canvas.requestFocusInWindow(); // The canvas covers the panel, so it receives the key events
+        } else {
+            requestFocusInWindow(); // Request focus for key events
+        }
 
         if (model.isNewGame()) {
+            stopGameLoop(); // The loop must not move the snake while the new game is set up
             model.setNewGame(false);
             model.startNewGame();
-            prepareBoard(graphic);
             startGame();
         }
 
-        prepareBoard(graphic); // Prepare and draw board
-
-        // Draw the snake head
-        graphic.setColor(Color.GREEN);
-        graphic.fillRect(snakeHead.getX() * cellSize, snakeHead.getY() * cellSize, cellSize, cellSize);
-
-        // Draw the snake body
-        for (Cell bodySegment : snake.getSnake()) {
-            graphic.fillRect(bodySegment.getX() * cellSize, bodySegment.getY() * cellSize, cellSize, cellSize);
+        if (canvas != null) {
+            return; // The board is drawn by the render thread of the canvas
         }
 
-        // Draw the food
-        graphic.setColor(Color.RED);
-        graphic.fillRect(food.getX() * cellSize, food.getY() * cellSize, cellSize, cellSize);
+        boolean timed = hud.isVisible(); // Only read the clock while the overlay is shown
+        long start = timed ? System.nanoTime() : 0;
+        applyFrame(); // Draw the new game, if one was just started
+        renderer.paint(graphic);
 
         // Display game over message if applicable
-        if (model.isGameOver()) {
-            int y = this.getHeight() / 2;
-            Font font = new Font("Arial", Font.PLAIN, 24);
-            graphic.setFont(font);
-            int x;
-
-            if (model.isTimeAllocationUsed()) {
-                x = (this.getWidth() - 600) / 2;
-                graphic.drawString("Game Over. You have used your time allocation for today!", x, y);
-            } else {
-                x = (this.getWidth() - 100) / 2;
-                graphic.drawString("Game Over", x, y);
-            }
+        GameState state = appliedFrame;
+        if (state != null && state.isGameOver()) {
+            drawGameOver(graphic, getWidth(), getHeight(), model.isTimeAllocationUsed());
+        }
+        if (timed) {
+            hud.recordPaint(System.nanoTime() - start);
+            hud.paint(graphic);
         }
     }
 
     /**
-     * Prepares the game board by drawing it and setting up grid lines.
+     * Shows or hides the performance overlay. While it is shown, a timer updates
+     * it from the timings collected since the last update.
+     */
+    private void toggleHud() {
+        hud.setVisible(!hud.isVisible());
+        if (hud.isVisible()) {
+            hudTimer = new Timer(HUD_SAMPLE_INTERVAL, e -> {
+                hud.sample(gameLoop == null ? 0 : gameLoop.getMissedTicks());
+                repaint(0, 0, PerformanceHud.WIDTH, PerformanceHud.HEIGHT);
+            });
+            hudTimer.start();
+        } else if (hudTimer != null) {
+            hudTimer.stop();
+            hudTimer = null;
+        }
+        repaint(0, 0, PerformanceHud.WIDTH, PerformanceHud.HEIGHT);
+    }
+
+    /**
+     * Draws the game over message in the middle of the board.
      *
-     * @param graphic The Graphics context used for drawing.
+     * @param graphic  The Graphics context used for drawing.
+     * @param width    The width of the area the board is shown in.
+     * @param height   The height of the area the board is shown in.
+     * @param timeUsed Whether the game ended because the daily time allocation
+     *                 is used up.
      */
-    private void prepareBoard(Graphics graphic) {
-        int boardSize = model.getBoardSize();
-        int numColumns = model.getNumberOfColumns();
-        cellSize = model.getCellSize();
-
-        // Draw the game board background
-        graphic.setColor(model.getBoardColour());
-        graphic.fillRect(0, 0, boardSize, boardSize);
-
-        // Draw a grid pattern
-        graphic.setColor(model.getBoardGridColour());
-        for (int i = 0; i <= numColumns; i++) {
-            int x = i * cellSize;
-            graphic.drawLine(x, 0, x, boardSize); // Vertical lines
-
-            int y = i * cellSize;
-            graphic.drawLine(0, y, boardSize, y); // Horizontal lines
+    static void drawGameOver(Graphics graphic, int width, int height, boolean timeUsed) {
+        int y = height / 2;
+        Font font = new Font("Arial", Font.PLAIN, 24);
+        graphic.setFont(font);
+        int x;
+
+        if (timeUsed) {
+            x = (width - 600) / 2;
+            graphic.drawString("Game Over. You have used your time allocation for today!", x, y);
+        } else {
+            x = (width - 100) / 2;
+            graphic.drawString("Game Over", x, y);
         }
+    }
 
-        // Draw walls around the board
-        graphic.setColor(Color.BLACK);
-        for (int i = 0; i < numColumns; i++) {
-            graphic.fillRect(0, i * cellSize, cellSize, cellSize); // Left wall
-            graphic.fillRect(i * cellSize, 0, cellSize, cellSize); // Top wall
-            graphic.fillRect((numColumns - 1) * cellSize, i * cellSize, cellSize, cellSize); // Right wall
-            graphic.fillRect(i * cellSize, (numColumns - 1) * cellSize, cellSize, cellSize); // Bottom wall
+    /**
+     * Draws the latest published snapshot into the board image and repaints the
+     * cells that changed. The whole panel is repainted for a new game or when
+     * the game is over, so the message is shown. Called on the event dispatch
+     * thread.
+     */
+    private void applyFrame() {
+        GameState state = frame;
+        if (state == null || state == appliedFrame) {
+            return;
+        }
+        appliedFrame = state;
+        if (renderer.update(state, getGraphicsConfiguration()) || state.isGameOver()) {
+            repaint();
+            return;
+        }
+        // Swing merges the regions into one, but painting a region is only a copy from the board image
+        int cellSize = renderer.getCellSize();
+        for (int i = 0; i < renderer.getDirtyCount(); i++) {
+            int cell = renderer.getDirtyCell(i);
+            repaint(Cell.unpackX(cell) * cellSize, Cell.unpackY(cell) * cellSize, cellSize, cellSize);
         }
     }
 
     /**
      * Starts a new game by initializing scores and placing the snake and food on
-     * the board.
+     * the board. A game loop that is still running is stopped first, so calling
+     * it again never leaves two loops ticking the same game.
      */
     public void startGame() {
+        stopGameLoop();
         scoreLabel.setText("Score: " + model.getCurrentScore());
 
-        // Positioning snake head randomly on the board
-        snake = model.getSnake();
-        snakeHead = snake.getSnakeHead();
-
-        System.out.println("Snake head positioned at x: " + snakeHead.getX());
-
-        // Positioning food randomly on the board
-        food = model.getFoodLocation();
+        // Publish the starting position of the snake and food for painting
+        frame = model.snapshot();
+        if (canvas != null) {
+            canvas.publish(frame);
+        }
 
-        System.out.println("Food positioned at x: " + food.getX());
+        System.out.println("Snake head positioned at x: " + frame.getSnake().getHeadX());
+        if (frame.getFoodLocation() != null) {
+            System.out.println("Food positioned at x: " + frame.getFoodLocation().getX());
+        }
 
-        if (controlTimer != null && !controlTimer.isRunning()) {
-            controlTimer.restart(); // Restart timer if already created and not running
-        } else if (controlTimer == null) {
-            controlTimer = new Timer(timerInterval, new ActionListener() {
-                @Override
-                public void actionPerformed(ActionEvent e) {
-                    moveSnake();
-                    setFocusable(true);
-                    requestFocusInWindow();
-                    repaint();
+        // Run the ticks on the game loop thread, at the configured interval
+        GameLoopListener listener = new GameLoopListener();
+        gameLoop = new GameLoop(timerInterval * 1_000_000L, listener);
+        listener.loop = gameLoop;
+        gameLoop.start();
 
-                    if (model.isGameOver()) {
-                        handleGameOver();
-                    }
-                }
-            });
-            controlTimer.start(); // Start control timer
-        }
         // Display the total game play time for the current day
         sessionTimerLabel.setText("Session time: " + model.getCurrentSessionTime());
 
@@ -191,66 +243,132 @@ public class GameboardPanel extends JPanel {
     }
 
     /**
-     * Handles actions when the game is over.
+     * Stops the game loop if it is running and waits for its current tick to end.
      */
-    private void handleGameOver() {
-        controlTimer.stop();
+    private void stopGameLoop() {
+        if (gameLoop != null) {
+            gameLoop.stop();
+            gameLoop = null;
+        }
+    }
+
+    /**
+     * Publishes a snapshot of the game for painting and asks for it to be drawn,
+     * unless the previous snapshot has not been drawn yet. Called on the game
+     * loop thread.
+     *
+     * @param force Whether to publish even if the previous snapshot is waiting,
+     *              so the final state of a game is always painted.
+     */
+    private void publishFrame(boolean force) {
+        if (framePending.compareAndSet(false, true) || force) {
+            frame = model.snapshot();
+            if (canvas != null) {
+                canvas.publish(frame); // Drawn on the next frame of the render thread
+            } else {
+                SwingUtilities.invokeLater(this::renderFrame);
+            }
+        }
+    }
+
+    /**
+     * Draws the latest published snapshot and lets the game loop publish the
+     * next one. Called on the event dispatch thread.
+     */
+    private void renderFrame() {
+        applyFrame();
+        framePending.set(false);
+    }
+
+    /**
+     * Handles actions when the game is over. Queued by the game loop when the
+     * game ends, with the final score and replay taken on the loop thread, so
+     * nothing of a game started since is stored in its place.
+     *
+     * @param loop   The game loop that ran the game.
+     * @param score  The final score of the game.
+     * @param seed   The seed of the game.
+     * @param replay The encoded replay of the game.
+     */
+    private void handleGameOver(GameLoop loop, int score, long seed, byte[] replay) {
+        if (gameLoop != loop) {
+            return; // New Game was pressed before the game ended, so the game was abandoned
+        }
+        stopGameLoop();
         if (!(this.gameTimer == null)) {
             gameTimer.stop();
             gameTimer = null;
         }
 
-        model.storeGameTime(gameTime);
+        model.storeGameTime(gameTime, score, seed, replay);
         sessionTimerLabel.setText("Session time: " + model.getCurrentSessionTime());
         gameTime = 0;
+        showScoreRank(score);
     }
 
     /**
-     * Moves the snake in its current direction and checks for collisions with food
-     * or walls.
+     * Shows the rank of the score of the game that just ended next to the score.
+     * The rank is read in the background, as the game must first be stored.
+     *
+     * @param score The score of the game.
      */
-    private void moveSnake() {
-        if (!(snakeHead == null)) {
-
-            direction = model.getDirection();
-            Cell storeSnakeHead = new Cell(snakeHead.getX(), snakeHead.getY());
+    private void showScoreRank(int score) {
+        new SwingWorker<long[], Void>() {
+            @Override
+            protected long[] doInBackground() {
+                return new long[] { model.getScoreRank(score), model.getNumberOfScores() };
+            }
 
-            switch (direction) {
-                case 'U':
-                    snakeHead.setY(snakeHead.getY() - 1);
-                    break;
-                case 'D':
-                    snakeHead.setY(snakeHead.getY() + 1);
-                    break;
-                case 'L':
-                    snakeHead.setX(snakeHead.getX() - 1);
-                    break;
-                case 'R':
-                    snakeHead.setX(snakeHead.getX() + 1);
-                    break;
+            @Override
+            protected void done() {
+                try {
+                    long[] rank = get();
+                    if (rank[1] > 0 && model.isGameOver()) { // A new game shows its own score
+                        scoreLabel.setText("Score: " + score + " (#" + rank[0] + " of " + rank[1] + ")");
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
             }
+        }.execute();
+    }
+
+    /**
+     * Runs the ticks of the game loop. Moves the snake in its current direction;
+     * the game rules are applied by the model, so the listener only updates the
+     * score label and publishes the state for painting. Called on the game loop
+     * thread, so the labels are updated on the event dispatch thread.
+     */
+    private class GameLoopListener implements GameLoop.Listener {
+        private GameLoop loop; // Set before the loop starts
 
-            // Check for collision between snake head and food
-            if (model.isCollisionFood()) {
-                scoreLabel.setText("Score: " + model.getCurrentScore());
-                food = model.placeFood();
+        @Override
+        public boolean tick() {
+            boolean timed = hud.isVisible(); // Only read the clock while the overlay is shown
+            long start = timed ? System.nanoTime() : 0;
+            StepResult result = model.step();
+            if (timed) {
+                hud.recordTick(System.nanoTime() - start);
             }
 
-            // Move the snake body
-            for (int i = snake.getSnakeLength() - 1; i > 0; i--) {
-                Cell bodySegment = snake.getBodySegment(i);
-                Cell prevBodySegment = snake.getBodySegment(i - 1);
-                // Move the first body segment to the previous location of the head
-                if (i == 1) {
-                    prevBodySegment = storeSnakeHead;
-                }
-                bodySegment.setX(prevBodySegment.getX());
-                bodySegment.setY(prevBodySegment.getY());
+            if (result == StepResult.ATE_FOOD) {
+                int score = model.getCurrentScore();
+                SwingUtilities.invokeLater(() -> scoreLabel.setText("Score: " + score));
             }
+            if (result.isGameOver()) {
+                publishFrame(true);
+                int score = model.getCurrentScore();
+                long seed = model.getGameSeed();
+                byte[] replay = model.getReplay();
+                SwingUtilities.invokeLater(() -> handleGameOver(loop, score, seed, replay));
+                return false;
+            }
+            return true;
+        }
 
-            // Check for collisions with the game walls and the snake body
-            model.isCollisionWall();
-            model.isCollisionBody();
+        @Override
+        public void render() {
+            publishFrame(false);
         }
     }
 
@@ -261,35 +379,34 @@ public class GameboardPanel extends JPanel {
         @Override
         public void keyPressed(KeyEvent e) {
             switch (e.getKeyCode()) {
+                // Directions are queued and applied one per tick, so quick turns are not lost
                 case KeyEvent.VK_LEFT:
-                    if (model.getDirection() != 'R') {
-                        model.setDirection('L');
-                    }
+                    model.queueDirection('L');
                     break;
 
                 case KeyEvent.VK_RIGHT:
-                    if (model.getDirection() != 'L') {
-                        model.setDirection('R');
-                    }
+                    model.queueDirection('R');
                     break;
 
                 case KeyEvent.VK_UP:
-                    if (model.getDirection() != 'D') {
-                        model.setDirection('U');
-                    }
+                    model.queueDirection('U');
                     break;
 
                 case KeyEvent.VK_DOWN:
-                    if (model.getDirection() != 'U') {
-                        model.setDirection('D');
-                    }
+                    model.queueDirection('D');
+                    break;
+
+                case KeyEvent.VK_A:
+                    model.setAutopilot(!model.isAutopilot()); // Toggle the autopilot
+                    break;
+
+                case KeyEvent.VK_H:
+                    toggleHud(); // Show or hide the performance overlay
                     break;
 
                 case KeyEvent.VK_P:
-                    if (controlTimer != null && controlTimer.isRunning()) {
-                        controlTimer.stop(); // Pause the game if running
-                    } else {
-                        controlTimer.restart(); // Restart timer if paused or stopped
+                    if (gameLoop != null && gameLoop.isRunning()) {
+                        gameLoop.setPaused(!gameLoop.isPaused()); // Pause or resume the game
                     }
                     break;
             }
@@ -0,0 +1,258 @@
+package org.snake.view;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.function.LongSupplier;
+
+/**
+ * An overlay showing how the game performs: the time taken by ticks and by
+ * painting, the frames and ticks achieved per second, the ticks missed by the
+ * game loop and how fast the JVM allocates memory.
+ *
+ * Ticks and paints are timed by their callers, who only read the clock while
+ * the overlay is visible, so a hidden overlay costs one volatile read per tick
+ * and per frame. While it is visible, the timings are collected per interval
+ * and turned into the lines of the overlay by sample(), which is called by a
+ * timer on the event dispatch thread a couple of times per second. The
+ * allocation rate comes from the bytes allocated by all threads, as reported by
+ * the ThreadMXBean of the JVM.
+ */
+public class PerformanceHud {
+
+    public static final int WIDTH = 240; // Size of the overlay in pixels
+    public static final int HEIGHT = 92;
+    private static final int LINE_HEIGHT = 16;
+    private static final int MARGIN = 8;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160); // Translucent, so the board shows through
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+
+    private final LongSupplier allocatedBytes;
+    private final LongSupplier clock;
+    private final Timings ticks = new Timings();
+    private final Timings paints = new Timings();
+    private volatile boolean visible;
+    private volatile String[] lines = new String[0];
+    private long lastSampleNanos;
+    private long lastAllocatedBytes;
+
+    /**
+     * Constructs a hidden PerformanceHud that reads the allocated memory from
+     * the ThreadMXBean of the JVM.
+     */
+    public PerformanceHud() {
+        this(PerformanceHud::readAllocatedBytes, System::nanoTime);
+    }
+
+    /**
+     * Constructs a hidden PerformanceHud with its own sources of measurements.
+     *
+     * @param allocatedBytes Returns the total number of bytes allocated so far,
+     *                       or a negative number if it is not known.
+     * @param clock          Returns the current time in nanoseconds.
+     */
+    PerformanceHud(LongSupplier allocatedBytes, LongSupplier clock) {
+        this.allocatedBytes = allocatedBytes;
+        this.clock = clock;
+    }
+
+    /**
+     * Reads the number of bytes allocated by all threads of the JVM, including
+     * threads that have ended.
+     *
+     * @return The number of bytes, or -1 if the JVM does not measure them.
+     */
+    private static long readAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getTotalThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the overlay is shown, and so whether ticks and paints should
+     * be timed.
+     *
+     * @return A boolean indicating whether the overlay is visible.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Shows or hides the overlay. Showing it starts a new interval, so the first
+     * sample does not include anything from before it was shown.
+     *
+     * @param visible A boolean indicating whether the overlay should be shown.
+     */
+    public void setVisible(boolean visible) {
+        if (visible && !this.visible) {
+            ticks.drain();
+            paints.drain();
+            lastSampleNanos = clock.getAsLong();
+            lastAllocatedBytes = allocatedBytes.getAsLong();
+            lines = new String[] { "Sampling..." };
+        }
+        this.visible = visible;
+    }
+
+    /**
+     * Records the time taken by a tick. Called on the game loop thread.
+     *
+     * @param nanos The length of the tick in nanoseconds.
+     */
+    public void recordTick(long nanos) {
+        ticks.record(nanos);
+    }
+
+    /**
+     * Records the time taken to paint a frame. Called on the thread that paints.
+     *
+     * @param nanos The time spent painting in nanoseconds.
+     */
+    public void recordPaint(long nanos) {
+        paints.record(nanos);
+    }
+
+    /**
+     * Turns the timings collected since the last sample into the lines of the
+     * overlay. Called on the event dispatch thread.
+     *
+     * @param missedTicks The number of ticks the game loop has dropped.
+     */
+    public void sample(long missedTicks) {
+        long now = clock.getAsLong();
+        long elapsed = Math.max(1, now - lastSampleNanos);
+        lastSampleNanos = now;
+        Timings.Sample tick = ticks.drain();
+        Timings.Sample paint = paints.drain();
+
+        long allocated = allocatedBytes.getAsLong();
+        String allocation = "Alloc  n/a";
+        if (allocated >= 0 && lastAllocatedBytes >= 0) {
+            double megabytesPerSecond = (allocated - lastAllocatedBytes) * 1e9 / elapsed / (1024 * 1024);
+            allocation = String.format("Alloc  %.1f MB/s", megabytesPerSecond);
+        }
+        lastAllocatedBytes = allocated;
+
+        lines = new String[] {
+                String.format("Tick   %.2f ms avg  %.2f ms max", tick.getMeanMillis(), tick.getMaxMillis()),
+                String.format("Paint  %.2f ms avg  %.2f ms max", paint.getMeanMillis(), paint.getMaxMillis()),
+                String.format("FPS    %.0f  TPS %.0f", paint.count * 1e9 / elapsed, tick.count * 1e9 / elapsed),
+                "Missed " + missedTicks + " ticks",
+                allocation };
+    }
+
+    /**
+     * Retrieves the lines shown by the overlay.
+     *
+     * @return The lines of text, empty before the overlay is first shown.
+     */
+    public String[] getLines() {
+        return lines;
+    }
+
+    /**
+     * Draws the overlay in the top left corner, if it is visible.
+     *
+     * @param graphic The graphics to draw on.
+     */
+    public void paint(Graphics graphic) {
+        if (!visible) {
+            return;
+        }
+        graphic.setColor(BACKGROUND);
+        graphic.fillRect(0, 0, WIDTH, HEIGHT);
+        graphic.setColor(Color.WHITE);
+        graphic.setFont(FONT);
+        String[] text = lines;
+        for (int i = 0; i < text.length; i++) {
+            graphic.drawString(text[i], MARGIN, MARGIN + (i + 1) * LINE_HEIGHT - 4);
+        }
+    }
+
+    /**
+     * Collects the count, total and maximum of a series of timings between two
+     * samples. Timings are recorded on one thread and drained on another, so the
+     * methods are synchronized; the lock is never contended for long.
+     */
+    static class Timings {
+
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        /**
+         * Adds a timing to the current interval.
+         *
+         * @param nanos The timing in nanoseconds.
+         */
+        synchronized void record(long nanos) {
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        /**
+         * Ends the current interval and starts a new one.
+         *
+         * @return The timings of the interval that ended.
+         */
+        synchronized Sample drain() {
+            Sample sample = new Sample(count, totalNanos, maxNanos);
+            count = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+            return sample;
+        }
+
+        /**
+         * The timings of one interval.
+         */
+        static class Sample {
+
+            final long count;
+            final long totalNanos;
+            final long maxNanos;
+
+            /**
+             * Constructs a Sample.
+             *
+             * @param count      The number of timings.
+             * @param totalNanos The sum of the timings in nanoseconds.
+             * @param maxNanos   The longest timing in nanoseconds.
+             */
+            Sample(long count, long totalNanos, long maxNanos) {
+                this.count = count;
+                this.totalNanos = totalNanos;
+                this.maxNanos = maxNanos;
+            }
+
+            /**
+             * Retrieves the mean of the timings.
+             *
+             * @return The mean in milliseconds, or 0 if there were none.
+             */
+            double getMeanMillis() {
+                return count == 0 ? 0 : totalNanos / 1e6 / count;
+            }
+
+            /**
+             * Retrieves the longest timing.
+             *
+             * @return The maximum in milliseconds.
+             */
+            double getMaxMillis() {
+                return maxNanos / 1e6;
+            }
+        }
+    }
+}
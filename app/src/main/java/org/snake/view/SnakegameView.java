@@ -6,6 +6,7 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.ExecutionException;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.snake.model.SnakegameModel;
@@ -63,6 +64,7 @@ public class SnakegameView extends JFrame {
             + "<h2>How to Play</h2>"
             + "Use arrow keys to move the snake<br>"
             + "Use P to pause the game<br>"
+            + "Use A to toggle the autopilot<br>"
             + "Eat food to grow bigger<br>"
             + "Avoid hitting the walls or yourself</div></html>";
 
@@ -152,8 +154,8 @@ public class SnakegameView extends JFrame {
         scorePanel.add(menuButton);
 
         newGameButton.addActionListener(e -> {
-            gameboardPanel.startGame();
             model.setNewGame(true);
+            gameboardPanel.repaint(); // The new game is set up when the panel is painted
         });
 
         menuButton.addActionListener(e -> {
@@ -255,14 +257,35 @@ public class SnakegameView extends JFrame {
     }
 
     /**
-     * Fetches the leaderboard data from the model and updates the leaderboard
-     * table.
-     * It extracts column names and data from the JSON response and fills the table.
+     * Fetches the leaderboard data from the model in the background and updates
+     * the leaderboard table once it has been read, so the database is never read
+     * on the event dispatch thread.
      */
     private void getLeaderboard() {
-        // Get the leaderboard from the model
-        JSONArray leaderBoard = model.getLeaderboard();
+        new SwingWorker<JSONArray, Void>() {
+            @Override
+            protected JSONArray doInBackground() {
+                return model.getLeaderboard();
+            }
 
+            @Override
+            protected void done() {
+                try {
+                    showLeaderboard(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Updates the leaderboard table.
+     * It extracts column names and data from the JSON response and fills the table.
+     *
+     * @param leaderBoard The leaderboard entries read from the model.
+     */
+    private void showLeaderboard(JSONArray leaderBoard) {
         if (leaderBoard.length() > 0) {
             // Extract column names
             String[] columnNames = JSONObject.getNames(leaderBoard.getJSONObject(0));
@@ -334,14 +357,35 @@ public class SnakegameView extends JFrame {
     }
 
     /**
-     * Fetches the game history data from the model and updates the game history
-     * table.
-     * It extracts column names and data from the JSON response and fills the table.
+     * Fetches the game history data from the model in the background and updates
+     * the game history table once it has been read, so the database is never read
+     * on the event dispatch thread.
      */
     private void getGameHistory() {
-        // Get the leaderboard from the model
-        JSONArray gameHistory = model.getGameHistory();
+        new SwingWorker<JSONArray, Void>() {
+            @Override
+            protected JSONArray doInBackground() {
+                return model.getGameHistory();
+            }
 
+            @Override
+            protected void done() {
+                try {
+                    showGameHistory(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Updates the game history table.
+     * It extracts column names and data from the JSON response and fills the table.
+     *
+     * @param gameHistory The game history entries read from the model.
+     */
+    private void showGameHistory(JSONArray gameHistory) {
         if (gameHistory.length() > 0) {
             // Extract column names
             String[] columnNames = JSONObject.getNames(gameHistory.getJSONObject(0));
@@ -0,0 +1,284 @@
+package org.snake.view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+import org.snake.util.Cell;
+
+/**
+ * A texture atlas holding the tiles of the tiled theme in one image: the body
+ * of the snake for every combination of neighbouring segments (straight pieces,
+ * corners and the tail), the head facing each direction, the food and the wall.
+ *
+ * The tiles are drawn once, at the size a cell takes on the screen in device
+ * pixels, into an image compatible with the screen. Drawing a cell is then a
+ * single drawImage of part of the atlas with no scaling or format conversion,
+ * which costs about the same as the fillRect it replaces. Atlases are cached by
+ * cell size, device scale and background colour, so every renderer on the same
+ * screen shares one.
+ *
+ * Body tiles are indexed by the sides of the cell that connect to the next and
+ * previous segments, as a mask of UP, RIGHT, DOWN and LEFT. A tile with one side
+ * is the tail, with two sides a straight piece or a corner.
+ */
+public class TileAtlas {
+
+    public static final int UP = 1; // Sides of a cell, combined into the index of a body tile
+    public static final int RIGHT = 2;
+    public static final int DOWN = 4;
+    public static final int LEFT = 8;
+    private static final int HEAD = 16; // Index of the head facing up, followed by right, down and left
+    public static final int FOOD = 20;
+    public static final int WALL = 21;
+    private static final int TILES = 22;
+
+    private static final Color SNAKE = new Color(0x2E, 0xA0, 0x43);
+    private static final Color SNAKE_HEAD = new Color(0x1F, 0x7A, 0x30);
+    private static final Color EYE = Color.BLACK;
+    private static final Color FOOD_COLOUR = new Color(0xD0, 0x2B, 0x2B);
+    private static final Color LEAF = new Color(0x3C, 0x8D, 0x2F);
+    private static final Color BRICK = new Color(0x5A, 0x3A, 0x2A);
+    private static final Color MORTAR = new Color(0x20, 0x16, 0x10);
+
+    private static final Map<String, TileAtlas> CACHE = new HashMap<>(); // Guarded by the class
+
+    private final BufferedImage image;
+    private final int tileSize; // Size of a tile in device pixels
+
+    /**
+     * Constructs a TileAtlas and draws its tiles.
+     *
+     * @param tileSize      The size of a tile in device pixels.
+     * @param background    The colour behind the snake and food.
+     * @param configuration The configuration of the screen, or null to use a
+     *                      default image type.
+     */
+    private TileAtlas(int tileSize, Color background, GraphicsConfiguration configuration) {
+        this.tileSize = tileSize;
+        int width = tileSize * TILES;
+        this.image = configuration != null
+                ? configuration.createCompatibleImage(width, tileSize, Transparency.OPAQUE)
+                : new BufferedImage(width, tileSize, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D graphic = image.createGraphics();
+        graphic.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        for (int tile = 0; tile < TILES; tile++) {
+            Graphics2D tileGraphic = (Graphics2D) graphic.create(tile * tileSize, 0, tileSize, tileSize);
+            tileGraphic.setColor(background);
+            tileGraphic.fillRect(0, 0, tileSize, tileSize);
+            if (tile < HEAD) {
+                drawBody(tileGraphic, tile);
+            } else if (tile < FOOD) {
+                drawHead(tileGraphic, 1 << (tile - HEAD));
+            } else if (tile == FOOD) {
+                drawFood(tileGraphic);
+            } else {
+                drawWall(tileGraphic);
+            }
+            tileGraphic.dispose();
+        }
+        graphic.dispose();
+    }
+
+    /**
+     * Retrieves the atlas for a cell size on a screen, drawing it the first time.
+     *
+     * @param cellSize      The size of a cell in pixels before scaling.
+     * @param scale         The scale of the screen, 2 on most HiDPI screens.
+     * @param background    The colour behind the snake and food.
+     * @param configuration The configuration of the screen, or null.
+     * @return The atlas.
+     */
+    public static synchronized TileAtlas get(int cellSize, double scale, Color background,
+            GraphicsConfiguration configuration) {
+        int tileSize = Math.max(1, (int) Math.round(cellSize * scale));
+        String key = tileSize + ":" + background.getRGB();
+        TileAtlas atlas = CACHE.get(key);
+        if (atlas == null) {
+            atlas = new TileAtlas(tileSize, background, configuration);
+            CACHE.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * Retrieves the side of a cell that touches a neighbouring cell.
+     *
+     * @param cell      The packed coordinates of the cell.
+     * @param neighbour The packed coordinates of the neighbour.
+     * @return UP, RIGHT, DOWN or LEFT, or 0 if the cells do not touch.
+     */
+    public static int side(int cell, int neighbour) {
+        int dx = Cell.unpackX(neighbour) - Cell.unpackX(cell);
+        int dy = Cell.unpackY(neighbour) - Cell.unpackY(cell);
+        if (dx == 0 && dy == -1) {
+            return UP;
+        } else if (dx == 1 && dy == 0) {
+            return RIGHT;
+        } else if (dx == 0 && dy == 1) {
+            return DOWN;
+        } else if (dx == -1 && dy == 0) {
+            return LEFT;
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the tile of the head.
+     *
+     * @param neck The side of the head that touches the first body segment, or 0
+     *             if the snake has no body.
+     * @return The index of the head facing away from its body, or up if it has none.
+     */
+    public static int head(int neck) {
+        if (neck == 0) {
+            return HEAD;
+        }
+        int facing = ((neck << 2) | (neck >>> 2)) & (UP | RIGHT | DOWN | LEFT); // The opposite side
+        return HEAD + Integer.numberOfTrailingZeros(facing);
+    }
+
+    /**
+     * Draws a tile into a cell.
+     *
+     * @param graphic The graphics to draw on.
+     * @param tile    The index of the tile.
+     * @param x       The x-coordinate of the cell in pixels before scaling.
+     * @param y       The y-coordinate of the cell in pixels before scaling.
+     * @param size    The size of the cell in pixels before scaling.
+     */
+    public void draw(Graphics graphic, int tile, int x, int y, int size) {
+        int source = tile * tileSize;
+        graphic.drawImage(image, x, y, x + size, y + size, source, 0, source + tileSize, tileSize, null);
+    }
+
+    /**
+     * Retrieves the size of a tile.
+     *
+     * @return The size in device pixels.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Draws a body tile: a band from the middle of the cell to each connected
+     * side, with a rounded end if only one side is connected.
+     *
+     * @param graphic The graphics of the tile.
+     * @param sides   The connected sides.
+     */
+    private void drawBody(Graphics2D graphic, int sides) {
+        int inset = Math.max(1, tileSize / 6);
+        int band = tileSize - 2 * inset;
+        graphic.setColor(SNAKE);
+        drawBands(graphic, sides, inset, band);
+        if (Integer.bitCount(sides) == 1) {
+            graphic.fillOval(inset, inset, band, band); // The tail ends in a round tip
+        } else {
+            graphic.fillRect(inset, inset, band, band);
+        }
+    }
+
+    /**
+     * Draws the head facing one direction: a band to the neck, a round head and
+     * two eyes towards the front.
+     *
+     * @param graphic The graphics of the tile.
+     * @param facing  The side the head faces.
+     */
+    private void drawHead(Graphics2D graphic, int facing) {
+        int inset = Math.max(1, tileSize / 10);
+        int band = tileSize - 2 * inset;
+        int neck = ((facing << 2) | (facing >>> 2)) & (UP | RIGHT | DOWN | LEFT);
+        graphic.setColor(SNAKE_HEAD);
+        drawBands(graphic, neck, Math.max(1, tileSize / 6), tileSize - 2 * Math.max(1, tileSize / 6));
+        graphic.fillOval(inset, inset, band, band);
+
+        // Two eyes, a quarter of the way in from the front and either side of the middle
+        int eye = Math.max(1, tileSize / 6);
+        int front = tileSize / 4 - eye / 2;
+        int near = tileSize / 3 - eye / 2;
+        int far = tileSize - tileSize / 3 - eye / 2;
+        graphic.setColor(EYE);
+        switch (facing) {
+            case UP:
+                graphic.fillOval(near, front, eye, eye);
+                graphic.fillOval(far, front, eye, eye);
+                break;
+            case DOWN:
+                graphic.fillOval(near, tileSize - front - eye, eye, eye);
+                graphic.fillOval(far, tileSize - front - eye, eye, eye);
+                break;
+            case LEFT:
+                graphic.fillOval(front, near, eye, eye);
+                graphic.fillOval(front, far, eye, eye);
+                break;
+            default:
+                graphic.fillOval(tileSize - front - eye, near, eye, eye);
+                graphic.fillOval(tileSize - front - eye, far, eye, eye);
+                break;
+        }
+    }
+
+    /**
+     * Draws a band from the middle of the tile to each of the given sides.
+     *
+     * @param graphic The graphics of the tile.
+     * @param sides   The sides to draw bands to.
+     * @param inset   The distance of the band from the edges it runs along.
+     * @param band    The width of the band.
+     */
+    private void drawBands(Graphics2D graphic, int sides, int inset, int band) {
+        int half = tileSize / 2;
+        if ((sides & UP) != 0) {
+            graphic.fillRect(inset, 0, band, half);
+        }
+        if ((sides & DOWN) != 0) {
+            graphic.fillRect(inset, half, band, tileSize - half);
+        }
+        if ((sides & LEFT) != 0) {
+            graphic.fillRect(0, inset, half, band);
+        }
+        if ((sides & RIGHT) != 0) {
+            graphic.fillRect(half, inset, tileSize - half, band);
+        }
+    }
+
+    /**
+     * Draws the food: an apple with a leaf.
+     *
+     * @param graphic The graphics of the tile.
+     */
+    private void drawFood(Graphics2D graphic) {
+        int inset = Math.max(1, tileSize / 8);
+        graphic.setColor(FOOD_COLOUR);
+        graphic.fillOval(inset, inset + inset / 2, tileSize - 2 * inset, tileSize - 2 * inset);
+        graphic.setColor(LEAF);
+        graphic.fillOval(tileSize / 2, 0, Math.max(1, tileSize / 4), Math.max(1, tileSize / 6));
+    }
+
+    /**
+     * Draws the wall: two rows of bricks.
+     *
+     * @param graphic The graphics of the tile.
+     */
+    private void drawWall(Graphics2D graphic) {
+        graphic.setColor(BRICK);
+        graphic.fillRect(0, 0, tileSize, tileSize);
+        graphic.setColor(MORTAR);
+        graphic.setStroke(new BasicStroke(Math.max(1, tileSize / 16f)));
+        int half = tileSize / 2;
+        graphic.drawLine(0, 0, tileSize, 0);
+        graphic.drawLine(0, half, tileSize, half);
+        graphic.drawLine(half, 0, half, half); // Joints are offset between the rows
+        graphic.drawLine(0, half, 0, tileSize);
+    }
+}
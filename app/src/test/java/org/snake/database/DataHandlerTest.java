@@ -7,6 +7,8 @@ import java.sql.ResultSet;
 import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import org.json.JSONArray;
 
 public class DataHandlerTest {
 
@@ -19,11 +21,14 @@ public class DataHandlerTest {
 
     @AfterEach
     public void tearDown() throws Exception {
+        dataHandler.close();
+
         // Clean up database after each test
         try (Connection conn = DriverManager.getConnection("jdbc:sqlite:snakegame.db");
              Statement stmt = conn.createStatement()) {
             stmt.execute("DROP TABLE IF EXISTS game_history");
             stmt.execute("DROP TABLE IF EXISTS game_session");
+            stmt.execute("DROP TABLE IF EXISTS game_replay");
         }
     }
 
@@ -131,4 +136,144 @@ public class DataHandlerTest {
         assertNotNull(sessionData, "Returned JSON data should not be null");
         assertTrue(sessionData.contains("7200"), "JSON data should contain inserted duration for today");
     }
+
+    @Test
+    public void testRepeatedInsertsReuseConnection() {
+        long first = dataHandler.insertGameTable(10, 1);
+        long second = dataHandler.insertGameTable(20, 2);
+        long third = dataHandler.insertGameTable(30, 3);
+
+        assertTrue(first > 0, "RowId should be greater than 0 after insert");
+        assertEquals(first + 1, second, "Each insert should return its own row ID");
+        assertEquals(second + 1, third);
+        assertTrue(dataHandler.readGameTable().contains("30"), "Reads should see the inserts of the same connection");
+    }
+
+    @Test
+    public void testReopensAfterClose() {
+        dataHandler.insertGameTable(120, 500);
+        dataHandler.close();
+        long rowId = dataHandler.insertGameTable(150, 1000);
+
+        assertTrue(rowId > 0, "A closed handler should open a new connection when used again");
+        assertTrue(dataHandler.readLeaderboard(5).contains("1000"));
+    }
+
+    @Test
+    public void testClosesConnectionWhenNotKeptOpen() {
+        DataHandler handler = new DataHandler("jdbc:sqlite:snakegame.db", false);
+        assertFalse(handler.isConnected(), "Creating the tables should not leave the connection open");
+        long first = handler.insertGameTable(120, 500);
+        assertFalse(handler.isConnected(), "The connection should be closed after the call");
+        long second = handler.insertGameTable(150, 1000);
+
+        assertEquals(first + 1, second, "A new connection should be opened for the next call");
+        assertFalse(handler.isConnected());
+        dataHandler.readGameTable();
+        assertTrue(dataHandler.isConnected(), "A handler that keeps its connection should still hold it after a call");
+    }
+
+    @Test
+    public void testUsesWriteAheadLog() {
+        dataHandler.insertGameTable(120, 500);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:snakegame.db");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(rs.next());
+            assertEquals("wal", rs.getString(1), "The database should be in write-ahead logging mode");
+        } catch (Exception e) {
+            fail("Exception occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInsertAndReadReplay() {
+        byte[] replay = { 1, 25, 2, 0, 0, 0, 0, 0, 0, 0, 7, 3, 1, 0 };
+        long rowId = dataHandler.insertGameTable(120, 500);
+        dataHandler.insertReplayTable(rowId, 7L, replay);
+
+        assertArrayEquals(replay, dataHandler.readReplay(rowId), "Stored replay should be read back unchanged");
+        assertNull(dataHandler.readReplay(rowId + 1), "Games without a replay should return null");
+    }
+
+    @Test
+    public void testStoreResultsInOneTransaction() {
+        LocalDateTime finishedAt = LocalDateTime.now();
+        byte[] replay = { 1, 2, 3 };
+        boolean stored = dataHandler.storeResults(List.of(
+                new GameResult(finishedAt, 10, 100, 10, 1, 7L, replay),
+                new GameResult(finishedAt, 20, 200, 30, 2, 8L, replay)));
+
+        assertTrue(stored, "The batch should be committed");
+        String games = dataHandler.readGameTable();
+        assertTrue(games.contains("100") && games.contains("200"), "Both games should be stored");
+        assertTrue(dataHandler.readSessionTable().contains("30"), "The session totals should be stored");
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:snakegame.db");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM game_replay")) {
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1), "Each game should have its replay");
+        } catch (Exception e) {
+            fail("Exception occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFailedBatchIsRolledBack() throws Exception {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:snakegame.db");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE game_replay"); // The last insert of the batch fails
+        }
+        boolean stored = dataHandler.storeResults(List.of(
+                new GameResult(LocalDateTime.now(), 10, 4321, 10, 1, 7L, new byte[] { 1 })));
+
+        assertFalse(stored, "The batch should fail");
+        assertFalse(dataHandler.readGameTable().contains("4321"), "No part of a failed batch should be stored");
+    }
+
+    @Test
+    public void testLeaderboardIsUpdatedByInserts() {
+        dataHandler.insertGameTable(120, 500);
+        dataHandler.insertGameTable(150, 1000);
+        assertTrue(dataHandler.readLeaderboard(2).contains("1000"));
+
+        dataHandler.insertGameTable(90, 1500);
+        dataHandler.storeResults(List.of(new GameResult(LocalDateTime.now(), 60, 1200, 60, 1, 7L, new byte[] { 1 })));
+        JSONArray leaderboard = new JSONArray(dataHandler.readLeaderboard(2));
+
+        assertEquals(2, leaderboard.length());
+        assertEquals(1500, leaderboard.getJSONObject(0).getInt("score"), "Inserted games should reach the leaderboard");
+        assertEquals(1200, leaderboard.getJSONObject(1).getInt("score"), "Stored results should reach the leaderboard");
+        assertEquals(4, new JSONArray(dataHandler.readLeaderboard(5)).length(),
+                "Asking for more scores should read them from the table");
+    }
+
+    @Test
+    public void testScoreIndexExists() {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:snakegame.db");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type='index' AND tbl_name='game_history'")) {
+            assertTrue(rs.next(), "The game history should have an index on the score");
+            assertEquals("game_history_score", rs.getString(1));
+        } catch (Exception e) {
+            fail("Exception occurred: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testScoreRankIsUpdatedByInserts() {
+        dataHandler.insertGameTable(120, 500);
+        dataHandler.insertGameTable(150, 1000);
+        assertEquals(2, dataHandler.readScoreRank(500), "One game scored more than 500");
+        assertEquals(2, dataHandler.readScoreCount());
+
+        dataHandler.insertGameTable(90, 1500);
+        dataHandler.storeResults(List.of(new GameResult(LocalDateTime.now(), 60, 700, 60, 1, 7L, new byte[] { 1 })));
+
+        assertEquals(4, dataHandler.readScoreCount(), "Stored games should be ranked");
+        assertEquals(4, dataHandler.readScoreRank(500));
+        assertEquals(1, dataHandler.readScoreRank(1500));
+    }
 }
@@ -0,0 +1,177 @@
+package org.snake.database;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ResultWriterTest {
+
+    /**
+     * A DataHandler that records the batches it is asked to store instead of
+     * writing them, optionally waiting on a latch or failing.
+     */
+    private static class RecordingHandler extends DataHandler {
+        private final List<List<GameResult>> batches = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean storedOnVirtualThread;
+        private final CountDownLatch release;
+        private volatile int failuresLeft;
+
+        RecordingHandler(CountDownLatch release, int failures) {
+            super("jdbc:sqlite::memory:");
+            this.release = release;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public synchronized boolean storeResults(List<GameResult> results) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            storedOnVirtualThread |= Thread.currentThread().isVirtual();
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                return false;
+            }
+            batches.add(new ArrayList<>(results));
+            return true;
+        }
+
+        List<Integer> scores() {
+            List<Integer> scores = new ArrayList<>();
+            synchronized (batches) {
+                for (List<GameResult> batch : batches) {
+                    for (GameResult result : batch) {
+                        scores.add(result.getScore());
+                    }
+                }
+            }
+            return scores;
+        }
+    }
+
+    private static GameResult result(int score) {
+        return new GameResult(LocalDateTime.now(), 1, score, score, score, score, new byte[0]);
+    }
+
+    @Test
+    public void testResultsAreStoredInOrder() {
+        RecordingHandler handler = new RecordingHandler(new CountDownLatch(0), 0);
+        ResultWriter writer = new ResultWriter(handler);
+        for (int i = 0; i < 500; i++) {
+            writer.submit(result(i));
+        }
+        writer.flush();
+
+        List<Integer> scores = handler.scores();
+        assertEquals(500, scores.size(), "Every result should be stored once");
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, scores.get(i), "Results should be stored in the order they were submitted");
+        }
+        assertFalse(writer.hasPending());
+        writer.close();
+    }
+
+    @Test
+    public void testResultsAreStoredOnPlatformThreads() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler(new CountDownLatch(0), 0);
+        ResultWriter writer = new ResultWriter(handler);
+        Thread session = Thread.ofVirtual().start(() -> {
+            for (int i = 0; i < 10; i++) {
+                writer.submit(result(i));
+            }
+        });
+        session.join();
+        writer.flush();
+
+        assertEquals(10, handler.scores().size());
+        assertFalse(handler.storedOnVirtualThread, "JDBC calls must not pin the carrier of a virtual thread");
+        writer.close();
+    }
+
+    @Test
+    public void testWaitingResultsShareOneTransaction() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler handler = new RecordingHandler(release, 0);
+        ResultWriter writer = new ResultWriter(handler);
+        writer.submit(result(0)); // Taken by the writer, which then waits on the latch
+        for (int i = 1; i <= 10; i++) {
+            writer.submit(result(i));
+        }
+        assertTrue(writer.hasPending());
+        release.countDown();
+        writer.flush();
+
+        assertEquals(11, handler.scores().size());
+        assertTrue(writer.getBatches() < 11, "Results that queued up should be stored together, not "
+                + writer.getBatches() + " transactions");
+        writer.close();
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() {
+        RecordingHandler handler = new RecordingHandler(new CountDownLatch(0), 2);
+        ResultWriter writer = new ResultWriter(handler);
+        writer.submit(result(42));
+        writer.flush();
+
+        assertEquals(List.of(42), handler.scores(), "The batch should be stored on the third attempt");
+        assertEquals(0, writer.getFailures());
+        writer.close();
+    }
+
+    @Test
+    public void testLaterResultsWaitForFailedBatch() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler handler = new RecordingHandler(release, 5); // More failures than attempts after closing
+        ResultWriter writer = new ResultWriter(handler);
+        writer.submit(result(1)); // Taken by the writer, which then waits on the latch
+        writer.submit(result(2));
+        writer.submit(result(3));
+        release.countDown();
+        writer.flush();
+
+        List<Integer> scores = handler.scores();
+        assertEquals(List.of(1, 2, 3), scores, "Later results should only be stored after the failed one");
+        assertEquals(0, writer.getFailures(), "An open writer should keep trying instead of giving up");
+        writer.close();
+    }
+
+    @Test
+    public void testCloseGivesUpWhenDatabaseKeepsFailing() {
+        RecordingHandler handler = new RecordingHandler(new CountDownLatch(0), Integer.MAX_VALUE);
+        ResultWriter writer = new ResultWriter(handler);
+        writer.submit(result(1));
+        writer.submit(result(2));
+        writer.close();
+
+        assertEquals(List.of(), handler.scores());
+        assertEquals(2, writer.getFailures(), "Closing should give up the results that cannot be stored");
+        assertFalse(writer.hasPending());
+
+        handler.failuresLeft = 0;
+        writer.submit(result(3));
+        assertEquals(List.of(), handler.scores(), "No result should be stored after an earlier one was given up");
+        assertEquals(3, writer.getFailures());
+    }
+
+    @Test
+    public void testCloseStoresWaitingResults() {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler handler = new RecordingHandler(release, 0);
+        ResultWriter writer = new ResultWriter(handler);
+        writer.submit(result(1));
+        writer.submit(result(2));
+        release.countDown();
+        writer.close();
+
+        assertEquals(List.of(1, 2), handler.scores(), "Closing should store everything still queued");
+
+        writer.submit(result(3));
+        assertEquals(List.of(1, 2, 3), handler.scores(), "Results after closing should be stored straight away");
+    }
+}
@@ -0,0 +1,89 @@
+package org.snake.database;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.snake.engine.GameEngine;
+
+public class ScoreRanksTest {
+
+    @Test
+    public void testRankCountsHigherScores() {
+        ScoreRanks ranks = new ScoreRanks();
+        for (int score : new int[] { 10, 40, 20, 40, 30 }) {
+            ranks.add(score);
+        }
+
+        assertEquals(5, ranks.size());
+        assertEquals(1, ranks.rank(50), "A new best score should rank first");
+        assertEquals(1, ranks.rank(40), "Equal scores should share a rank");
+        assertEquals(3, ranks.rank(30));
+        assertEquals(5, ranks.rank(10));
+        assertEquals(6, ranks.rank(0), "A score below every game should rank last");
+    }
+
+    @Test
+    public void testGrowsForHighScores() {
+        ScoreRanks ranks = new ScoreRanks();
+        ranks.add(5);
+        ranks.add(3);
+        ranks.add(100_000); // Above the buckets, so kept with the high scores
+        ranks.add(1_000);
+
+        assertEquals(0, ranks.countAbove(100_000));
+        assertEquals(1, ranks.countAbove(1_000));
+        assertEquals(2, ranks.countAbove(5));
+        assertEquals(3, ranks.countAbove(4));
+        assertEquals(4, ranks.countAbove(-1));
+        assertEquals(0, ranks.countAbove(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMatchesCountingEveryScore() {
+        ScoreRanks ranks = new ScoreRanks();
+        List<Integer> scores = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            int score = random.nextInt(i < 1_000 ? 50 : 5_000);
+            ranks.add(score);
+            scores.add(score);
+        }
+
+        for (int score = -1; score < 5_100; score += 7) {
+            int above = 0;
+            for (int other : scores) {
+                if (other > score) {
+                    above++;
+                }
+            }
+            assertEquals(above, ranks.countAbove(score), "Games above " + score);
+        }
+    }
+
+    @Test
+    public void testVeryHighScores() {
+        ScoreRanks ranks = new ScoreRanks();
+        ranks.add(Integer.MAX_VALUE); // Would need 2^31 buckets
+        ranks.add(GameEngine.MAX_CELLS); // A full board of the largest size
+        ranks.add(GameEngine.MAX_CELLS);
+        ranks.add(70_000);
+        ranks.add(65_535); // The highest score with a bucket
+        ranks.add(12);
+
+        assertEquals(6, ranks.size());
+        assertEquals(0, ranks.countAbove(Integer.MAX_VALUE));
+        assertEquals(1, ranks.countAbove(GameEngine.MAX_CELLS));
+        assertEquals(3, ranks.countAbove(GameEngine.MAX_CELLS - 1), "Equal high scores should both count");
+        assertEquals(3, ranks.countAbove(70_000));
+        assertEquals(4, ranks.countAbove(65_535));
+        assertEquals(5, ranks.countAbove(1_000));
+        assertEquals(6, ranks.countAbove(11));
+        assertEquals(2, ranks.rank(GameEngine.MAX_CELLS));
+    }
+
+    @Test
+    public void testNegativeScoreIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ScoreRanks().add(-1));
+    }
+}
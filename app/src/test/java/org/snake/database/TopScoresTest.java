@@ -0,0 +1,65 @@
+package org.snake.database;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.json.JSONArray;
+
+public class TopScoresTest {
+
+    @Test
+    public void testKeepsHighestScoresInOrder() {
+        TopScores topScores = new TopScores(3);
+        int[] scores = { 5, 9, 1, 7, 3, 8 };
+        for (int score : scores) {
+            topScores.add("t" + score, score, score);
+        }
+
+        assertEquals(3, topScores.size());
+        assertEquals(9, topScores.getScore(0));
+        assertEquals(8, topScores.getScore(1));
+        assertEquals(7, topScores.getScore(2));
+    }
+
+    @Test
+    public void testEqualScoresKeepTheEarlierGameFirst() {
+        TopScores topScores = new TopScores(2);
+        topScores.add("first", 1, 10);
+        topScores.add("second", 2, 10);
+        assertFalse(topScores.add("third", 3, 10), "An equal score should not push out an earlier game");
+
+        JSONArray entries = topScores.toJSONArray(2);
+        assertEquals("first", entries.getJSONObject(0).getString("timestamp"));
+        assertEquals("second", entries.getJSONObject(1).getString("timestamp"));
+    }
+
+    @Test
+    public void testLowScoreIsNotKeptWhenFull() {
+        TopScores topScores = new TopScores(2);
+        assertTrue(topScores.add("a", 1, 10));
+        assertTrue(topScores.add("b", 1, 20));
+        assertFalse(topScores.add("c", 1, 5));
+        assertTrue(topScores.add("d", 1, 15));
+        assertEquals(20, topScores.getScore(0));
+        assertEquals(15, topScores.getScore(1));
+    }
+
+    @Test
+    public void testToJSONArrayReturnsRequestedCount() {
+        TopScores topScores = new TopScores(5);
+        topScores.add("2024-01-01 10:00:00", 30, 400);
+        topScores.add("2024-01-02 10:00:00", 60, 900);
+
+        JSONArray entries = topScores.toJSONArray(1);
+        assertEquals(1, entries.length());
+        assertEquals(900, entries.getJSONObject(0).getInt("score"));
+        assertEquals(60, entries.getJSONObject(0).getInt("duration"));
+        assertEquals(2, topScores.toJSONArray(10).length(), "Only the entries kept should be returned");
+    }
+
+    @Test
+    public void testZeroCapacity() {
+        TopScores topScores = new TopScores(0);
+        assertFalse(topScores.add("a", 1, 10));
+        assertEquals(0, topScores.toJSONArray(5).length());
+        assertThrows(IllegalArgumentException.class, () -> new TopScores(-1));
+    }
+}
@@ -0,0 +1,153 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snake.model.Snake;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class ArenaEngineTest {
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Creates an arena without food and puts its snakes at the given heads, with
+     * their bodies extending downwards.
+     */
+    private ArenaEngine arenaWithSnakes(int snakeLength, int... heads) {
+        int snakes = heads.length / 2;
+        ArenaEngine arena = new ArenaEngine(20, 20, snakes, snakeLength, 0, 1, pool);
+        for (int i = 0; i < snakes; i++) {
+            arena.removeSnake(i);
+        }
+        for (int i = 0; i < snakes; i++) {
+            assertTrue(arena.placeSnake(i, heads[2 * i], heads[2 * i + 1]), "Snake " + i + " should fit");
+        }
+        return arena;
+    }
+
+    @Test
+    public void testSnakesMoveAndTrackOccupancy() {
+        ArenaEngine arena = arenaWithSnakes(3, 5, 5, 10, 5);
+        arena.step(new char[] { 'U', 'R' });
+
+        assertEquals(StepResult.MOVED, arena.getResult(0));
+        assertEquals(StepResult.MOVED, arena.getResult(1));
+        assertEquals(0, arena.getOwner(5, 4), "Head should cover the cell it moved into");
+        assertEquals(-1, arena.getOwner(5, 7), "Tail should leave its cell");
+        assertEquals(1, arena.getOwner(11, 5));
+        assertEquals(-1, arena.getOwner(10, 7));
+    }
+
+    @Test
+    public void testHeadToHeadKillsBoth() {
+        // Both heads move into (6, 5)
+        ArenaEngine arena = arenaWithSnakes(3, 5, 5, 7, 5);
+        arena.step(new char[] { 'R', 'L' });
+
+        assertEquals(StepResult.HIT_BODY, arena.getResult(0));
+        assertEquals(StepResult.HIT_BODY, arena.getResult(1));
+        assertEquals(2, arena.getDeaths());
+    }
+
+    @Test
+    public void testHeadToBodyKillsOnlyTheMover() {
+        // Snake 0 moves into the middle of snake 1, which moves away upwards
+        ArenaEngine arena = arenaWithSnakes(3, 5, 6, 6, 5);
+        arena.step(new char[] { 'R', 'U' });
+
+        assertEquals(StepResult.HIT_BODY, arena.getResult(0));
+        assertEquals(StepResult.MOVED, arena.getResult(1));
+        assertEquals(1, arena.getDeaths());
+    }
+
+    @Test
+    public void testFollowingATailIsSafe() {
+        // Snake 0 moves into the tail of snake 1, which moves on at the same time
+        ArenaEngine arena = arenaWithSnakes(3, 5, 7, 6, 5);
+        arena.step(new char[] { 'R', 'U' });
+
+        assertEquals(StepResult.MOVED, arena.getResult(0));
+        assertEquals(StepResult.MOVED, arena.getResult(1));
+        assertEquals(0, arena.getOwner(6, 7));
+    }
+
+    @Test
+    public void testTailOfGrowingSnakeStays() {
+        ArenaEngine arena = arenaWithSnakes(3, 5, 7, 6, 5);
+        assertTrue(arena.placeFood(6, 4));
+        arena.step(new char[] { 'R', 'U' });
+
+        assertEquals(StepResult.HIT_BODY, arena.getResult(0), "Tail of a snake that eats does not move");
+        assertEquals(StepResult.ATE_FOOD, arena.getResult(1));
+        assertEquals(1, arena.getScore(1));
+        assertEquals(4, arena.getSnake(1).getSnakeLength());
+        assertFalse(arena.isFood(6, 4));
+    }
+
+    @Test
+    public void testWallKillsAndSnakeRespawns() {
+        ArenaEngine arena = arenaWithSnakes(3, 1, 5);
+        arena.step(new char[] { 'L' });
+
+        assertEquals(StepResult.HIT_WALL, arena.getResult(0));
+        assertTrue(arena.isAlive(0), "Dead snake should be put back on the board");
+        assertEquals(3, arena.getSnake(0).getSnakeLength());
+    }
+
+    @Test
+    public void testSameResultOnAnyNumberOfThreads() {
+        ForkJoinPool single = new ForkJoinPool(1);
+        ArenaEngine sequential = new ArenaEngine(60, 60, 200, 4, 50, 9, single);
+        ArenaEngine parallel = new ArenaEngine(60, 60, 200, 4, 50, 9, pool);
+
+        Random random = new Random(0);
+        char[] directions = new char[200];
+        for (int tick = 0; tick < 300; tick++) {
+            for (int i = 0; i < directions.length; i++) {
+                directions[i] = VecEnv.ACTIONS.charAt(random.nextInt(4));
+            }
+            sequential.step(directions);
+            parallel.step(directions);
+        }
+        single.shutdown();
+
+        assertTrue(sequential.getDeaths() > 0, "Random moves should cause collisions");
+        assertEquals(sequential.getDeaths(), parallel.getDeaths());
+        assertEquals(sequential.getFoodCount(), parallel.getFoodCount());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(sequential.getScore(i), parallel.getScore(i));
+            assertEquals(sequential.getResult(i), parallel.getResult(i));
+            Snake expected = sequential.getSnake(i);
+            Snake actual = parallel.getSnake(i);
+            assertEquals(expected.getSnake(), actual.getSnake(), "Snake " + i + " should be in the same place");
+        }
+        for (int y = 0; y < 60; y++) {
+            for (int x = 0; x < 60; x++) {
+                assertEquals(sequential.getOwner(x, y), parallel.getOwner(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testTooFewDirections() {
+        ArenaEngine arena = arenaWithSnakes(3, 5, 5, 10, 5);
+        char[] directions = new char[1];
+        Arrays.fill(directions, 'U');
+        assertThrows(IllegalArgumentException.class, () -> arena.step(directions));
+    }
+}
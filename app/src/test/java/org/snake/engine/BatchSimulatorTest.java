@@ -0,0 +1,30 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class BatchSimulatorTest {
+
+    @Test
+    public void testRunPlaysAllGames() {
+        BatchSimulator simulator = new BatchSimulator(20, 3, 10000, 1L, GreedyPolicy::new);
+        BatchStatistics statistics = simulator.run(50, new ForkJoinPool(2));
+
+        assertEquals(50, statistics.getGames(), "Every game in the batch should be played");
+        assertEquals(50, statistics.getWallCollisions() + statistics.getBodyCollisions() + statistics.getTimeouts(),
+                "Every game should have an ending");
+        assertTrue(statistics.getMaxScore() >= statistics.getMinScore(), "Max score should not be below min score");
+    }
+
+    @Test
+    public void testResultsDoNotDependOnThreads() {
+        BatchSimulator simulator = new BatchSimulator(20, 3, 10000, 7L, GreedyPolicy::new);
+        BatchStatistics single = simulator.run(40, new ForkJoinPool(1));
+        BatchStatistics parallel = simulator.run(40, new ForkJoinPool(4));
+
+        assertEquals(single.getTotalScore(), parallel.getTotalScore(), "Seeded batches should be repeatable");
+        assertEquals(single.getTotalTicks(), parallel.getTotalTicks(), "Seeded batches should be repeatable");
+    }
+}
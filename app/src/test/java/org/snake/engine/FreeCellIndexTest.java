@@ -0,0 +1,55 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class FreeCellIndexTest {
+    private FreeCellIndex freeCells;
+
+    @BeforeEach
+    public void setUp() {
+        freeCells = new FreeCellIndex(10, 10);
+    }
+
+    @Test
+    public void testInitiallyAllInsideCellsFree() {
+        assertEquals(64, freeCells.size(), "All 8x8 cells inside the walls should be free");
+        assertFalse(freeCells.isFree(0, 0), "Walls should never be free");
+        assertTrue(freeCells.isFree(1, 1), "Cells inside the walls should be free");
+    }
+
+    @Test
+    public void testRemoveAndAdd() {
+        freeCells.remove(3, 3);
+        freeCells.remove(3, 3); // Removing twice should have no effect
+        assertEquals(63, freeCells.size());
+        assertFalse(freeCells.isFree(3, 3));
+
+        freeCells.add(3, 3);
+        freeCells.add(0, 3); // Walls cannot be added
+        assertEquals(64, freeCells.size());
+        assertTrue(freeCells.isFree(3, 3));
+    }
+
+    @Test
+    public void testSampleOnlyReturnsFreeCells() {
+        // Fill every cell except one, the only possible sample is the remaining cell
+        for (int y = 1; y < 9; y++) {
+            for (int x = 1; x < 9; x++) {
+                if (!(x == 6 && y == 2)) {
+                    freeCells.remove(x, y);
+                }
+            }
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(2 * 10 + 6, freeCells.sample(random), "Sample should be the only free cell");
+        }
+
+        freeCells.remove(6, 2);
+        assertEquals(-1, freeCells.sample(random), "Sample should be -1 when the board is full");
+    }
+}
@@ -0,0 +1,161 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+import org.snake.util.ForkableRandom;
+
+import java.util.List;
+import java.util.Random;
+
+public class GameEngineTest {
+    private GameEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        // 20x20 board with a snake of length 3, seeded so the tests are repeatable
+        engine = new GameEngine(20, 3, new Random(42));
+        engine.reset();
+    }
+
+    @Test
+    public void testReset() {
+        assertNotNull(engine.getSnake(), "Snake should be created on reset");
+        assertNotNull(engine.getFoodLocation(), "Food should be placed on reset");
+        assertEquals(3, engine.getSnake().getSnakeLength(), "Snake should have the configured length");
+        assertEquals(0, engine.getCurrentScore(), "Score should start at 0");
+        assertFalse(engine.isGameOver(), "Game should not be over after reset");
+    }
+
+    @Test
+    public void testStepMovesHead() {
+        Cell head = engine.getSnake().getSnakeHead();
+        int x = head.getX();
+        int y = head.getY();
+
+        engine.getFoodLocation().setX(0); // Keep the food out of the way
+        StepResult result = engine.step('L');
+
+        Cell movedHead = engine.getSnake().getSnakeHead();
+        assertEquals(x - 1, movedHead.getX(), "Head should move one cell to the left");
+        assertEquals(y, movedHead.getY(), "Head should stay on the same row");
+        assertEquals(x, engine.getSnake().getBodySegment(1).getX(), "First body segment should follow the head");
+        assertTrue(result == StepResult.MOVED || result == StepResult.HIT_WALL);
+    }
+
+    @Test
+    public void testStepEatsFood() {
+        Snake snake = engine.getSnake();
+        snake.setSegment(0, 5, 5);
+        Cell food = engine.getFoodLocation();
+        food.setX(5);
+        food.setY(4);
+
+        assertEquals(StepResult.ATE_FOOD, engine.step('U'));
+        assertEquals(1, engine.getCurrentScore(), "Score should increase after eating");
+        assertEquals(4, snake.getSnakeLength(), "Snake should grow after eating");
+    }
+
+    @Test
+    public void testStepHitsWall() {
+        engine.getSnake().setSegment(0, 1, 5);
+
+        assertEquals(StepResult.HIT_WALL, engine.step('L'));
+        assertTrue(engine.isGameOver(), "Game should be over after hitting a wall");
+    }
+
+    @Test
+    public void testStepHitsBody() {
+        Snake snake = engine.getSnake();
+        for (int i = 0; i < snake.getSnakeLength(); i++) {
+            snake.setSegment(i, 5, 5 + i);
+        }
+
+        // The body extends downwards from the head, so reversing runs into it
+        engine.getFoodLocation().setX(0);
+        assertEquals(StepResult.HIT_BODY, engine.step('D'));
+        assertTrue(engine.isGameOver(), "Game should be over after hitting the body");
+    }
+
+    @Test
+    public void testForkIsIndependent() {
+        engine = new GameEngine(20, 3, new ForkableRandom(42));
+        engine.reset();
+        GameEngine fork = engine.fork();
+        Cell head = engine.getSnake().getSnakeHead();
+
+        fork.step('L');
+        assertEquals(head, engine.getSnake().getSnakeHead(), "Stepping a fork should not move the original");
+        assertEquals(0, engine.getTicks(), "Stepping a fork should not change the original");
+        assertEquals(1, fork.getTicks());
+    }
+
+    @Test
+    public void testSnapshotAndRestore() {
+        engine = new GameEngine(20, 3, new ForkableRandom(42));
+        engine.reset();
+        GameState state = engine.snapshot();
+
+        // Play the same moves twice from the same snapshot, both runs should end identically
+        DirectionPolicy policy = new GreedyPolicy();
+        for (int i = 0; i < 200 && !engine.isGameOver(); i++) {
+            engine.step(policy.nextDirection(engine));
+        }
+        int score = engine.getCurrentScore();
+        long ticks = engine.getTicks();
+        List<Cell> body = engine.getSnake().getSnake();
+
+        engine.restore(state);
+        assertEquals(0, engine.getTicks(), "Restore should put the game back to the snapshot");
+        for (int i = 0; i < 200 && !engine.isGameOver(); i++) {
+            engine.step(policy.nextDirection(engine));
+        }
+        assertEquals(score, engine.getCurrentScore(), "Restored game should replay the same food placements");
+        assertEquals(ticks, engine.getTicks());
+        assertEquals(body, engine.getSnake().getSnake());
+    }
+
+    @Test
+    public void testNonSquareBoard() {
+        GameEngine wide = new GameEngine(40, 8, 3, new ForkableRandom(3));
+        for (int game = 0; game < 50; game++) {
+            wide.reset();
+            for (Cell segment : wide.getSnake().getSnake()) {
+                assertTrue(segment.getY() > 0 && segment.getY() < 7, "Snake should fit between the top and bottom walls");
+            }
+            Cell food = wide.getFoodLocation();
+            assertTrue(food.getX() > 0 && food.getX() < 39, "Food should be inside the side walls");
+            assertTrue(food.getY() > 0 && food.getY() < 7, "Food should be inside the top and bottom walls");
+        }
+        assertEquals(40, wide.getNumberOfColumns());
+        assertEquals(8, wide.getNumberOfRows());
+    }
+
+    @Test
+    public void testFullBoardHasNoFood() {
+        GameEngine small = new GameEngine(6, 2, new ForkableRandom(3L));
+        small.reset();
+        HamiltonianPolicy policy = new HamiltonianPolicy();
+        while (!small.isBoardFull()) {
+            assertFalse(small.step(policy.nextDirection(small)).isGameOver(), "The policy should fill the board");
+        }
+
+        assertNull(small.getFoodLocation(), "Food should not stay on a cell the snake covers");
+        assertFalse(small.isCollisionFood());
+        assertNull(small.snapshot().getFoodLocation());
+        new GreedyPolicy().nextDirection(small); // The policies must cope without food
+        new PathfindingPolicy().nextDirection(small);
+        assertNotEquals(StepResult.ATE_FOOD, small.step(policy.nextDirection(small)));
+    }
+
+    @Test
+    public void testRejectsBoardsThatAreTooLarge() {
+        assertThrows(IllegalArgumentException.class, () -> new GameEngine(10_000, 10_000, 3, new Random(1)),
+                "The free cell index of a 10,000x10,000 board would not fit");
+        assertThrows(IllegalArgumentException.class, () -> new GameEngine(40_000, 5, 3, new Random(1)),
+                "Columns beyond 32767 cannot be packed");
+        assertEquals(4096, new GameEngine(4096, 4096, 3, new Random(1)).getNumberOfColumns());
+    }
+}
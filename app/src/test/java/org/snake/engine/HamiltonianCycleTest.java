@@ -0,0 +1,74 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class HamiltonianCycleTest {
+
+    /**
+     * Walks the cycle from the top left cell and checks that it visits every
+     * position once, only moves between neighbouring cells and returns to the start.
+     */
+    private void assertValidCycle(int columns, int rows) {
+        HamiltonianCycle cycle = HamiltonianCycle.forBoard(columns, rows);
+        boolean[] seen = new boolean[cycle.getLength()];
+        int x = 1;
+        int y = 1;
+        for (int i = 0; i < cycle.getLength(); i++) {
+            int position = cycle.getPosition(x, y);
+            assertTrue(position >= 0, "Cycle should stay inside the walls");
+            assertFalse(seen[position], "Cycle should visit every position once");
+            seen[position] = true;
+
+            switch (cycle.getNextDirection(x, y)) {
+                case 'U': y--; break;
+                case 'D': y++; break;
+                case 'L': x--; break;
+                default: x++; break;
+            }
+        }
+        assertEquals(1, x, "Cycle should return to the start");
+        assertEquals(1, y, "Cycle should return to the start");
+    }
+
+    @Test
+    public void testEvenBoardCoversEveryCell() {
+        assertValidCycle(10, 10);
+        assertEquals(64, HamiltonianCycle.forBoard(10, 10).getLength());
+    }
+
+    @Test
+    public void testOddRowsAreTurnedOnTheirSide() {
+        assertValidCycle(6, 7);
+        assertValidCycle(7, 6);
+        assertEquals(20, HamiltonianCycle.forBoard(6, 7).getLength());
+    }
+
+    @Test
+    public void testOddBoardSharesCornerPosition() {
+        assertValidCycle(7, 7);
+        HamiltonianCycle cycle = HamiltonianCycle.forBoard(7, 7);
+        assertEquals(24, cycle.getLength(), "Only the bottom left corner should be left out");
+        assertEquals(cycle.getPosition(2, 4), cycle.getPosition(1, 5), "Corner should share a position");
+        assertEquals('U', cycle.getNextDirection(1, 5), "Corner should lead back onto the cycle");
+    }
+
+    @Test
+    public void testWallsAreNotOnTheCycle() {
+        HamiltonianCycle cycle = HamiltonianCycle.forBoard(10, 10);
+        assertEquals(-1, cycle.getPosition(0, 5));
+        assertEquals(-1, cycle.getPosition(9, 5));
+        assertEquals(-1, cycle.getPosition(-1, 5));
+    }
+
+    @Test
+    public void testCycleIsCachedPerBoardSize() {
+        assertSame(HamiltonianCycle.forBoard(12, 12), HamiltonianCycle.forBoard(12, 12));
+        assertNotSame(HamiltonianCycle.forBoard(12, 12), HamiltonianCycle.forBoard(14, 14));
+    }
+
+    @Test
+    public void testBoardTooSmall() {
+        assertThrows(IllegalArgumentException.class, () -> HamiltonianCycle.forBoard(3, 10));
+    }
+}
@@ -0,0 +1,49 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.snake.util.ForkableRandom;
+
+public class HamiltonianPolicyTest {
+
+    /**
+     * Plays a game with the policy until the board is full or the snake dies.
+     */
+    private GameEngine playToEnd(int numberOfColumns, int snakeLength, long seed) {
+        GameEngine engine = new GameEngine(numberOfColumns, snakeLength, new ForkableRandom(seed));
+        engine.reset();
+        HamiltonianPolicy policy = new HamiltonianPolicy();
+        StepResult result = StepResult.MOVED;
+        while (!engine.isBoardFull() && !result.isGameOver() && engine.getTicks() < 10_000_000) {
+            result = engine.step(policy.nextDirection(engine));
+        }
+        return engine;
+    }
+
+    @Test
+    public void testFillsEvenBoard() {
+        for (long seed = 0; seed < 10; seed++) {
+            GameEngine engine = playToEnd(12, 3, seed);
+            assertTrue(engine.isBoardFull(), "Snake should fill the board with seed " + seed);
+            assertEquals(100, engine.getSnake().getSnakeLength());
+        }
+    }
+
+    @Test
+    public void testFillsOddBoard() {
+        for (long seed = 0; seed < 10; seed++) {
+            GameEngine engine = playToEnd(13, 3, seed);
+            assertTrue(engine.isBoardFull(), "Snake should fill the board, including the corner, with seed " + seed);
+            assertEquals(121, engine.getSnake().getSnakeLength());
+        }
+    }
+
+    @Test
+    public void testShortcutsReachFoodFasterThanCycle() {
+        GameEngine engine = playToEnd(22, 2, 1L);
+        assertTrue(engine.isBoardFull());
+        // Following the cycle alone takes about half a lap per piece of food
+        long cycleOnlyTicks = 400L * 400 / 2;
+        assertTrue(engine.getTicks() < cycleOnlyTicks, "Shortcuts should cut the number of ticks");
+    }
+}
@@ -0,0 +1,134 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.snake.util.Cell;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class ObservationTest {
+
+    @Test
+    public void testWriteGameEngine() {
+        GameEngine engine = new GameEngine(10, 3, new Random(42));
+        engine.reset();
+        Observation observation = new Observation(10);
+        observation.write(engine);
+
+        ByteBuffer buffer = observation.getBuffer();
+        assertTrue(buffer.isDirect(), "Observations should be written to a direct buffer");
+        assertEquals(4 * 10 * 10, observation.getObservationSize());
+
+        int head = engine.getSnake().getSegment(0);
+        int tail = engine.getSnake().getTail();
+        Cell food = engine.getFoodLocation();
+        assertEquals(1, buffer.get(observation.offset(0, Observation.WALL)), "Corner should be a wall");
+        assertEquals(0, buffer.get(observation.offset(0, Observation.WALL) + 11), "Inside should not be a wall");
+        assertEquals(1, buffer.get(observation.offset(0, Observation.HEAD) + cell(head)));
+        assertEquals(0, buffer.get(observation.offset(0, Observation.BODY) + cell(head)), "Head is not body");
+        assertEquals(1, buffer.get(observation.offset(0, Observation.BODY) + cell(tail)));
+        assertEquals(1, buffer.get(observation.offset(0, Observation.FOOD) + food.getY() * 10 + food.getX()));
+        assertEquals(1 + 2 + 1, count(buffer, 10, Observation.BODY, Observation.FOOD),
+                "Only the head, two body segments and the food should be set");
+    }
+
+    @Test
+    public void testIncrementalWriteMatchesFullWrite() {
+        GameEngine engine = new GameEngine(8, 2, new Random(1));
+        engine.reset();
+        Observation observation = new Observation(8);
+        DirectionPolicy policy = new GreedyPolicy();
+        Random random = new Random(2);
+
+        for (int tick = 0; tick < 3000; tick++) {
+            char direction = random.nextInt(8) == 0 ? "UDLR".charAt(random.nextInt(4)) : policy.nextDirection(engine);
+            if (engine.step(direction).isGameOver()) {
+                observation.write(engine); // The final position is written as well
+                assertSameBuffer(observation, engine);
+                engine.reset();
+            }
+            observation.write(engine);
+            assertSameBuffer(observation, engine);
+        }
+    }
+
+    @Test
+    public void testWriteVecEnv() {
+        int envs = 9;
+        VecEnv vecEnv = new VecEnv(envs, 8, 2, 5);
+        Observation observation = new Observation(8, envs);
+        int[] actions = new int[envs];
+        Random random = new Random(3);
+
+        for (int tick = 0; tick < 500; tick++) {
+            for (int env = 0; env < envs; env++) {
+                actions[env] = random.nextInt(4);
+            }
+            vecEnv.step(actions);
+            observation.write(vecEnv);
+
+            // Each game should match the board built from its snake and food
+            for (int env = 0; env < envs; env++) {
+                byte[] expected = new byte[observation.getObservationSize()];
+                for (int i = 0; i < 64; i++) {
+                    int x = i % 8;
+                    int y = i / 8;
+                    expected[Observation.WALL * 64 + i] = (byte) (x == 0 || y == 0 || x == 7 || y == 7 ? 1 : 0);
+                }
+                for (int i = 1; i < vecEnv.getSnakeLength(env); i++) {
+                    expected[Observation.BODY * 64 + vecEnv.getSegmentCell(env, i)] = 1;
+                }
+                expected[Observation.HEAD * 64 + vecEnv.getSegmentCell(env, 0)] = 1;
+                if (vecEnv.getFoodCell(env) >= 0) {
+                    expected[Observation.FOOD * 64 + vecEnv.getFoodCell(env)] = 1;
+                }
+
+                byte[] actual = new byte[expected.length];
+                observation.getBuffer().get(observation.offset(env, Observation.WALL), actual);
+                assertArrayEquals(expected, actual, "Game " + env + " at tick " + tick);
+            }
+        }
+    }
+
+    /**
+     * Checks that an observation written tick by tick matches one written from
+     * scratch.
+     *
+     * @param observation The observation written tick by tick.
+     * @param engine      The engine holding the game.
+     */
+    private static void assertSameBuffer(Observation observation, GameEngine engine) {
+        Observation expected = new Observation(engine.getNumberOfColumns());
+        expected.write(engine);
+        assertEquals(expected.getBuffer(), observation.getBuffer(), "Tick " + engine.getTicks());
+    }
+
+    /**
+     * Counts the cells set in a range of channels of the first game.
+     *
+     * @param buffer          The buffer holding the observation.
+     * @param numberOfColumns The number of columns on the board.
+     * @param first           The first channel to count.
+     * @param last            The last channel to count.
+     * @return The number of cells set.
+     */
+    private static int count(ByteBuffer buffer, int numberOfColumns, int first, int last) {
+        int planeSize = numberOfColumns * numberOfColumns;
+        int count = 0;
+        for (int i = first * planeSize; i < (last + 1) * planeSize; i++) {
+            count += buffer.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Converts a packed cell to its index on a 10x10 board.
+     *
+     * @param packed The packed cell.
+     * @return The index of the cell.
+     */
+    private static int cell(int packed) {
+        return Cell.unpackY(packed) * 10 + Cell.unpackX(packed);
+    }
+}
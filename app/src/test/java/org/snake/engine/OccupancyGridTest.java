@@ -0,0 +1,49 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snake.model.Snake;
+
+public class OccupancyGridTest {
+    private OccupancyGrid grid;
+
+    @BeforeEach
+    public void setUp() {
+        grid = new OccupancyGrid(10, 10);
+    }
+
+    @Test
+    public void testWallsAreOccupied() {
+        assertTrue(grid.isOccupied(0, 5), "Left wall should be occupied");
+        assertTrue(grid.isOccupied(9, 5), "Right wall should be occupied");
+        assertTrue(grid.isOccupied(5, 0), "Top wall should be occupied");
+        assertTrue(grid.isOccupied(5, 9), "Bottom wall should be occupied");
+        assertTrue(grid.isOccupied(-1, 5), "Cells outside the board should be occupied");
+        assertFalse(grid.isOccupied(5, 5), "Cells inside the walls should be free");
+    }
+
+    @Test
+    public void testSetAndClear() {
+        grid.set(3, 4);
+        assertTrue(grid.isOccupied(3, 4), "Cell should be occupied after set");
+        assertFalse(grid.isWall(3, 4), "Occupied cell inside the board should not be a wall");
+
+        grid.clear(3, 4);
+        assertFalse(grid.isOccupied(3, 4), "Cell should be free after clear");
+    }
+
+    @Test
+    public void testSnakeKeepsGridUpToDate() {
+        Snake snake = new Snake(5, 2, 3, grid); // Head at (5, 2), body at (5, 3) and (5, 4)
+        assertFalse(grid.isOccupied(5, 2), "Head should not be marked");
+        assertTrue(grid.isOccupied(5, 3), "Body should be marked");
+        assertTrue(grid.isOccupied(5, 4), "Tail should be marked");
+
+        snake.pushHead(6, 2);
+        snake.removeTail();
+        assertTrue(grid.isOccupied(5, 2), "Old head should be marked once it becomes body");
+        assertFalse(grid.isOccupied(6, 2), "New head should not be marked");
+        assertFalse(grid.isOccupied(5, 4), "Removed tail should be cleared");
+    }
+}
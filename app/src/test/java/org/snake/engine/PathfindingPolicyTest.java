@@ -0,0 +1,72 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PathfindingPolicyTest {
+    private GameEngine engine;
+    private PathfindingPolicy policy;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new GameEngine(20, 3, new Random(42));
+        engine.reset();
+        policy = new PathfindingPolicy();
+
+        // Snake pointing up at (5, 5) with its body below the head
+        Snake snake = engine.getSnake();
+        for (int i = 0; i < snake.getSnakeLength(); i++) {
+            snake.setSegment(i, 5, 5 + i);
+        }
+    }
+
+    @Test
+    public void testMovesTowardsFood() {
+        Cell food = engine.getFoodLocation();
+        food.setX(10);
+        food.setY(5);
+
+        assertEquals('R', policy.nextDirection(engine), "Snake should turn towards the food");
+    }
+
+    @Test
+    public void testFollowsPathToFood() {
+        Cell food = engine.getFoodLocation();
+        food.setX(8);
+        food.setY(2);
+
+        StepResult result = null;
+        for (int i = 0; i < 6; i++) {
+            result = engine.step(policy.nextDirection(engine));
+        }
+        assertEquals(StepResult.ATE_FOOD, result, "Snake should reach the food along the shortest path");
+    }
+
+    @Test
+    public void testDoesNotTurnIntoBody() {
+        Cell food = engine.getFoodLocation();
+        food.setX(5);
+        food.setY(10); // Behind the snake
+
+        char direction = policy.nextDirection(engine);
+        assertNotEquals('D', direction, "Snake should not reverse into its body");
+        assertFalse(engine.step(direction).isGameOver(), "The chosen move should be safe");
+    }
+
+    @Test
+    public void testScoresHigherThanGreedy() {
+        BatchStatistics greedy = new BatchSimulator(12, 3, 20000, 3L, GreedyPolicy::new)
+                .run(10, new ForkJoinPool(2));
+        BatchStatistics pathfinding = new BatchSimulator(12, 3, 20000, 3L, PathfindingPolicy::new)
+                .run(10, new ForkJoinPool(2));
+
+        assertTrue(pathfinding.getTotalScore() > greedy.getTotalScore(),
+                "Checking the tail should keep the snake alive for longer than greedy steering");
+    }
+}
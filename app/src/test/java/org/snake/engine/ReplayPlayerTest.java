@@ -0,0 +1,87 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import org.snake.util.ForkableRandom;
+
+import java.util.Random;
+
+public class ReplayPlayerTest {
+
+    @Test
+    public void testReplayReproducesGame() {
+        long seed = 12345L;
+        GameEngine engine = new GameEngine(15, 3, new Random(seed));
+        engine.reset();
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(15, 3, seed);
+
+        // Play a full game with the greedy policy, recording every tick
+        DirectionPolicy policy = new GreedyPolicy();
+        StepResult result;
+        do {
+            char direction = policy.nextDirection(engine);
+            recorder.record(direction);
+            result = engine.step(direction);
+        } while (!result.isGameOver());
+
+        GameEngine replayed = new ReplayPlayer(recorder.toByteArray()).play();
+
+        assertEquals(engine.getTicks(), replayed.getTicks(), "Replay should play the same number of ticks");
+        assertEquals(engine.getCurrentScore(), replayed.getCurrentScore(), "Replay should reach the same score");
+        assertEquals(engine.getSnake().getSnake(), replayed.getSnake().getSnake(), "Replay should end in the same position");
+        assertEquals(engine.getFoodLocation(), replayed.getFoodLocation(), "Replay should place the same food");
+        assertTrue(replayed.isGameOver(), "Replayed game should end the same way");
+    }
+
+    @Test
+    public void testReplayOnlyStoresDirectionChanges() {
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(25, 2, 1L);
+        for (int i = 0; i < 1000; i++) {
+            recorder.record('U');
+        }
+        recorder.record('L');
+
+        // Header is 1 + 1 + 1 + 1 + 8 bytes, ticks take 2 bytes, the count 1 byte, then changes of 1 and 2 bytes
+        assertEquals(18, recorder.toByteArray().length, "Replay should only store the two direction changes");
+    }
+
+    @Test
+    public void testReplayOfNonSquareBoard() {
+        long seed = 7L;
+        GameEngine engine = new GameEngine(30, 12, 3, new ForkableRandom(seed));
+        engine.reset();
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(30, 12, 3, seed);
+
+        DirectionPolicy policy = new GreedyPolicy();
+        for (int i = 0; i < 300 && !engine.isGameOver(); i++) {
+            char direction = policy.nextDirection(engine);
+            recorder.record(direction);
+            engine.step(direction);
+        }
+
+        GameEngine replayed = new ReplayPlayer(recorder.toByteArray()).play();
+
+        assertEquals(12, replayed.getNumberOfRows(), "Replay should keep the shape of the board");
+        assertEquals(engine.getCurrentScore(), replayed.getCurrentScore());
+        assertEquals(engine.getSnake().getSnake(), replayed.getSnake().getSnake());
+    }
+
+    @Test
+    public void testVersionOneReplayIsSquare() {
+        // Version 1 has no rows: 10 columns, length 2, seed 0, no ticks and no changes
+        byte[] replay = { 1, 10, 2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+        GameEngine engine = new ReplayPlayer(replay).play();
+
+        assertEquals(10, engine.getNumberOfColumns());
+        assertEquals(10, engine.getNumberOfRows());
+    }
+
+    @Test
+    public void testUnsupportedVersion() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplayPlayer(new byte[] { 99 }).play());
+    }
+}
@@ -0,0 +1,129 @@
+package org.snake.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.snake.model.Snake;
+import org.snake.util.Cell;
+import org.snake.util.ForkableRandom;
+
+import java.util.Random;
+
+public class VecEnvTest {
+
+    @Test
+    public void testResetMatchesGameEngine() {
+        VecEnv vecEnv = new VecEnv(5, 20, 3, 42);
+
+        for (int env = 0; env < 5; env++) {
+            GameEngine engine = new GameEngine(20, 3, new ForkableRandom(BatchSimulator.gameSeed(42, env)));
+            engine.reset();
+            assertSameState(engine, vecEnv, env);
+            assertEquals(0, vecEnv.getScore(env), "Score should start at 0");
+        }
+    }
+
+    @Test
+    public void testStepHitsWall() {
+        VecEnv vecEnv = new VecEnv(1, 10, 1, 7);
+        int[] actions = { VecEnv.ACTIONS.indexOf('L') };
+
+        // The snake must reach the left wall within the width of the board
+        for (int i = 0; i < 10 && vecEnv.getCompletedEpisodes() == 0; i++) {
+            vecEnv.step(actions);
+        }
+        assertEquals(1, vecEnv.getCompletedEpisodes(), "Game should end at the wall");
+        assertEquals(StepResult.HIT_WALL, vecEnv.getResult(0));
+        assertEquals(0, vecEnv.getTicks(0), "Game should be reset after it ends");
+    }
+
+    @Test
+    public void testStepMatchesGameEngine() {
+        // An odd number of games, so some are stepped outside the vector loop
+        int envs = 37;
+        VecEnv vecEnv = new VecEnv(envs, 8, 2, 3);
+        GameEngine[] engines = new GameEngine[envs];
+        for (int env = 0; env < envs; env++) {
+            engines[env] = new GameEngine(8, 2, new ForkableRandom(BatchSimulator.gameSeed(3, env)));
+            engines[env].reset();
+        }
+
+        // Mostly steer towards the food, sometimes at random so the snakes also die
+        DirectionPolicy policy = new GreedyPolicy();
+        Random random = new Random(0);
+        int[] actions = new int[envs];
+        int scores = 0;
+        for (int tick = 0; tick < 2000; tick++) {
+            for (int env = 0; env < envs; env++) {
+                char direction = random.nextInt(10) == 0 ? VecEnv.ACTIONS.charAt(random.nextInt(4))
+                        : policy.nextDirection(engines[env]);
+                actions[env] = VecEnv.ACTIONS.indexOf(direction);
+            }
+            vecEnv.step(actions);
+
+            for (int env = 0; env < envs; env++) {
+                StepResult result = engines[env].step(VecEnv.ACTIONS.charAt(actions[env]));
+                assertEquals(result, vecEnv.getResult(env), "Game " + env + " at tick " + tick);
+                if (result.isGameOver()) {
+                    assertEquals(engines[env].getCurrentScore(), vecEnv.getLastEpisodeScore(env));
+                    scores += engines[env].getCurrentScore();
+                    engines[env].reset();
+                }
+                assertSameState(engines[env], vecEnv, env);
+            }
+        }
+        assertTrue(vecEnv.getCompletedEpisodes() > 0, "Some games should have ended");
+        assertTrue(scores > 0, "Some food should have been eaten");
+
+        // A board the snakes fill, so the games go on without food
+        envs = 3;
+        vecEnv = new VecEnv(envs, 4, 2, 1);
+        engines = new GameEngine[envs];
+        for (int env = 0; env < envs; env++) {
+            engines[env] = new GameEngine(4, 2, new ForkableRandom(BatchSimulator.gameSeed(1, env)));
+            engines[env].reset();
+        }
+        policy = new HamiltonianPolicy();
+        actions = new int[envs];
+        for (int tick = 0; tick < 40; tick++) {
+            for (int env = 0; env < envs; env++) {
+                actions[env] = VecEnv.ACTIONS.indexOf(policy.nextDirection(engines[env]));
+            }
+            vecEnv.step(actions);
+
+            for (int env = 0; env < envs; env++) {
+                StepResult result = engines[env].step(VecEnv.ACTIONS.charAt(actions[env]));
+                assertFalse(result.isGameOver(), "The policy should fill the board");
+                assertEquals(result, vecEnv.getResult(env), "Full game " + env + " at tick " + tick);
+                assertSameState(engines[env], vecEnv, env);
+            }
+        }
+        for (int env = 0; env < envs; env++) {
+            assertTrue(engines[env].isBoardFull(), "Game " + env + " should have filled the board");
+            assertEquals(-1, vecEnv.getFoodCell(env), "A full board should have no food");
+        }
+    }
+
+    /**
+     * Checks that a game in a VecEnv is in the same state as a GameEngine.
+     *
+     * @param engine The engine to compare with.
+     * @param vecEnv The VecEnv holding the game.
+     * @param env    The index of the game.
+     */
+    private static void assertSameState(GameEngine engine, VecEnv vecEnv, int env) {
+        Snake snake = engine.getSnake();
+        assertEquals(snake.getHeadX(), vecEnv.getHeadX(env), "Head x of game " + env);
+        assertEquals(snake.getHeadY(), vecEnv.getHeadY(env), "Head y of game " + env);
+        assertEquals(snake.getSnakeLength(), vecEnv.getSnakeLength(env), "Length of game " + env);
+        for (int i = 0; i < snake.getSnakeLength(); i++) {
+            int segment = snake.getSegment(i);
+            int cell = Cell.unpackY(segment) * vecEnv.getNumberOfColumns() + Cell.unpackX(segment);
+            assertEquals(cell, vecEnv.getSegmentCell(env, i), "Segment " + i + " of game " + env);
+        }
+        Cell food = engine.getFoodLocation();
+        int foodCell = food == null ? -1 : food.getY() * vecEnv.getNumberOfColumns() + food.getX();
+        assertEquals(foodCell, vecEnv.getFoodCell(env), "Food of game " + env);
+        assertEquals(engine.getCurrentScore(), vecEnv.getScore(env), "Score of game " + env);
+        assertEquals(engine.getTicks(), vecEnv.getTicks(env), "Ticks of game " + env);
+    }
+}
@@ -55,4 +55,40 @@ public class SnakeTest {
         // Check if the first segment is the head
         assertEquals(snake.getSnakeHead(), segments.get(0), "First segment should be the head of the snake");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMoveKeepsLength() {
+        snake.pushHead(5, 4);
+        int tail = snake.removeTail();
+
+        assertEquals(3, snake.getSnakeLength(), "Moving should not change the length of the snake");
+        assertEquals(new Cell(5, 4), snake.getSnakeHead(), "Head should be at the new position");
+        assertEquals(new Cell(5, 5), snake.getBodySegment(1), "Old head should become the first body segment");
+        assertEquals(Cell.pack(5, 7), tail, "Old tail should be removed");
+    }
+
+    @Test
+    public void testPushHeadGrows() {
+        snake.pushHead(5, 4);
+
+        assertEquals(4, snake.getSnakeLength(), "Pushing a head without removing the tail should grow the snake");
+        assertEquals(Cell.pack(5, 7), snake.getTail(), "Tail should not move when the snake grows");
+    }
+
+    @Test
+    public void testLongSnakeWrapsRingBuffer() {
+        // Grow well past the initial capacity, then keep moving so the buffer wraps
+        for (int i = 1; i <= 1000; i++) {
+            snake.pushHead(5 + i, 5);
+        }
+        for (int i = 1; i <= 1000; i++) {
+            snake.pushHead(1005, 5 + i);
+            snake.removeTail();
+        }
+
+        assertEquals(1003, snake.getSnakeLength(), "Snake should keep its grown length");
+        assertEquals(new Cell(1005, 1005), snake.getSnakeHead(), "Head should be at the last pushed position");
+        assertEquals(new Cell(1005, 1004), snake.getBodySegment(1), "Segments should stay in order");
+        assertEquals(Cell.pack(1003, 5), snake.getTail(), "Tail should follow the head");
+    }
+}
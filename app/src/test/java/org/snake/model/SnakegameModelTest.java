@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import java.awt.Color;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -19,8 +21,32 @@ class SnakegameModelTest {
     private DataHandler dataHandlerMock;
 
     @BeforeEach
-    void setUp() {
-        // Mock ConfigReader and DataHandler
+    void setUp() throws InterruptedException {
+        // Mock DataHandler
+        dataHandlerMock = mock(DataHandler.class);
+        // The model reads the session totals and scores in the background; wait for both,
+        // so they are not mixed up with the stubbing in the tests
+        CountDownLatch backgroundReads = new CountDownLatch(2);
+        when(dataHandlerMock.readSessionTableByDate(anyString())).thenAnswer(invocation -> {
+            backgroundReads.countDown();
+            return "{}";
+        });
+        when(dataHandlerMock.readScoreCount()).thenAnswer(invocation -> {
+            backgroundReads.countDown();
+            return 0L;
+        });
+        model = createModel(dataHandlerMock);
+        assertTrue(backgroundReads.await(5, TimeUnit.SECONDS), "The model should read from the DataHandler");
+    }
+
+    /**
+     * Creates a model with a mocked configuration.
+     *
+     * @param dataHandler The DataHandler the model uses.
+     * @return The model.
+     */
+    private static SnakegameModel createModel(DataHandler dataHandler) {
+        // Mock ConfigReader
         try (MockedStatic<ConfigReader> mockedConfigReader = Mockito.mockStatic(ConfigReader.class)) {
             // Mock the static method readConfig() from ConfigReader
             mockedConfigReader.when(() -> ConfigReader.readConfig(Mockito.anyString()))
@@ -39,9 +65,7 @@ class SnakegameModelTest {
             when(ConfigReader.getProperty("gametimeallowed")).thenReturn("30000");
             when(ConfigReader.getProperty("topscorestodisplay")).thenReturn("6");
 
-            // Mock DataHandler
-            dataHandlerMock = mock(DataHandler.class);
-            model = new SnakegameModel(dataHandlerMock);
+            return new SnakegameModel(dataHandler);
         }
     }
 
@@ -57,6 +81,20 @@ class SnakegameModelTest {
         assertEquals(Color.decode("#000000"), model.getBoardGridColour());
     }
 
+    @Test
+    void testRenderingDefaultsWhenNotConfigured() {
+        assertFalse(model.isActiveRendering(), "Swing repainting should be used unless rendering=active");
+        assertEquals(60, model.getFrameRate());
+        assertFalse(model.isTiledTheme(), "Plain colours should be used unless theme=tiles");
+    }
+
+    @Test
+    void testViewportCoversSmallBoard() {
+        assertEquals(model.getNumberOfColumns(), model.getViewportColumns(), "A 25x25 board should fit in the window");
+        assertEquals(model.getNumberOfRows(), model.getViewportRows());
+        assertEquals(model.getViewportColumns() * model.getCellSize(), model.getBoardSize());
+    }
+
     @Test
     void testInitialiseSnake() {
         model.initialiseSnake();
@@ -91,9 +129,7 @@ class SnakegameModelTest {
     void testIsCollisionFood() {
         model.initialiseSnake();
         Snake snake = model.getSnake();
-        Cell snakeHead = snake.getSnakeHead();
-        snakeHead.setX(5);
-        snakeHead.setY(9);
+        snake.setSegment(0, 5, 9);
 
         Cell food = model.placeFood();
         food.setX(3);
@@ -111,13 +147,10 @@ class SnakegameModelTest {
     void testIsCollisionWall() {
         model.initialiseSnake();
         Snake snake = model.getSnake();
-        Cell snakeHead = snake.getSnakeHead();
-        snakeHead.setX(0);
-        snakeHead.setY(5);
+        snake.setSegment(0, 0, 5);
         assertTrue(model.isCollisionWall());
         assertTrue(model.isGameOver());
-        snakeHead.setX(3);
-        snakeHead.setY(0);
+        snake.setSegment(0, 3, 0);
         assertTrue(model.isCollisionWall());
         assertTrue(model.isGameOver());
     }
@@ -132,11 +165,115 @@ class SnakegameModelTest {
         assertTrue(model.isGameOver());
     }
 
+    @Test
+    void testAutopilotSteersTowardsFood() {
+        when(dataHandlerMock.readSessionTableByDate(anyString())).thenReturn("{}");
+        model.startNewGame();
+        Snake snake = model.getSnake();
+        for (int i = 0; i < snake.getSnakeLength(); i++) {
+            snake.setSegment(i, 5, 5 + i);
+        }
+        Cell food = model.getFoodLocation();
+        food.setX(2);
+        food.setY(5);
+
+        model.setAutopilot(true);
+        model.step();
+        assertEquals('L', model.getDirection(), "Autopilot should turn towards the food");
+        assertEquals(4, snake.getHeadX());
+    }
+
+    @Test
+    void testQueuedDirectionsApplyOnePerTick() {
+        when(dataHandlerMock.readSessionTableByDate(anyString())).thenReturn("{}");
+        model.startNewGame();
+        Snake snake = model.getSnake();
+        for (int i = 0; i < snake.getSnakeLength(); i++) {
+            snake.setSegment(i, 10, 10 + i);
+        }
+        model.getFoodLocation().setX(1); // Keep the food out of the way
+        model.getFoodLocation().setY(1);
+
+        // Two quick turns within one tick, then a reversal into the body
+        model.queueDirection('L');
+        model.queueDirection('D');
+        model.queueDirection('U');
+        model.step();
+        assertEquals('L', model.getDirection(), "First queued turn should be applied on the first tick");
+        model.step();
+        assertEquals('D', model.getDirection(), "Second queued turn should be applied on the next tick");
+        model.step();
+        assertEquals('D', model.getDirection(), "Reversal should be skipped");
+        assertFalse(model.isGameOver());
+        assertEquals(3, model.getInputQueue().getPolledCommands());
+    }
+
     @Test
     void testStoreGameTime() { 
+        when(dataHandlerMock.storeResults(anyList())).thenReturn(true);
+        model.storeGameTime(30);
+        model.flushResults();
+        verify(dataHandlerMock).storeResults(argThat(results -> results.size() == 1
+                && results.get(0).getGameDuration() == 30 && results.get(0).getSessionDuration() == 30
+                && results.get(0).getGamesPlayed() == 1 && results.get(0).getReplay().length > 0));
+    }
+
+    @Test
+    void testStoreGameTimeOfEndedGame() {
+        when(dataHandlerMock.storeResults(anyList())).thenReturn(true);
+        byte[] replay = { 1, 2, 3 };
+        model.startNewGame(); // The ended game is stored as it was, not as the new game is
+        model.storeGameTime(30, 12, 99L, replay);
+        model.flushResults();
+        verify(dataHandlerMock).storeResults(argThat(results -> results.size() == 1
+                && results.get(0).getScore() == 12 && results.get(0).getSeed() == 99L
+                && results.get(0).getReplay() == replay));
+    }
+
+    @Test
+    void testSessionTotalsAreReadOnce() {
+        when(dataHandlerMock.storeResults(anyList())).thenReturn(true);
+        model.startNewGame();
         model.storeGameTime(30);
-        verify(dataHandlerMock).insertSessionTable(anyInt(), anyInt());
-        verify(dataHandlerMock).insertGameTable(anyInt(), anyInt());
+        model.startNewGame();
+        model.storeGameTime(20);
+        model.startNewGame();
+
+        assertEquals(50, model.getCurrentSessionTime(), "Session time should be kept in memory");
+        verify(dataHandlerMock, times(1)).readSessionTableByDate(anyString());
+    }
+
+    @Test
+    void testGameEndingBeforeSessionTotalsAreReadIsHeldBack() {
+        // The read holds the lock of the DataHandler while it waits, so every stub is set up first
+        DataHandler slowHandler = mock(DataHandler.class);
+        when(slowHandler.storeResults(anyList())).thenReturn(true);
+        CountDownLatch release = new CountDownLatch(1);
+        when(slowHandler.readSessionTableByDate(anyString())).thenAnswer(invocation -> {
+            release.await();
+            return "{\"duration\": 29990, \"gamesplayed\": 4}";
+        });
+        SnakegameModel slowModel = createModel(slowHandler);
+
+        assertFalse(slowModel.startNewGame(), "A new game should not wait for the session totals");
+        slowModel.storeGameTime(30);
+        assertEquals(30, slowModel.getCurrentSessionTime());
+
+        release.countDown();
+        slowModel.flushResults();
+        verify(slowHandler).storeResults(argThat(results -> results.size() == 1
+                && results.get(0).getSessionDuration() == 30020 && results.get(0).getGamesPlayed() == 5));
+        assertEquals(30020, slowModel.getCurrentSessionTime(), "The stored totals should be added");
+        assertTrue(slowModel.isTimeAllocationUsed(), "The daily limit should be checked when the totals arrive");
+    }
+
+    @Test
+    void testGetScoreRank() {
+        when(dataHandlerMock.readScoreRank(40)).thenReturn(3L);
+        when(dataHandlerMock.readScoreCount()).thenReturn(10L);
+
+        assertEquals(3, model.getScoreRank(40));
+        assertEquals(10, model.getNumberOfScores());
     }
 
     @Test
@@ -0,0 +1,45 @@
+package org.snake.server;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import org.junit.jupiter.api.Test;
+
+import org.snake.database.DataHandler;
+import org.snake.model.SnakegameModel;
+
+public class GameServerTest {
+
+    /**
+     * Creates a model with a mocked DataHandler, so no database is touched.
+     */
+    private static SnakegameModel createModel(int id) {
+        DataHandler dataHandler = mock(DataHandler.class);
+        when(dataHandler.readSessionTableByDate(anyString())).thenReturn("{}");
+        when(dataHandler.storeResults(anyList())).thenReturn(true);
+        return new SnakegameModel(dataHandler);
+    }
+
+    @Test
+    public void testSessionsRunTicks() throws InterruptedException {
+        GameServer server = new GameServer(100, 1_000_000L, GameServerTest::createModel); // 1 kHz
+        server.start();
+        Thread.sleep(300);
+        server.stop();
+
+        assertEquals(100, server.getSessions().size());
+        for (GameSession session : server.getSessions()) {
+            assertTrue(session.getTicks() > 0, "Session " + session.getId() + " should have run ticks");
+            assertTrue(session.getModel().isAutopilot(), "Sessions are played by the autopilot");
+        }
+        long ticks = server.getSessions().stream().mapToLong(GameSession::getTicks).sum();
+        assertEquals(ticks, server.getLatencies().getCount(), "Every tick should have its latency recorded");
+        assertFalse(server.getScheduler().isRunning());
+    }
+
+    @Test
+    public void testInvalidTickLength() {
+        assertThrows(IllegalArgumentException.class, () -> new TickScheduler(0));
+    }
+}
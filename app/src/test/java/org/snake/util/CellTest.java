@@ -57,4 +57,25 @@ class CellTest {
         // Act & Assert
         assertEquals(6, cell.getY());
     }
+
+    @Test
+    void testPackUnpack() {
+        // Arrange
+        int packed = Cell.pack(1234, -1);
+
+        // Act & Assert
+        assertEquals(1234, Cell.unpackX(packed));
+        assertEquals(-1, Cell.unpackY(packed));
+    }
+
+    @Test
+    void testEquals() {
+        // Arrange
+        Cell cell = new Cell(3, 6);
+
+        // Act & Assert
+        assertEquals(new Cell(3, 6), cell);
+        assertNotEquals(new Cell(6, 3), cell);
+        assertEquals(new Cell(3, 6).hashCode(), cell.hashCode());
+    }
 }
@@ -0,0 +1,42 @@
+package org.snake.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopyOnWriteIntArrayTest {
+
+    @Test
+    void testSetAndGet() {
+        // Arrange
+        CopyOnWriteIntArray array = new CopyOnWriteIntArray(1000);
+
+        // Act
+        array.set(0, 5);
+        array.set(999, 7);
+
+        // Assert
+        assertEquals(1000, array.length());
+        assertEquals(5, array.get(0));
+        assertEquals(7, array.get(999));
+        assertEquals(0, array.get(500));
+    }
+
+    @Test
+    void testForkIsIndependent() {
+        // Arrange
+        CopyOnWriteIntArray array = new CopyOnWriteIntArray(1000);
+        array.set(10, 1);
+
+        // Act
+        CopyOnWriteIntArray fork = array.fork();
+        fork.set(10, 2);
+        array.set(900, 3);
+
+        // Assert
+        assertEquals(1, array.get(10));
+        assertEquals(2, fork.get(10));
+        assertEquals(3, array.get(900));
+        assertEquals(0, fork.get(900));
+    }
+}
@@ -0,0 +1,38 @@
+package org.snake.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ForkableRandomTest {
+
+    @Test
+    void testSameSequenceAsRandom() {
+        // Arrange
+        Random random = new Random(123);
+        ForkableRandom forkable = new ForkableRandom(123);
+
+        // Act & Assert
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(random.nextInt(50), forkable.nextInt(50));
+        }
+        assertEquals(random.nextLong(), forkable.nextLong());
+    }
+
+    @Test
+    void testForkContinuesSequence() {
+        // Arrange
+        ForkableRandom random = new ForkableRandom(7);
+        random.nextInt();
+
+        // Act
+        ForkableRandom fork = random.fork();
+
+        // Assert
+        for (int i = 0; i < 100; i++) {
+            assertEquals(random.nextInt(), fork.nextInt());
+        }
+    }
+}
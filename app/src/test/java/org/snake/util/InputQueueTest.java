@@ -0,0 +1,75 @@
+package org.snake.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputQueueTest {
+
+    @Test
+    void testOfferAndPollInOrder() {
+        // Arrange
+        InputQueue queue = new InputQueue(4);
+
+        // Act
+        queue.offer('L');
+        queue.offer('U');
+
+        // Assert
+        assertEquals(2, queue.size());
+        assertEquals('L', queue.poll());
+        assertEquals('U', queue.poll());
+        assertEquals(InputQueue.EMPTY, queue.poll());
+        assertEquals(2, queue.getPolledCommands());
+        assertTrue(queue.getMaxLatencyNanos() >= queue.getAverageLatencyNanos());
+    }
+
+    @Test
+    void testFullQueueDropsCommands() {
+        // Arrange
+        InputQueue queue = new InputQueue(3);
+
+        // Act
+        for (int i = 0; i < 6; i++) {
+            queue.offer('R');
+        }
+
+        // Assert
+        assertEquals(4, queue.getCapacity(), "Capacity should be rounded up to a power of two");
+        assertEquals(4, queue.size());
+        assertEquals(2, queue.getDroppedCommands());
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertTrue(queue.offer('D'), "Cleared queue should accept commands again");
+    }
+
+    @Test
+    void testProducerAndConsumerThreads() throws InterruptedException {
+        // Arrange
+        InputQueue queue = new InputQueue(8);
+        int commands = 100_000;
+        char[] directions = { 'U', 'R', 'D', 'L' };
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < commands; i++) {
+                while (!queue.offer(directions[i & 3])) {
+                    Thread.onSpinWait();
+                }
+            }
+        });
+
+        // Act
+        producer.start();
+        int received = 0;
+        while (received < commands) {
+            char direction = queue.poll();
+            if (direction != InputQueue.EMPTY) {
+                // Assert
+                assertEquals(directions[received & 3], direction, "Commands should arrive in order");
+                received++;
+            }
+        }
+        producer.join();
+
+        assertEquals(commands, queue.getPolledCommands());
+    }
+}
@@ -0,0 +1,46 @@
+package org.snake.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getPercentileNanos(0.99));
+    }
+
+    @Test
+    public void testPercentilesWithinFactorOfTwo() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L); // 1 us to 1 ms
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000L, histogram.getMaxNanos());
+        assertEquals(500_500L, histogram.getMeanNanos());
+        long median = histogram.getPercentileNanos(0.5);
+        assertTrue(median >= 500_000L && median <= 1_000_000L, "Median should be within a factor of two: " + median);
+        assertEquals(1_000_000L, histogram.getPercentileNanos(1.0), "The top percentile is capped at the maximum");
+    }
+
+    @Test
+    public void testAddMergesHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(2000);
+        second.record(4_000_000);
+        second.record(500); // Below 1 us, counted in the first bucket
+
+        first.add(second);
+
+        assertEquals(3, first.getCount());
+        assertEquals(4_000_000L, first.getMaxNanos());
+        assertTrue(first.getPercentileNanos(0.34) <= 4000, "Two of three latencies are a few microseconds");
+    }
+}
@@ -0,0 +1,206 @@
+package org.snake.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.snake.engine.GameEngine;
+import org.snake.engine.GameState;
+import org.snake.engine.GreedyPolicy;
+import org.snake.model.Snake;
+import org.snake.util.ForkableRandom;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+public class BoardRendererTest {
+
+    private static BoardRenderer createRenderer() {
+        return new BoardRenderer(15, 15, 10, Color.WHITE, Color.GRAY);
+    }
+
+    /**
+     * Draws a snapshot from scratch, to compare the incrementally drawn board with.
+     */
+    private static BufferedImage drawFromScratch(GameState state) {
+        BoardRenderer renderer = createRenderer();
+        assertTrue(renderer.update(state, null), "The first snapshot should be drawn in full");
+        return renderer.getBoardImage();
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual, long tick) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    fail("Pixel " + x + "," + y + " differs after tick " + tick);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchFullDraw() {
+        GameEngine engine = new GameEngine(15, 3, new ForkableRandom(5));
+        engine.reset();
+        GreedyPolicy policy = new GreedyPolicy();
+        BoardRenderer renderer = createRenderer();
+        renderer.update(engine.snapshot(), null);
+
+        for (int tick = 1; tick <= 200 && !engine.isGameOver(); tick++) {
+            engine.step(policy.nextDirection(engine));
+            // Skip some frames, like the game loop does when painting falls behind
+            if (tick % 3 == 0) {
+                continue;
+            }
+            GameState state = engine.snapshot();
+            boolean redrawn = renderer.update(state, null);
+
+            assertFalse(redrawn, "Snapshots of the same game should be drawn incrementally");
+            assertTrue(renderer.getDirtyCount() <= 6, "Only a few cells should change: " + renderer.getDirtyCount());
+            assertSameImage(drawFromScratch(state), renderer.getBoardImage(), tick);
+        }
+    }
+
+    @Test
+    public void testTiledIncrementalUpdatesMatchFullDraw() {
+        GameEngine engine = new GameEngine(15, 3, new ForkableRandom(5));
+        engine.reset();
+        GreedyPolicy policy = new GreedyPolicy();
+        BoardRenderer renderer = new BoardRenderer(15, 15, 10, Color.WHITE, Color.GRAY, true);
+        renderer.update(engine.snapshot(), null);
+
+        for (int tick = 1; tick <= 200 && !engine.isGameOver(); tick++) {
+            engine.step(policy.nextDirection(engine));
+            if (tick % 3 == 0) {
+                continue;
+            }
+            GameState state = engine.snapshot();
+            assertFalse(renderer.update(state, null), "Snapshots of the same game should be drawn incrementally");
+
+            // The neck and tail change tiles as the snake moves, so they must be drawn again too
+            BoardRenderer full = new BoardRenderer(15, 15, 10, Color.WHITE, Color.GRAY, true);
+            full.update(state, null);
+            assertSameImage(full.getBoardImage(), renderer.getBoardImage(), tick);
+        }
+    }
+
+    @Test
+    public void testTiledCameraMovesMatchWholeBoard() {
+        GameEngine engine = new GameEngine(60, 40, 3, new ForkableRandom(11));
+        engine.reset();
+        GreedyPolicy policy = new GreedyPolicy();
+        BoardRenderer renderer = new BoardRenderer(16, 12, 10, Color.WHITE, Color.GRAY, true);
+        BoardRenderer whole = new BoardRenderer(60, 40, 10, Color.WHITE, Color.GRAY, true); // Never scrolls
+        renderer.update(engine.snapshot(), null);
+        whole.update(engine.snapshot(), null);
+
+        int redraws = 0;
+        for (int tick = 1; tick <= 300 && !engine.isGameOver(); tick++) {
+            engine.step(policy.nextDirection(engine));
+            GameState state = engine.snapshot();
+            if (renderer.update(state, null)) {
+                redraws++; // The camera moved, so the view was drawn from the recorded tiles
+            }
+            assertFalse(whole.update(state, null));
+
+            // The view should show the part of the whole board under the camera; its last grid
+            // lines are left out, as on the whole board the cells beyond the view may touch them
+            BufferedImage view = renderer.getBoardImage();
+            BufferedImage board = whole.getBoardImage();
+            int offsetX = renderer.getCameraX() * 10;
+            int offsetY = renderer.getCameraY() * 10;
+            for (int y = 0; y < 12 * 10; y++) {
+                for (int x = 0; x < 16 * 10; x++) {
+                    if (view.getRGB(x, y) != board.getRGB(offsetX + x, offsetY + y)) {
+                        fail("Pixel " + x + "," + y + " of the view differs after tick " + tick);
+                    }
+                }
+            }
+        }
+        assertTrue(redraws > 0, "The camera should have moved");
+    }
+
+    @Test
+    public void testNewGameIsDrawnInFull() {
+        GameEngine engine = new GameEngine(15, 3, new ForkableRandom(5));
+        engine.reset();
+        BoardRenderer renderer = createRenderer();
+        renderer.update(engine.snapshot(), null);
+        engine.step('U');
+        renderer.update(engine.snapshot(), null);
+
+        engine.reset();
+        engine.step('U');
+        GameState state = engine.snapshot();
+
+        assertTrue(renderer.update(state, null), "A snapshot of a new game should be drawn in full");
+        assertSameImage(drawFromScratch(state), renderer.getBoardImage(), 1);
+    }
+
+    @Test
+    public void testSameSnapshotIsNotDrawnAgain() {
+        GameEngine engine = new GameEngine(15, 3, new ForkableRandom(5));
+        engine.reset();
+        GameState state = engine.snapshot();
+        BoardRenderer renderer = createRenderer();
+        renderer.update(state, null);
+
+        assertFalse(renderer.update(state, null));
+        assertEquals(0, renderer.getDirtyCount());
+    }
+
+    /**
+     * Checks the colour in the middle of every cell in view against the snapshot.
+     */
+    private static void assertViewMatches(GameState state, BoardRenderer renderer, long tick) {
+        BufferedImage image = renderer.getBoardImage();
+        Snake snake = state.getSnake();
+        for (int row = 0; row < 12; row++) {
+            for (int column = 0; column < 16; column++) {
+                int x = renderer.getCameraX() + column;
+                int y = renderer.getCameraY() + row;
+                Color expected = Color.WHITE;
+                if (state.isWall(x, y)) {
+                    expected = Color.BLACK;
+                } else if (state.isOccupied(x, y) || (snake.getHeadX() == x && snake.getHeadY() == y)) {
+                    expected = Color.GREEN;
+                } else if (state.getFoodLocation() != null && state.getFoodLocation().getX() == x
+                        && state.getFoodLocation().getY() == y) {
+                    expected = Color.RED;
+                }
+                assertEquals(expected.getRGB(), image.getRGB(column * 10 + 5, row * 10 + 5),
+                        "Cell " + x + "," + y + " after tick " + tick);
+            }
+        }
+    }
+
+    @Test
+    public void testCameraFollowsHeadOnLargeBoard() {
+        GameEngine engine = new GameEngine(200, 90, 3, new ForkableRandom(11));
+        engine.reset();
+        GreedyPolicy policy = new GreedyPolicy();
+        BoardRenderer renderer = new BoardRenderer(16, 12, 10, Color.WHITE, Color.GRAY);
+        assertTrue(renderer.update(engine.snapshot(), null), "The first snapshot should be drawn in full");
+        assertEquals(161, renderer.getBoardImage().getWidth(), "The image should only hold the viewport");
+        assertEquals(121, renderer.getBoardImage().getHeight());
+
+        int cameraMoves = 0;
+        for (int tick = 1; tick <= 400 && !engine.isGameOver(); tick++) {
+            engine.step(policy.nextDirection(engine));
+            GameState state = engine.snapshot();
+            int cameraX = renderer.getCameraX();
+            int cameraY = renderer.getCameraY();
+            renderer.update(state, null);
+            if (cameraX != renderer.getCameraX() || cameraY != renderer.getCameraY()) {
+                cameraMoves++;
+            }
+
+            int column = state.getSnake().getHeadX() - renderer.getCameraX();
+            int row = state.getSnake().getHeadY() - renderer.getCameraY();
+            assertTrue(column >= 0 && column < 16 && row >= 0 && row < 12, "Head should stay in view after tick " + tick);
+            assertTrue(renderer.getCameraX() >= 0 && renderer.getCameraX() <= 200 - 16, "Camera should stop at the walls");
+            assertTrue(renderer.getCameraY() >= 0 && renderer.getCameraY() <= 90 - 12, "Camera should stop at the walls");
+            assertViewMatches(state, renderer, tick);
+        }
+        assertTrue(cameraMoves > 0, "The camera should have followed the snake");
+    }
+}
@@ -0,0 +1,81 @@
+package org.snake.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GameLoopTest {
+
+    /**
+     * A listener that counts the ticks and frames, and ends the game after a
+     * number of ticks.
+     */
+    private static class CountingListener implements GameLoop.Listener {
+        final AtomicInteger ticks = new AtomicInteger();
+        final AtomicInteger frames = new AtomicInteger();
+        final int lastTick;
+
+        CountingListener(int lastTick) {
+            this.lastTick = lastTick;
+        }
+
+        @Override
+        public boolean tick() {
+            return ticks.incrementAndGet() < lastTick;
+        }
+
+        @Override
+        public void render() {
+            frames.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testRunsAtFixedRate() throws InterruptedException {
+        CountingListener listener = new CountingListener(Integer.MAX_VALUE);
+        GameLoop loop = new GameLoop(1_000_000L, listener); // 1 kHz
+        loop.start();
+        Thread.sleep(500);
+        loop.stop();
+
+        // Allow for a slow machine, but the rate should be in the right range
+        int ticks = listener.ticks.get();
+        assertTrue(ticks > 250 && ticks <= 510, "Expected about 500 ticks but got " + ticks);
+        assertTrue(listener.frames.get() <= ticks, "There should be at most one frame per tick");
+        assertFalse(loop.isRunning());
+    }
+
+    @Test
+    public void testStopsWhenTickEndsGame() throws InterruptedException {
+        CountingListener listener = new CountingListener(10);
+        GameLoop loop = new GameLoop(1_000_000L, listener);
+        loop.start();
+        Thread.sleep(200);
+
+        assertFalse(loop.isRunning(), "Loop should stop when the game ends");
+        assertEquals(10, listener.ticks.get());
+        assertEquals(10, loop.getTicks());
+        loop.stop();
+    }
+
+    @Test
+    public void testPauseStopsTicks() throws InterruptedException {
+        CountingListener listener = new CountingListener(Integer.MAX_VALUE);
+        GameLoop loop = new GameLoop(1_000_000L, listener);
+        loop.start();
+        loop.setPaused(true);
+        Thread.sleep(20);
+        int ticksWhenPaused = listener.ticks.get();
+        Thread.sleep(100);
+
+        assertTrue(loop.isRunning(), "A paused loop is still running");
+        assertEquals(ticksWhenPaused, listener.ticks.get(), "No ticks should run while paused");
+        loop.stop();
+    }
+
+    @Test
+    public void testInvalidTickLength() {
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(0, new CountingListener(1)));
+    }
+}
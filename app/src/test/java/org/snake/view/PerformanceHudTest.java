@@ -0,0 +1,83 @@
+package org.snake.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PerformanceHudTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong allocated = new AtomicLong();
+
+    @Test
+    public void testSampleReportsRatesOverInterval() {
+        PerformanceHud hud = new PerformanceHud(allocated::get, clock::get);
+        hud.setVisible(true);
+        for (int i = 0; i < 10; i++) {
+            hud.recordTick(1_000_000L);
+        }
+        for (int i = 0; i < 30; i++) {
+            hud.recordPaint(2_000_000L);
+        }
+        hud.recordPaint(8_000_000L);
+        allocated.set(2L * 1024 * 1024);
+        clock.set(1_000_000_000L); // One second later
+
+        hud.sample(3);
+        String[] lines = hud.getLines();
+
+        assertTrue(lines[0].startsWith("Tick"), lines[0]);
+        assertTrue(lines[2].contains("FPS    31"), "31 frames in a second: " + lines[2]);
+        assertTrue(lines[2].contains("TPS 10"), "10 ticks in a second: " + lines[2]);
+        assertEquals("Missed 3 ticks", lines[3]);
+        assertTrue(lines[4].startsWith("Alloc  2"), "2 MB in a second: " + lines[4]);
+    }
+
+    @Test
+    public void testEachSampleStartsNewInterval() {
+        PerformanceHud hud = new PerformanceHud(allocated::get, clock::get);
+        hud.setVisible(true);
+        hud.recordTick(1_000_000L);
+        clock.set(1_000_000_000L);
+        hud.sample(0);
+
+        clock.set(2_000_000_000L);
+        hud.sample(0);
+
+        assertTrue(hud.getLines()[2].contains("TPS 0"), "Ticks should not be counted twice: " + hud.getLines()[2]);
+    }
+
+    @Test
+    public void testTimingsBeforeShownAreDiscarded() {
+        PerformanceHud hud = new PerformanceHud(allocated::get, clock::get);
+        hud.recordTick(1_000_000L);
+        hud.setVisible(true);
+        clock.set(1_000_000_000L);
+        hud.sample(0);
+
+        assertTrue(hud.getLines()[2].contains("TPS 0"), hud.getLines()[2]);
+    }
+
+    @Test
+    public void testUnknownAllocation() {
+        PerformanceHud hud = new PerformanceHud(() -> -1, clock::get);
+        hud.setVisible(true);
+        clock.set(1_000_000_000L);
+        hud.sample(0);
+
+        assertEquals("Alloc  n/a", hud.getLines()[4]);
+    }
+
+    @Test
+    public void testHiddenOverlayIsNotDrawn() {
+        PerformanceHud hud = new PerformanceHud(allocated::get, clock::get);
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(5, 5, 0xFFFFFF);
+        hud.paint(image.getGraphics());
+
+        assertEquals(0xFFFFFF, image.getRGB(5, 5) & 0xFFFFFF, "Nothing should be drawn while hidden");
+        assertEquals(0, hud.getLines().length);
+    }
+}
@@ -0,0 +1,42 @@
+package org.snake.view;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.snake.util.Cell;
+
+import java.awt.Color;
+
+public class TileAtlasTest {
+
+    @Test
+    public void testSides() {
+        int cell = Cell.pack(5, 5);
+        assertEquals(TileAtlas.UP, TileAtlas.side(cell, Cell.pack(5, 4)));
+        assertEquals(TileAtlas.RIGHT, TileAtlas.side(cell, Cell.pack(6, 5)));
+        assertEquals(TileAtlas.DOWN, TileAtlas.side(cell, Cell.pack(5, 6)));
+        assertEquals(TileAtlas.LEFT, TileAtlas.side(cell, Cell.pack(4, 5)));
+        assertEquals(0, TileAtlas.side(cell, Cell.pack(6, 6)), "Diagonal cells do not touch");
+    }
+
+    @Test
+    public void testHeadFacesAwayFromNeck() {
+        // A head with its neck below faces up, and so on round
+        assertNotEquals(TileAtlas.head(TileAtlas.DOWN), TileAtlas.head(TileAtlas.UP));
+        assertEquals(TileAtlas.head(0), TileAtlas.head(TileAtlas.DOWN), "A head without a body faces up");
+        int left = TileAtlas.head(TileAtlas.RIGHT);
+        int right = TileAtlas.head(TileAtlas.LEFT);
+        assertNotEquals(left, right);
+        assertTrue(left > TileAtlas.LEFT + TileAtlas.DOWN + TileAtlas.RIGHT + TileAtlas.UP,
+                "Head tiles come after the body tiles");
+    }
+
+    @Test
+    public void testAtlasIsCachedPerScaledSize() {
+        TileAtlas atlas = TileAtlas.get(10, 1, Color.WHITE, null);
+
+        assertSame(atlas, TileAtlas.get(10, 1, Color.WHITE, null));
+        assertEquals(10, atlas.getTileSize());
+        assertEquals(20, TileAtlas.get(10, 2, Color.WHITE, null).getTileSize(), "Tiles are drawn at device scale");
+        assertNotSame(atlas, TileAtlas.get(10, 1, Color.BLACK, null), "Tiles are drawn on the board colour");
+    }
+}